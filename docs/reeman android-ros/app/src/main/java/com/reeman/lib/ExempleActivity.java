@@ -17,6 +17,8 @@ import com.elvishew.xlog.XLog;
 import com.reeman.log.FileLoggingTree;
 import com.reeman.serialport.controller.RobotActionController;
 import com.reeman.serialport.controller.RosCallbackParser;
+import com.reeman.serialport.report.CoreData;
+import com.reeman.serialport.report.NavResult;
 
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
@@ -25,11 +27,10 @@ import java.util.Locale;
 
 import timber.log.Timber;
 
-public class ExempleActivity extends Activity implements RosCallbackParser.RosCallback {
+public class ExempleActivity extends Activity implements RosCallbackParser.RosReportCallback {
 
     private TextView tvROSData, tvRefreshHostname, tvRefreshIP, tvCoreData;
     private RobotActionController controller;
-    private String coreData = "";
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
@@ -61,12 +62,16 @@ public class ExempleActivity extends Activity implements RosCallbackParser.RosCa
             controller = RobotActionController.getInstance();
             try {
                 controller.init(
-                        115200,
-                        ofChassis(Build.PRODUCT),
-                        this,
+                        new RosCallbackParser.Builder()
+                                .baudRate(115200)
+                                .port(ofChassis(Build.PRODUCT))
+                                .callback(this)
+                                .skipDuplicates("core_data{"),//底盘状态没有变化时不回调
                         BuildConfig.APP_LOG_DIR
-
                 );
+                controller.subscribe("sys:boot", this::onHostname);
+                controller.subscribe("ip", this::onIp);
+                controller.subscribe("wlan", this::onIp);
             } catch (Exception e) {
                 e.printStackTrace();
                 Timber.tag(BuildConfig.APP_LOG_DIR).e(e, "serial port open failed");
@@ -92,7 +97,13 @@ public class ExempleActivity extends Activity implements RosCallbackParser.RosCa
 
     public void refreshHostname(View view) {
         tvRefreshHostname.setText("");
-        tvRefreshHostname.postDelayed(() -> controller.getHostName(), 500);
+        controller.getHostNameAsync(3000).addListener((hostname, error) -> {
+            if (error != null) {
+                Timber.tag(BuildConfig.APP_LOG_DIR).w(error, "get hostname failed");
+                return;
+            }
+            tvRefreshHostname.setText(getString(R.string.text_ros_hostname, hostname));
+        }, RosCallbackParser.mainThreadExecutor());
     }
 
     public void refreshIP(View view) {
@@ -124,75 +135,86 @@ public class ExempleActivity extends Activity implements RosCallbackParser.RosCa
 
     @Override
     public void onResult(String result) {
+        runOnUiThread(() -> appendROSData(result));
+    }
+
+    private void onHostname(String result) {
+        runOnUiThread(() -> tvRefreshHostname.setText(getString(R.string.text_ros_hostname, result.replace("sys:boot:", ""))));
+    }
+
+    private void onIp(String result) {
         runOnUiThread(() -> {
-            if (result.startsWith("sys:boot")) {
-                tvRefreshHostname.setText(getString(R.string.text_ros_hostname, result.replace("sys:boot:", "")));
-            } else if (result.startsWith("ip") || result.startsWith("wlan")) {
-                if (result.startsWith("wlan")) {
-                    tvRefreshIP.setText(getString(R.string.text_ros_ip, getString(R.string.text_not_connect), "127.0.0.1"));
-                    return;
-                }
-                String[] split = result.split(":");
-                if (split.length != 3 || result.contains("connecting")) {
-                    tvRefreshIP.setText(getString(R.string.text_ros_ip, getString(R.string.text_not_connect), "127.0.0.1"));
+            if (result.startsWith("wlan")) {
+                tvRefreshIP.setText(getString(R.string.text_ros_ip, getString(R.string.text_not_connect), "127.0.0.1"));
+                return;
+            }
+            String[] split = result.split(":");
+            if (split.length != 3 || result.contains("connecting")) {
+                tvRefreshIP.setText(getString(R.string.text_ros_ip, getString(R.string.text_not_connect), "127.0.0.1"));
+            } else {
+                tvRefreshIP.setText(getString(R.string.text_ros_ip, split[1], split[2]));
+                //本地日志上传到ROS Upload local logs to ROS
+                controller.setIpAddress(split[2]);
+            }
+        });
+    }
+
+    @Override
+    public void onNavResult(NavResult navResult) {
+        //回调参数会被复用,切换线程前先取出需要的字段
+        int state = navResult.getState();
+        int code = navResult.getCode();
+        String name = navResult.getName();
+        double distToGoal = navResult.getDistToGoal();
+        double mileage = navResult.getMileage();
+        String result = navResult.toString();
+        runOnUiThread(() -> {
+            if (state == 6) {
+                if (code == 0) {
+                    Timber.i("导航指令发送成功,机器状态正常,可以导航");
                 } else {
-                    tvRefreshIP.setText(getString(R.string.text_ros_ip, split[1], split[2]));
-                    //本地日志上传到ROS Upload local logs to ROS
-                    controller.setIpAddress(split[2]);
+                    String startNavFailedReason = getStartNavFailedReason(code);
+                    Timber.w(startNavFailedReason);
+                    Toast.makeText(this, startNavFailedReason, Toast.LENGTH_SHORT).show();
                 }
-            } else if (result.startsWith("nav_result{")) {
-                String replace = result.replace("nav_result{", "").replace("}", "");
-                String[] split = replace.split(" ");
-                if (split.length == 5) {
-                    int state = Integer.parseInt(split[0]);
-                    int code = Integer.parseInt(split[1]);
-                    String name = split[2];
-                    String distToGoal = split[3];
-                    String mileage = split[4];
-                    if (state == 6) {
-                        if (code == 0) {
-                            Timber.i("导航指令发送成功,机器状态正常,可以导航");
-                        } else {
-                            String startNavFailedReason = getStartNavFailedReason(code);
-                            Timber.w(startNavFailedReason);
-                            Toast.makeText(this, startNavFailedReason, Toast.LENGTH_SHORT).show();
-                        }
-                    } else if (state == 1) {
-                        Toast.makeText(this, getString(R.string.text_start_navigation_success, distToGoal), Toast.LENGTH_SHORT).show();
-                    } else if (state == 3) {
-                        if (code == 0) {
-                            String text = getString(R.string.text_navigation_success, name, mileage);
-                            Toast.makeText(this, text, Toast.LENGTH_SHORT).show();
-                        } else {
-                            Toast.makeText(this, "导航失败", Toast.LENGTH_SHORT).show();
-                        }
-                    }
-                }
-            } else if (result.startsWith("core_data")) {
-                if (coreData.equals(result)) return;
-                coreData = result;
-                String[] split = result.replace("core_data{", "").replace("}", "").split(" ");
-                if (split.length == 5) {
-                    int bumper = Integer.parseInt(split[0]);
-                    int cliff = Integer.parseInt(split[1]);
-                    int button = Integer.parseInt(split[2]);
-                    int battery = Integer.parseInt(split[3]);
-                    int charger = Integer.parseInt(split[4]);
-                    tvCoreData.setText(getString(R.string.text_core_data, battery, button, charger));
+            } else if (state == 1) {
+                Toast.makeText(this, getString(R.string.text_start_navigation_success, String.valueOf(distToGoal)), Toast.LENGTH_SHORT).show();
+            } else if (state == 3) {
+                if (code == 0) {
+                    String text = getString(R.string.text_navigation_success, name, String.valueOf(mileage));
+                    Toast.makeText(this, text, Toast.LENGTH_SHORT).show();
+                } else {
+                    Toast.makeText(this, "导航失败", Toast.LENGTH_SHORT).show();
                 }
             }
-            String data = tvROSData.getText().toString();
-            if (data.length() > 500) {
-                clean(null);
-            }
-            tvROSData.setText(String.format("%s\n%s %s", data, formatDay(new Date()), result));
-            int offset = tvROSData.getLineCount() * tvROSData.getLineHeight();
-            if (offset > tvROSData.getHeight()) {
-                tvROSData.scrollTo(0, offset - tvROSData.getHeight() + 20);
-            }
+            appendROSData(result);
         });
     }
 
+    @Override
+    public void onCoreData(CoreData coreData) {
+        int battery = coreData.getBattery();
+        int button = coreData.getButton();
+        int charger = coreData.getCharger();
+        String result = coreData.toString();
+        runOnUiThread(() -> {
+            tvCoreData.setText(getString(R.string.text_core_data, battery, button, charger));
+            appendROSData(result);
+        });
+    }
+
+    private void appendROSData(String result) {
+        String data = tvROSData.getText().toString();
+        if (data.length() > 500) {
+            clean(null);
+        }
+        tvROSData.setText(String.format("%s\n%s %s", data, formatDay(new Date()), result));
+        int offset = tvROSData.getLineCount() * tvROSData.getLineHeight();
+        if (offset > tvROSData.getHeight()) {
+            tvROSData.scrollTo(0, offset - tvROSData.getHeight() + 20);
+        }
+    }
+
     public String formatDay(Date date) {
         SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.getDefault());
         return formatter.format(date);
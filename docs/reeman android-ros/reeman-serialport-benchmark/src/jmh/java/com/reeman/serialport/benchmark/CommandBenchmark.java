@@ -0,0 +1,100 @@
+package com.reeman.serialport.benchmark;
+
+import com.reeman.serialport.controller.RobotActionController;
+import com.reeman.serialport.controller.RosCallbackParser;
+import com.reeman.serialport.controller.SerialRuntime;
+import com.reeman.serialport.transport.LoopbackTransport;
+import com.reeman.serialport.util.CommandEncoder;
+import com.reeman.serialport.util.Parser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RobotActionController}生成指令的开销
+ * <p>
+ * 控制器的指令经过编码、日志和写入队列,由读写线程写入{@link LoopbackTransport},对端未读取,数据直接丢弃;
+ * 坐标每次调用都不同,与摇杆和跟随时连续发送的指令相同
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CommandBenchmark {
+
+    private SerialRuntime runtime;
+    private RobotActionController robot;
+    private int sequence;
+
+    @Setup
+    public void setup() throws Exception {
+        runtime = new SerialRuntime.Builder().build();
+        robot = new RobotActionController();
+        robot.init(new RosCallbackParser.Builder()
+                .port("bench")
+                .runtime(runtime)
+                .transport((owner, port, baudRate) -> LoopbackTransport.pair(port)[0]));
+    }
+
+    @TearDown
+    public void tearDown() {
+        robot.stopListen();
+        runtime.shutdown();
+    }
+
+    /**
+     * 控制器中的坐标格式,不发送
+     */
+    @Benchmark
+    public int encodeGoal() {
+        int i = sequence++;
+        return CommandEncoder.local().begin("goal:nav[")
+                .append(x(i), 3).append(',').append(y(i), 3).append(',').append(radian(i), 4)
+                .append(']').end().length();
+    }
+
+    /**
+     * 拼接字符串后编码,即{@link RobotActionController#navigationByCoordinates(String, String, String)},不发送
+     */
+    @Benchmark
+    public byte[] concatGoal() {
+        int i = sequence++;
+        return Parser.string2BH("goal:nav[" + x(i) + "," + y(i) + "," + radian(i) + "]");
+    }
+
+    @Benchmark
+    public void navigationByCoordinates() {
+        int i = sequence++;
+        robot.navigationByCoordinates(x(i), y(i), radian(i));
+    }
+
+    @Benchmark
+    public void moveRight() {
+        int i = sequence++;
+        robot.moveRight(i & 63, 30);
+    }
+
+    @Benchmark
+    public void navigationByPoint() {
+        robot.navigationByPoint("A");
+    }
+
+    private static double x(int i) {
+        return 1.25 + (i & 1023) * 0.001;
+    }
+
+    private static double y(int i) {
+        return -3.5 + (i & 511) * 0.002;
+    }
+
+    private static double radian(int i) {
+        return (i & 255) * 0.0123;
+    }
+}
@@ -0,0 +1,137 @@
+package com.reeman.serialport.benchmark;
+
+import com.reeman.serialport.controller.RosCallbackParser;
+import com.reeman.serialport.controller.SerialRuntime;
+import com.reeman.serialport.report.CoreData;
+import com.reeman.serialport.report.CurrentInfo;
+import com.reeman.serialport.report.NavResult;
+import com.reeman.serialport.report.Pose;
+import com.reeman.serialport.report.Topic;
+import com.reeman.serialport.transport.LoopbackTransport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RosCallbackParser}的完整接收路径: 拆帧、缓存、分发线程、解析、状态快照和回调;每个操作为一帧
+ * <p>
+ * 数据从{@link LoopbackTransport}的另一端写入,在基准线程中拆帧,每次调用等所有帧回调完成或被合并后结束
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DispatchBenchmark {
+    private static final long TIMEOUT = TimeUnit.SECONDS.toNanos(10);
+
+    @Param({"idle", "navigation", "lidar"})
+    public String mix;
+
+    /**
+     * callback: {@link RosCallbackParser.RosReportCallback}; subscription: 按类型订阅
+     */
+    @Param({"callback", "subscription"})
+    public String consumer;
+
+    private Traffic traffic;
+    private SerialRuntime runtime;
+    private RosCallbackParser parser;
+    private OutputStream ros;
+    /**
+     * 只在分发线程中修改
+     */
+    private volatile long delivered;
+
+    @Setup
+    public void setup() throws Exception {
+        traffic = Traffic.of(mix);
+        runtime = new SerialRuntime.Builder().build();
+        LoopbackTransport[] pair = LoopbackTransport.pair("bench");
+        RosCallbackParser.Builder builder = new RosCallbackParser.Builder()
+                .port("bench")
+                .runtime(runtime)
+                .transport((owner, port, baudRate) -> pair[0]);
+        if ("callback".equals(consumer)) {
+            builder.callback(new RosCallbackParser.RosReportCallback() {
+                @Override
+                public void onNavResult(NavResult navResult) {
+                    delivered++;
+                }
+
+                @Override
+                public void onCoreData(CoreData coreData) {
+                    delivered++;
+                }
+
+                @Override
+                public void onPose(Pose pose) {
+                    delivered++;
+                }
+
+                @Override
+                public void onCurrentInfo(CurrentInfo currentInfo) {
+                    delivered++;
+                }
+
+                @Override
+                public void onResult(String result) {
+                    delivered++;
+                }
+            });
+            parser = builder.build();
+        } else {
+            parser = builder.build();
+            RosCallbackParser.MessageHandler<Object> handler = message -> delivered++;
+            parser.subscribe(Topic.POSE, handler);
+            parser.subscribe(Topic.CORE_DATA, handler);
+            parser.subscribe(Topic.NAV_RESULT, handler);
+            parser.subscribe(Topic.CURRENT_INFO, handler);
+            parser.subscribe("laser[", handler);
+            parser.subscribeUnmatched(message -> delivered++);
+        }
+        parser.startListen();
+        ros = pair[1].getOutputStream();
+    }
+
+    @TearDown
+    public void tearDown() {
+        parser.stopListen();
+        runtime.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Traffic.FRAMES)
+    public long dispatch() throws IOException {
+        long expected = handled() + Traffic.FRAMES;
+        byte[] bytes = traffic.bytes;
+        for (int offset = 0; offset < bytes.length; offset += Traffic.CHUNK) {
+            ros.write(bytes, offset, Math.min(Traffic.CHUNK, bytes.length - offset));
+        }
+        long deadline = System.nanoTime() + TIMEOUT;
+        long handled;
+        while ((handled = handled()) < expected) {
+            if (System.nanoTime() - deadline > 0) {
+                throw new IllegalStateException("dispatched " + handled + ", expected " + expected);
+            }
+        }
+        return handled;
+    }
+
+    /**
+     * 回调的帧数加上分发线程来不及处理时被新数据合并的帧数
+     */
+    private long handled() {
+        return delivered + parser.getCoalescedCount() + parser.getDroppedCount();
+    }
+}
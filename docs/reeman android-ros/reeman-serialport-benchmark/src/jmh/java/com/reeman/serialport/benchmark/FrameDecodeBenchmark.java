@@ -0,0 +1,59 @@
+package com.reeman.serialport.benchmark;
+
+import com.reeman.serialport.util.FrameDecoder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 读线程中的拆帧,只包括{@link FrameDecoder},不包括分发;每个操作为一帧
+ * <p>
+ * 数据按{@link Traffic#CHUNK}字节分次送入,帧会跨越两次读取;-prof gc的gc.alloc.rate.norm为每帧分配的字节数
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FrameDecodeBenchmark {
+
+    @Param({"idle", "navigation", "lidar"})
+    public String mix;
+
+    private Traffic traffic;
+    private FrameDecoder decoder;
+
+    @Setup
+    public void setup(final Blackhole blackhole) throws Exception {
+        traffic = Traffic.of(mix);
+        decoder = new FrameDecoder(new FrameDecoder.OnFrameListener() {
+            @Override
+            public void onFrame(byte type, byte[] data, int offset, int len) {
+                blackhole.consume(data[offset + len - 1]);
+            }
+
+            @Override
+            public void onChecksumError(byte type, byte[] data, int offset, int len) {
+                throw new IllegalStateException("checksum error");
+            }
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Traffic.FRAMES)
+    public long decode() {
+        byte[] bytes = traffic.bytes;
+        for (int offset = 0; offset < bytes.length; offset += Traffic.CHUNK) {
+            decoder.feed(bytes, offset, Math.min(Traffic.CHUNK, bytes.length - offset));
+        }
+        return decoder.getFrames();
+    }
+}
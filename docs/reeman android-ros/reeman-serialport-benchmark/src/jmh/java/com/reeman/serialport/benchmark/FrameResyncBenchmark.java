@@ -0,0 +1,195 @@
+package com.reeman.serialport.benchmark;
+
+import com.reeman.serialport.util.FrameDecoder;
+import com.reeman.serialport.util.Parser;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link FrameDecoder}在异常数据流下的重同步开销;每个操作为一个字节,结果为每秒处理的字节数
+ * <p>
+ * 同时通过{@link Recovery}报告每秒的帧数: embedded为数据流中完好的帧,recovered为解出且与完好的帧相同的帧,
+ * falsePositive为通过校验的其他帧;校验位只有一个字节,乱码中约1/256的伪帧会通过校验。
+ * recovered小于embedded说明有完好的帧被之前截断的帧或伪帧头吞掉
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FrameResyncBenchmark {
+    private static final int BYTES = 64 * 1024;
+    private static final int CHUNK = 1024;
+
+    private static final String[] TRAFFIC = {
+            "pose[1.25,-3.50,0.7854]",
+            "core_data{0 0 0 87 0}",
+            "nav_result{1 0 A 3.562001 12}",
+            "laser[1.23]",
+            "current_info{55 202 0 0 1}",
+            "battery_info{reeman 25.2 31 120 20000 19000 17000 98}",
+    };
+
+    /**
+     * clean: 正常数据流; flip-3/flip-2: 按1e-3/1e-2的比例随机翻转比特; truncated: 10%的帧被截断;
+     * heads: 每帧前插入一段AA 54 AA 56,每个伪帧头都吞掉170字节后才校验失败,重复解析最多
+     */
+    @Param({"clean", "flip-3", "flip-2", "truncated", "heads"})
+    public String scenario;
+
+    /**
+     * 按数据位长度查找TRAFFIC中的指令,各条长度不同
+     */
+    private static final byte[][] PAYLOAD_BY_LENGTH = new byte[256][];
+
+    static {
+        for (String traffic : TRAFFIC) {
+            byte[] payload = traffic.getBytes(StandardCharsets.UTF_8);
+            if (PAYLOAD_BY_LENGTH[payload.length] != null) throw new AssertionError("长度相同: " + traffic);
+            PAYLOAD_BY_LENGTH[payload.length] = payload;
+        }
+    }
+
+    private byte[] bytes;
+    /**
+     * 每遍数据流中完好的帧数
+     */
+    private int intact;
+    private FrameDecoder decoder;
+    private long recovered;
+    private long falsePositives;
+
+    @Setup
+    public void setup(final Blackhole blackhole) {
+        Random random = new Random(42);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<int[]> frames = new ArrayList<>();
+        generate(scenario, random, out, frames);
+        byte[] original = Arrays.copyOf(out.toByteArray(), BYTES);
+        bytes = original.clone();
+        flip(scenario, random, bytes);
+        for (int[] frame : frames) {
+            if (frame[1] > BYTES) continue;
+            boolean ok = true;
+            for (int i = frame[0]; i < frame[1] && ok; i++) {
+                //同一位置可能被翻转两次,与原数据比较
+                ok = bytes[i] == original[i];
+            }
+            if (ok) intact++;
+        }
+        decoder = new FrameDecoder(new FrameDecoder.OnFrameListener() {
+            @Override
+            public void onFrame(byte type, byte[] data, int offset, int len) {
+                if (type == FrameDecoder.TYPE_DATA && matches(data, offset, len)) {
+                    recovered++;
+                } else {
+                    falsePositives++;
+                }
+            }
+
+            @Override
+            public void onChecksumError(byte type, byte[] data, int offset, int len) {
+                blackhole.consume(len);
+            }
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BYTES)
+    public long resync(Recovery recovery) {
+        long recoveredBefore = recovered;
+        long falsePositivesBefore = falsePositives;
+        for (int offset = 0; offset < BYTES; offset += CHUNK) {
+            decoder.feed(bytes, offset, CHUNK);
+        }
+        recovery.embedded += intact;
+        recovery.recovered += recovered - recoveredBefore;
+        recovery.falsePositive += falsePositives - falsePositivesBefore;
+        return decoder.getDiscardedBytes();
+    }
+
+    /**
+     * 每秒的帧数,每轮迭代重新计数
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Recovery {
+        public long embedded;
+        public long recovered;
+        public long falsePositive;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            embedded = 0;
+            recovered = 0;
+            falsePositive = 0;
+        }
+    }
+
+    private static boolean matches(byte[] data, int offset, int len) {
+        byte[] payload = PAYLOAD_BY_LENGTH[len];
+        if (payload == null) return false;
+        for (int i = 0; i < len; i++) {
+            if (data[offset + i] != payload[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param frames 完整写入的帧的起止位置
+     */
+    private static void generate(String scenario, Random random, ByteArrayOutputStream out, List<int[]> frames) {
+        while (out.size() < BYTES) {
+            byte[] frame = Parser.string2BH(TRAFFIC[random.nextInt(TRAFFIC.length)]);
+            switch (scenario) {
+                case "clean":
+                case "flip-3":
+                case "flip-2":
+                    frames.add(new int[]{out.size(), out.size() + frame.length});
+                    out.write(frame, 0, frame.length);
+                    break;
+                case "truncated":
+                    int len = random.nextDouble() < 0.1 ? 1 + random.nextInt(frame.length - 1) : frame.length;
+                    if (len == frame.length) frames.add(new int[]{out.size(), out.size() + len});
+                    out.write(frame, 0, len);
+                    break;
+                case "heads":
+                    for (int i = 32 + random.nextInt(64); i > 0; i--) {
+                        out.write(0xAA);
+                        out.write(0x54);
+                        out.write(0xAA);
+                        out.write(0x56);
+                    }
+                    frames.add(new int[]{out.size(), out.size() + frame.length});
+                    out.write(frame, 0, frame.length);
+                    break;
+                default:
+                    throw new IllegalArgumentException("scenario: " + scenario);
+            }
+        }
+    }
+
+    private static void flip(String scenario, Random random, byte[] bytes) {
+        double rate = "flip-3".equals(scenario) ? 1e-3 : "flip-2".equals(scenario) ? 1e-2 : 0;
+        for (int i = (int) (bytes.length * rate); i > 0; i--) {
+            bytes[random.nextInt(bytes.length)] ^= (byte) (1 << random.nextInt(8));
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.reeman.serialport.benchmark;
+
+import com.reeman.serialport.controller.RosCallbackParser;
+import com.reeman.serialport.controller.SerialRuntime;
+import com.reeman.serialport.report.Pose;
+import com.reeman.serialport.sim.RosSimulator;
+import com.reeman.serialport.transport.LoopbackTransport;
+import com.reeman.serialport.util.Parser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 从数据进入队列到回调的延迟,结果为分布,关注p99和p99.9
+ * <p>
+ * report: 收到一帧坐标到监听器回调,经过接收缓存和分发线程,executor时再经过监听器自己的队列;
+ * roundTrip: 指令进入发送队列,经读写线程发给{@link RosSimulator},到回复的回调;
+ * request: 同roundTrip,通过{@link RosCallbackParser#request(String, String, long)}等待回复
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LatencyBenchmark {
+    private static final long TIMEOUT = TimeUnit.SECONDS.toNanos(1);
+
+    @State(Scope.Benchmark)
+    public static class Inbound {
+        /**
+         * inline: 在分发线程中回调; executor: 通过{@link RosCallbackParser#addListener(RosCallbackParser.RosCallback, java.util.concurrent.Executor)}在另一个线程回调
+         */
+        @Param({"inline", "executor"})
+        public String listener;
+
+        private SerialRuntime runtime;
+        private ExecutorService executor;
+        private RosCallbackParser parser;
+        private OutputStream ros;
+        private byte[][] frames;
+        private int next;
+        /**
+         * 只在回调线程中修改
+         */
+        private volatile long delivered;
+
+        @Setup
+        public void setup() throws Exception {
+            runtime = new SerialRuntime.Builder().build();
+            LoopbackTransport[] pair = LoopbackTransport.pair("bench");
+            parser = new RosCallbackParser.Builder()
+                    .port("bench")
+                    .runtime(runtime)
+                    .transport((owner, port, baudRate) -> pair[0])
+                    .build();
+            RosCallbackParser.RosReportCallback callback = new RosCallbackParser.RosReportCallback() {
+                @Override
+                public void onPose(Pose pose) {
+                    delivered++;
+                }
+
+                @Override
+                public void onResult(String result) {
+                }
+            };
+            if ("executor".equals(listener)) {
+                executor = Executors.newSingleThreadExecutor();
+                parser.addListener(callback, executor);
+            } else {
+                parser.addListener(callback);
+            }
+            parser.startListen();
+            ros = pair[1].getOutputStream();
+            frames = new byte[64][];
+            for (int i = 0; i < frames.length; i++) {
+                frames[i] = Parser.string2BH(String.format(Locale.US, "pose[%.2f,-3.5,0.7854]", 1 + i * 0.01));
+            }
+        }
+
+        @TearDown
+        public void tearDown() {
+            parser.stopListen();
+            if (executor != null) executor.shutdownNow();
+            runtime.shutdown();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class RoundTrip {
+        private SerialRuntime runtime;
+        private RosSimulator simulator;
+        private RosCallbackParser parser;
+        /**
+         * 只在分发线程中修改
+         */
+        private volatile long replies;
+
+        @Setup
+        public void setup() throws Exception {
+            runtime = new SerialRuntime.Builder().build();
+            simulator = new RosSimulator.Builder().runtime(runtime).coreDataRate(0).build();
+            parser = new RosCallbackParser.Builder()
+                    .port("bench")
+                    //不按波特率限速,只测量队列和线程的延迟
+                    .baudRate(Integer.MAX_VALUE)
+                    .runtime(runtime)
+                    .transport(simulator.loopback())
+                    .callback(result -> {
+                        if (result.startsWith("hfls_version")) replies++;
+                    })
+                    .build();
+            parser.startListen();
+        }
+
+        @TearDown
+        public void tearDown() {
+            parser.stopListen();
+            simulator.close();
+            runtime.shutdown();
+        }
+    }
+
+    @Benchmark
+    public long report(Inbound state) throws IOException {
+        long expected = state.delivered + 1;
+        state.ros.write(state.frames[state.next++ & 63]);
+        long deadline = System.nanoTime() + TIMEOUT;
+        while (state.delivered < expected) {
+            if (System.nanoTime() - deadline > 0) throw new IllegalStateException("no callback");
+        }
+        return expected;
+    }
+
+    @Benchmark
+    public long roundTrip(RoundTrip state) {
+        long expected = state.replies + 1;
+        state.parser.sendCommandToQueue("keep_connect");
+        long deadline = System.nanoTime() + TIMEOUT;
+        while (state.replies < expected) {
+            if (System.nanoTime() - deadline > 0) throw new IllegalStateException("no reply");
+        }
+        return expected;
+    }
+
+    @Benchmark
+    public String request(RoundTrip state) throws Exception {
+        return state.parser.request("keep_connect", "hfls_version", 1000).get();
+    }
+}
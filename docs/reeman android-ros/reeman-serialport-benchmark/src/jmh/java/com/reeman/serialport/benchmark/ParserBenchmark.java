@@ -0,0 +1,74 @@
+package com.reeman.serialport.benchmark;
+
+import com.reeman.serialport.util.CommandEncoder;
+import com.reeman.serialport.util.Parser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Parser}中十六进制字符串的编解码和校验,与直接处理字节的{@link CommandEncoder}、{@link Parser#bytesToString}对比
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ParserBenchmark {
+
+    @Param({"keep_connect", "pose[1.250,-3.500,0.7854]", "battery_info{reeman 25.2 31 120 20000 19000 17000 98}"})
+    public String message;
+
+    /**
+     * 帧头、长度和数据位的十六进制,不含校验,即{@link Parser#checkXor(String)}的参数
+     */
+    private String frameHex;
+    /**
+     * 数据位的十六进制,即{@link Parser#hexStringToString(String)}的参数
+     */
+    private String dataHex;
+    private byte[] data;
+
+    @Setup
+    public void setup() {
+        byte[] frame = Parser.string2BH(message);
+        frameHex = Parser.byteArrToHex(frame, frame.length - 1);
+        data = Arrays.copyOfRange(frame, 3, frame.length - 1);
+        dataHex = Parser.byteArrToHex(data, data.length);
+    }
+
+    @Benchmark
+    public byte[] string2BH() {
+        return Parser.string2BH(message);
+    }
+
+    /**
+     * 编码到复用的缓冲区,不复制结果
+     */
+    @Benchmark
+    public int encode() {
+        return CommandEncoder.local().begin(message).end().length();
+    }
+
+    @Benchmark
+    public String checkXor() {
+        return Parser.checkXor(frameHex);
+    }
+
+    @Benchmark
+    public String hexStringToString() {
+        return Parser.hexStringToString(dataHex);
+    }
+
+    @Benchmark
+    public String bytesToString() {
+        return Parser.bytesToString(data, 0, data.length);
+    }
+}
@@ -0,0 +1,151 @@
+package com.reeman.serialport.benchmark;
+
+import com.reeman.serialport.capture.CaptureReader;
+import com.reeman.serialport.capture.CaptureReplay;
+import com.reeman.serialport.util.FrameDecoder;
+import com.reeman.serialport.util.Parser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * 导航串口上报的数据流,各类上报按频率交错,与机器人实际收到的顺序相同
+ * <p>
+ * 随机数种子固定,每次生成的数据相同;坐标、距离等数值每帧都在变化,不会被当作重复上报
+ */
+final class Traffic {
+    /**
+     * 每个数据流的帧数,基准按帧计算吞吐量
+     */
+    static final int FRAMES = 1000;
+    /**
+     * 每次读到的字节数,接近115200波特率下读线程每次唤醒读到的数据量
+     */
+    static final int CHUNK = 64;
+
+    private static final int POSE = 0;
+    private static final int CORE_DATA = 1;
+    private static final int NAV_RESULT = 2;
+    private static final int CURRENT_INFO = 3;
+    private static final int LASER = 4;
+
+    /**
+     * 按帧拼接的数据
+     */
+    final byte[] bytes;
+    /**
+     * 每一帧,包括帧头和校验
+     */
+    final byte[][] frames;
+
+    private Traffic(byte[][] frames) {
+        this.frames = frames;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] frame : frames) {
+            out.write(frame, 0, frame.length);
+        }
+        this.bytes = out.toByteArray();
+    }
+
+    /**
+     * @param mix idle: 待机,坐标10Hz、core_data 2Hz;
+     *            navigation: 导航中,坐标20Hz、core_data 5Hz、nav_result 1Hz、current_info 1Hz;
+     *            lidar: 导航中并打开激光上报20Hz;
+     *            capture:目录/前缀: {@link com.reeman.serialport.capture.CaptureJournal}记录的现场数据,如-p mix=capture:/data/capture/ros
+     */
+    static Traffic of(String mix) throws IOException, InterruptedException {
+        if (mix.startsWith("capture:")) return capture(new File(mix.substring("capture:".length())));
+        switch (mix) {
+            case "idle":
+                return generate(10, 2, 0, 0, 0);
+            case "navigation":
+                return generate(20, 5, 1, 1, 0);
+            case "lidar":
+                return generate(20, 5, 1, 1, 20);
+            default:
+                throw new IllegalArgumentException("mix: " + mix);
+        }
+    }
+
+    /**
+     * 记录中读到的有数据位的帧,不足{@link #FRAMES}时重复,超过时截取;应答帧和空帧不分发,不包括在内
+     */
+    private static Traffic capture(File file) throws IOException, InterruptedException {
+        List<byte[]> captured = new ArrayList<>();
+        FrameDecoder decoder = new FrameDecoder(new FrameDecoder.OnFrameListener() {
+            @Override
+            public void onFrame(byte type, byte[] data, int offset, int len) {
+                if (type != FrameDecoder.TYPE_DATA || len == 0) return;
+                byte[] frame = new byte[len + 4];
+                frame[0] = FrameDecoder.HEAD;
+                frame[1] = type;
+                frame[2] = (byte) len;
+                byte xor = (byte) len;
+                for (int i = 0; i < len; i++) {
+                    frame[3 + i] = data[offset + i];
+                    xor ^= data[offset + i];
+                }
+                frame[3 + len] = xor;
+                captured.add(frame);
+            }
+
+            @Override
+            public void onChecksumError(byte type, byte[] data, int offset, int len) {
+            }
+        });
+        try (CaptureReader reader = CaptureReader.open(file.getAbsoluteFile().getParentFile(), file.getName())) {
+            CaptureReplay.replay(reader, CaptureReplay.MAX_SPEED, (bytes, len) -> decoder.feed(bytes, 0, len));
+        }
+        if (captured.isEmpty()) throw new IllegalArgumentException(file + "中没有完整的帧");
+        byte[][] frames = new byte[FRAMES][];
+        for (int i = 0; i < FRAMES; i++) {
+            frames[i] = captured.get(i % captured.size());
+        }
+        return new Traffic(frames);
+    }
+
+    private static Traffic generate(double... rates) {
+        Random random = new Random(42);
+        double[] due = new double[rates.length];
+        byte[][] frames = new byte[FRAMES][];
+        double x = 1.25, y = -3.5, radian = 0.7854, distance = 12;
+        int mileage = 0;
+        for (int i = 0; i < FRAMES; i++) {
+            int next = -1;
+            for (int type = 0; type < rates.length; type++) {
+                if (rates[type] > 0 && (next < 0 || due[type] < due[next])) next = type;
+            }
+            due[next] += 1 / rates[next];
+            String message;
+            switch (next) {
+                case POSE:
+                    x += random.nextGaussian() * 0.01;
+                    y += random.nextGaussian() * 0.01;
+                    radian += random.nextGaussian() * 0.005;
+                    message = String.format(Locale.US, "pose[%.3f,%.3f,%.4f]", x, y, radian);
+                    break;
+                case CORE_DATA:
+                    message = "core_data{0 0 0 " + (80 + random.nextInt(3)) + " 0}";
+                    break;
+                case NAV_RESULT:
+                    distance = Math.max(0, distance - 0.5);
+                    mileage++;
+                    message = String.format(Locale.US, "nav_result{1 0 A %.6f %d}", distance, mileage);
+                    break;
+                case CURRENT_INFO:
+                    message = "current_info{" + (250 + random.nextInt(5)) + " " + (1200 + random.nextInt(400)) + " 0 0 1}";
+                    break;
+                default:
+                    message = String.format(Locale.US, "laser[%.2f]", 0.5 + random.nextDouble() * 3);
+                    break;
+            }
+            frames[i] = Parser.string2BH(message);
+        }
+        return new Traffic(frames);
+    }
+}
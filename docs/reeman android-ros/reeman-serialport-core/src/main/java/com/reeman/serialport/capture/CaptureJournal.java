@@ -0,0 +1,358 @@
+package com.reeman.serialport.capture;
+
+import com.reeman.serialport.controller.SerialRuntime;
+import com.reeman.serialport.platform.RosLog;
+import com.reeman.serialport.transport.Transport;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 串口原始数据的二进制记录,用于现场问题的复现和回放
+ * <p>
+ * 每次读到和写出的数据原样记录为一条,包括不完整的帧和校验错误的数据,时间为{@link System#nanoTime()};
+ * 数据写入内存映射的分段文件,dir下的name-000001.cap等,超过maxSegments时删除最旧的一段;
+ * 下一段在{@link SerialRuntime#background()}中提前创建和映射,写满时直接切换,写满的一段也在后台刷入文件和删除,
+ * 读写线程上的记录只是内存复制,进程崩溃时已记录的数据仍由系统写入文件。记录失败时停止记录,不影响串口读写
+ *
+ * <pre>
+ * CaptureJournal journal = new CaptureJournal.Builder(new File(logDir, "capture")).build();
+ * new RosCallbackParser.Builder().port("/dev/ttyS1").capture(journal)...
+ * </pre>
+ *
+ * @see CaptureReader
+ * @see CaptureReplay
+ */
+public final class CaptureJournal implements Closeable {
+    /**
+     * 从ROS读到的数据
+     */
+    public static final int INBOUND = 0;
+    /**
+     * 发给ROS的数据
+     */
+    public static final int OUTBOUND = 1;
+
+    static final int MAGIC = 0x52434150;
+    static final int VERSION = 1;
+    /**
+     * 魔数4字节、版本4字节、创建时的System.currentTimeMillis和System.nanoTime各8字节、保留8字节
+     */
+    static final int SEGMENT_HEADER = 32;
+    /**
+     * 长度4字节、方向1字节、时间8字节;长度为0表示该段结束
+     */
+    static final int RECORD_HEADER = 13;
+    static final String SUFFIX = ".cap";
+    private static final int MIN_SEGMENT_SIZE = 64 * 1024;
+
+    private final File dir;
+    private final String name;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final Executor background;
+    private final List<File> segments = new ArrayList<>();
+    private int nextIndex;
+    private MappedByteBuffer buffer;
+    /**
+     * 后台提前准备好的下一段
+     */
+    private MappedByteBuffer next;
+    private File nextFile;
+    private boolean preparing;
+    private boolean failed;
+    private boolean closed;
+    private long records;
+    private long bytes;
+
+    private CaptureJournal(Builder builder) throws IOException {
+        dir = builder.dir;
+        name = builder.name;
+        segmentSize = builder.segmentSize;
+        maxSegments = builder.maxSegments;
+        background = (builder.runtime == null ? SerialRuntime.getDefault() : builder.runtime).background();
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("无法创建目录" + dir);
+        //接着已有的记录编号,不覆盖之前的记录
+        for (File segment : list(dir, name)) {
+            segments.add(segment);
+            nextIndex = index(segment, name);
+        }
+        nextIndex++;
+        File file = newFile();
+        buffer = map(file);
+        segments.add(file);
+        delete(expire());
+        prepareNext();
+    }
+
+    /**
+     * 记录一次读到或写出的数据,可在任意线程调用
+     *
+     * @param direction {@link #INBOUND}/{@link #OUTBOUND}
+     */
+    public synchronized void append(int direction, byte[] data, int offset, int len) {
+        if (failed || closed || len <= 0) return;
+        long timestamp = System.nanoTime();
+        try {
+            //超过一段容量的数据拆成多条
+            while (len > 0) {
+                if (buffer.remaining() < RECORD_HEADER + 1) rotate();
+                int n = Math.min(len, buffer.remaining() - RECORD_HEADER);
+                buffer.putInt(n);
+                buffer.put((byte) direction);
+                buffer.putLong(timestamp);
+                buffer.put(data, offset, n);
+                offset += n;
+                len -= n;
+                records++;
+                bytes += n;
+            }
+        } catch (IOException | RuntimeException e) {
+            failed = true;
+            RosLog.e(e, "%s 记录失败,停止记录", name);
+        }
+    }
+
+    /**
+     * 在transport的读写路径上记录数据,关闭返回的transport时不关闭记录
+     */
+    public Transport tap(Transport transport) {
+        return new CaptureTransport(transport, this);
+    }
+
+    /**
+     * @return 已记录的条数
+     */
+    public synchronized long getRecords() {
+        return records;
+    }
+
+    /**
+     * @return 已记录的数据字节数,不包括记录头
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * 把已记录的数据写入文件,之后不再记录;删除提前创建的下一段
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        try {
+            awaitPrepared();
+        } catch (InterruptedIOException e) {
+            //正在准备的下一段由后台删除
+        }
+        if (buffer != null) {
+            buffer.force();
+            buffer = null;
+        }
+        //没有用到的下一段
+        if (nextFile != null && !nextFile.delete()) RosLog.w("删除%s失败", nextFile);
+        next = null;
+        nextFile = null;
+    }
+
+    /**
+     * 切换到后台准备好的下一段,持有锁;后台还没准备好时等待,准备失败时在当前线程创建
+     */
+    private void rotate() throws IOException {
+        awaitPrepared();
+        if (next == null) {
+            nextFile = newFile();
+            next = map(nextFile);
+        }
+        MappedByteBuffer full = buffer;
+        buffer = next;
+        segments.add(nextFile);
+        next = null;
+        nextFile = null;
+        List<File> expired = expire();
+        execute(() -> {
+            full.force();
+            delete(expired);
+        });
+        prepareNext();
+    }
+
+    private void awaitPrepared() throws InterruptedIOException {
+        while (preparing) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("等待下一段时被中断");
+            }
+        }
+    }
+
+    /**
+     * 在后台创建和映射下一段
+     */
+    private void prepareNext() {
+        preparing = true;
+        File file = newFile();
+        execute(() -> {
+            MappedByteBuffer mapped = null;
+            try {
+                mapped = map(file);
+            } catch (IOException | RuntimeException e) {
+                RosLog.w(e, "%s 创建下一段失败", name);
+            }
+            synchronized (this) {
+                preparing = false;
+                if (closed || mapped == null) {
+                    if (file.exists() && !file.delete()) RosLog.w("删除%s失败", file);
+                } else {
+                    next = mapped;
+                    nextFile = file;
+                }
+                notifyAll();
+            }
+        });
+    }
+
+    /**
+     * 线程池已关闭时在当前线程执行
+     */
+    private void execute(Runnable task) {
+        try {
+            background.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    /**
+     * @return 超过maxSegments需要删除的段
+     */
+    private List<File> expire() {
+        List<File> expired = new ArrayList<>();
+        while (segments.size() > maxSegments) {
+            expired.add(segments.remove(0));
+        }
+        return expired;
+    }
+
+    private static void delete(List<File> files) {
+        for (File file : files) {
+            if (!file.delete()) RosLog.w("删除%s失败", file);
+        }
+    }
+
+    private File newFile() {
+        return new File(dir, String.format(Locale.US, "%s-%06d%s", name, nextIndex++, SUFFIX));
+    }
+
+    /**
+     * 创建并映射一段,写入段头
+     */
+    private MappedByteBuffer map(File file) throws IOException {
+        MappedByteBuffer mapped;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(0);
+            //映射在文件关闭后仍然有效
+            mapped = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        mapped.putInt(MAGIC);
+        mapped.putInt(VERSION);
+        mapped.putLong(System.currentTimeMillis());
+        mapped.putLong(System.nanoTime());
+        mapped.putLong(0);
+        return mapped;
+    }
+
+    /**
+     * @return dir中name的所有分段,按编号排序
+     */
+    static File[] list(File dir, String name) {
+        File[] files = dir.listFiles((d, fileName) -> fileName.startsWith(name + "-") && fileName.endsWith(SUFFIX)
+                && isNumber(fileName.substring(name.length() + 1, fileName.length() - SUFFIX.length())));
+        if (files == null) return new File[0];
+        Arrays.sort(files, (a, b) -> Integer.compare(index(a, name), index(b, name)));
+        return files;
+    }
+
+    private static int index(File file, String name) {
+        String fileName = file.getName();
+        return Integer.parseInt(fileName.substring(name.length() + 1, fileName.length() - SUFFIX.length()));
+    }
+
+    private static boolean isNumber(String s) {
+        if (s.isEmpty() || s.length() > 9) return false;
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) < '0' || s.charAt(i) > '9') return false;
+        }
+        return true;
+    }
+
+    public static class Builder {
+        private final File dir;
+        private String name = "capture";
+        private int segmentSize = 4 * 1024 * 1024;
+        private int maxSegments = 16;
+        private SerialRuntime runtime;
+
+        /**
+         * @param dir 记录所在的目录,不存在时创建
+         */
+        public Builder(File dir) {
+            this.dir = dir;
+        }
+
+        /**
+         * 文件名前缀,默认capture;同一目录中多个串口的记录使用不同的前缀
+         */
+        public Builder name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        /**
+         * 每段的大小,默认4MB,最小64KB;创建时即占用该大小的空间
+         */
+        public Builder segmentSize(int segmentSize) {
+            if (segmentSize < MIN_SEGMENT_SIZE) throw new IllegalArgumentException("segmentSize: " + segmentSize);
+            this.segmentSize = segmentSize;
+            return this;
+        }
+
+        /**
+         * 最多保留的段数,默认16,超过时删除最旧的一段;另有一段提前创建的空段
+         */
+        public Builder maxSegments(int maxSegments) {
+            if (maxSegments < 1) throw new IllegalArgumentException("maxSegments: " + maxSegments);
+            this.maxSegments = maxSegments;
+            return this;
+        }
+
+        /**
+         * 提前创建下一段和删除旧段的线程,使用{@link SerialRuntime#background()};默认{@link SerialRuntime#getDefault()}
+         */
+        public Builder runtime(SerialRuntime runtime) {
+            this.runtime = runtime;
+            return this;
+        }
+
+        /**
+         * 创建第一段文件
+         */
+        public CaptureJournal build() throws IOException {
+            return new CaptureJournal(this);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.reeman.serialport.capture;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 按时间顺序读取{@link CaptureJournal}的所有分段,非线程安全
+ *
+ * <pre>
+ * try (CaptureReader reader = CaptureReader.open(new File(logDir, "capture"), "capture")) {
+ *     while (reader.next()) {
+ *         reader.getDirection(); reader.getData(); reader.getLength();
+ *     }
+ * }
+ * </pre>
+ */
+public final class CaptureReader implements Closeable {
+    private final File[] segments;
+    private int segment = -1;
+    private MappedByteBuffer buffer;
+    private long wallBase;
+    private long nanoBase;
+    private int direction;
+    private long timestamp;
+    private byte[] data = new byte[1024];
+    private int length;
+
+    private CaptureReader(File[] segments) {
+        this.segments = segments;
+    }
+
+    /**
+     * @param dir  {@link CaptureJournal.Builder}的目录
+     * @param name {@link CaptureJournal.Builder#name(String)}
+     * @throws IOException 没有记录
+     */
+    public static CaptureReader open(File dir, String name) throws IOException {
+        File[] segments = CaptureJournal.list(dir, name);
+        if (segments.length == 0) throw new IOException(dir + "中没有" + name + "的记录");
+        return new CaptureReader(segments);
+    }
+
+    /**
+     * 读取下一条,正在记录的分段读到当前位置为止
+     *
+     * @return false: 没有更多记录
+     */
+    public boolean next() throws IOException {
+        while (buffer == null || buffer.remaining() < CaptureJournal.RECORD_HEADER || (length = buffer.getInt(buffer.position())) <= 0) {
+            if (!openNext()) return false;
+        }
+        if (length > buffer.remaining() - CaptureJournal.RECORD_HEADER) {
+            throw new IOException(segments[segment] + "已损坏,位置" + buffer.position());
+        }
+        buffer.getInt();
+        direction = buffer.get();
+        timestamp = buffer.getLong();
+        if (data.length < length) data = new byte[Math.max(length, data.length * 2)];
+        buffer.get(data, 0, length);
+        return true;
+    }
+
+    /**
+     * @return {@link CaptureJournal#INBOUND}/{@link CaptureJournal#OUTBOUND}
+     */
+    public int getDirection() {
+        return direction;
+    }
+
+    /**
+     * @return 记录时的{@link System#nanoTime()},同一次运行的记录之间可以比较
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return 记录时的System.currentTimeMillis(),由分段创建时的时间换算
+     */
+    public long getWallTime() {
+        return wallBase + (timestamp - nanoBase) / 1_000_000;
+    }
+
+    /**
+     * @return 复用的缓冲区,有效长度为{@link #getLength()},下次{@link #next()}时被覆盖
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    @Override
+    public void close() {
+        buffer = null;
+        segment = segments.length;
+    }
+
+    private boolean openNext() throws IOException {
+        buffer = null;
+        if (++segment >= segments.length) return false;
+        //FileChannel.open需要API 26,与CaptureJournal一样使用RandomAccessFile,映射在文件关闭后仍然有效
+        try (RandomAccessFile raf = new RandomAccessFile(segments[segment], "r")) {
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+        }
+        if (segment == segments.length - 1 && (buffer.remaining() < CaptureJournal.SEGMENT_HEADER || buffer.getInt(0) == 0)) {
+            //正在记录时后台提前创建的最后一段可能还没有写入段头
+            buffer = null;
+            return false;
+        }
+        if (buffer.remaining() < CaptureJournal.SEGMENT_HEADER || buffer.getInt() != CaptureJournal.MAGIC) {
+            throw new IOException(segments[segment] + "不是串口记录");
+        }
+        int version = buffer.getInt();
+        if (version != CaptureJournal.VERSION) throw new IOException(segments[segment] + "的版本" + version + "不支持");
+        wallBase = buffer.getLong();
+        nanoBase = buffer.getLong();
+        buffer.position(CaptureJournal.SEGMENT_HEADER);
+        return true;
+    }
+}
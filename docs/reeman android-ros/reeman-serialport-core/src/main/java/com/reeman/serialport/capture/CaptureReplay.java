@@ -0,0 +1,178 @@
+package com.reeman.serialport.capture;
+
+import com.reeman.serialport.controller.SerialPortParser;
+import com.reeman.serialport.controller.SerialRuntime;
+import com.reeman.serialport.platform.RosLog;
+import com.reeman.serialport.transport.Transport;
+import com.reeman.serialport.transport.TransportFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 回放{@link CaptureJournal}中读到的数据,按记录时的间隔或尽快回放,每条记录回调一次,分包与记录时相同
+ * <p>
+ * 间隔为负或超过{@link #MAX_GAP}时视为重新开始记录,不等待
+ *
+ * <pre>
+ * //通过完整的解析和分发回放,串口地址为记录的目录和前缀
+ * new RosCallbackParser.Builder().port(logDir + "/capture/capture").transport(CaptureReplay.transport(1)).callback(callback)...
+ * //直接送入解码器
+ * CaptureReplay.replay(CaptureReader.open(dir, "capture"), CaptureReplay.MAX_SPEED, (bytes, len) -> decoder.feed(bytes, 0, len));
+ * </pre>
+ */
+public final class CaptureReplay {
+    /**
+     * 不等待,尽快回放
+     */
+    public static final double MAX_SPEED = 0;
+    /**
+     * 两条记录之间的最长间隔,纳秒
+     */
+    public static final long MAX_GAP = TimeUnit.MINUTES.toNanos(1);
+
+    private CaptureReplay() {
+    }
+
+    /**
+     * 在当前线程中回放所有读到的数据,写出的数据跳过
+     *
+     * @param speed 1为原速,2为两倍速,{@link #MAX_SPEED}不等待
+     * @return 回放的字节数
+     * @throws InterruptedException 线程被中断,回放停止
+     */
+    public static long replay(CaptureReader reader, double speed, SerialPortParser.OnDataResultListener listener)
+            throws IOException, InterruptedException {
+        if (speed < 0) throw new IllegalArgumentException("speed: " + speed);
+        long bytes = 0;
+        long previous = 0;
+        //按回放时间计算下一条的时刻,等待的误差不会累积
+        long due = System.nanoTime();
+        boolean first = true;
+        while (reader.next()) {
+            if (Thread.interrupted()) throw new InterruptedException();
+            if (reader.getDirection() != CaptureJournal.INBOUND) continue;
+            long timestamp = reader.getTimestamp();
+            if (speed != MAX_SPEED) {
+                long gap = timestamp - previous;
+                if (!first && gap > 0 && gap <= MAX_GAP) {
+                    due += (long) (gap / speed);
+                    long wait;
+                    while ((wait = due - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(wait);
+                        if (Thread.interrupted()) throw new InterruptedException();
+                    }
+                } else {
+                    due = System.nanoTime();
+                }
+            }
+            previous = timestamp;
+            first = false;
+            listener.onDataResult(reader.getData(), reader.getLength());
+            bytes += reader.getLength();
+        }
+        return bytes;
+    }
+
+    /**
+     * 打开串口时回放记录,串口地址为记录的目录和前缀,如/sdcard/ros/capture/capture,波特率忽略;
+     * 开始读取后在读写线程中回放一遍,写入的数据丢弃
+     *
+     * @param speed 1为原速,{@link #MAX_SPEED}不等待
+     */
+    public static TransportFactory transport(double speed) {
+        if (speed < 0) throw new IllegalArgumentException("speed: " + speed);
+        return (runtime, port, baudRate) -> {
+            File file = new File(port);
+            File dir = file.getAbsoluteFile().getParentFile();
+            return new ReplayTransport(runtime, CaptureReader.open(dir, file.getName()), file.getName(), speed);
+        };
+    }
+
+    private static final class ReplayTransport implements Transport {
+        private static final long STOP_TIMEOUT = 500;
+
+        private final SerialRuntime runtime;
+        private final CaptureReader reader;
+        private final String name;
+        private final double speed;
+        private final OutputStream outputStream = new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        };
+        private Thread thread;
+        private volatile boolean closed;
+
+        ReplayTransport(SerialRuntime runtime, CaptureReader reader, String name, double speed) {
+            this.runtime = runtime;
+            this.reader = reader;
+            this.name = name;
+            this.speed = speed;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public synchronized void start(SerialPortParser.ReadMode mode, SerialPortParser.OnDataResultListener listener) throws IOException {
+            if (closed) throw new IOException(name + " 已关闭");
+            if (thread != null) throw new IllegalStateException(name + " 已开始读取");
+            thread = runtime.newThread(SerialRuntime.ROLE_IO, () -> {
+                try {
+                    long bytes = replay(reader, speed, (data, len) -> {
+                        if (closed) return;
+                        try {
+                            listener.onDataResult(data, len);
+                        } catch (Exception e) {
+                            RosLog.w(e, "%s 数据处理失败", name);
+                        }
+                    });
+                    RosLog.i("%s 回放结束,%s字节", name, bytes);
+                } catch (InterruptedException e) {
+                    RosLog.i("%s 回放停止", name);
+                } catch (Exception e) {
+                    RosLog.w(e, "%s 回放失败", name);
+                } finally {
+                    reader.close();
+                }
+            }, "replay-" + name);
+            thread.start();
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return outputStream;
+        }
+
+        @Override
+        public void close() {
+            Thread replaying;
+            synchronized (this) {
+                if (closed) return;
+                closed = true;
+                replaying = thread;
+            }
+            if (replaying == null) {
+                reader.close();
+                return;
+            }
+            replaying.interrupt();
+            if (replaying == Thread.currentThread()) return;
+            try {
+                replaying.join(STOP_TIMEOUT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
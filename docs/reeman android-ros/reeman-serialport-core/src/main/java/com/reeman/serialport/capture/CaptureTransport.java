@@ -0,0 +1,72 @@
+package com.reeman.serialport.capture;
+
+import com.reeman.serialport.controller.SerialPortParser;
+import com.reeman.serialport.transport.Transport;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 在读写路径上记录数据的串口,读到的数据在回调前记录,写出的数据在写入成功后记录
+ */
+final class CaptureTransport implements Transport {
+    private final Transport transport;
+    private final CaptureJournal journal;
+    private OutputStream outputStream;
+
+    CaptureTransport(Transport transport, CaptureJournal journal) {
+        this.transport = transport;
+        this.journal = journal;
+    }
+
+    @Override
+    public String getName() {
+        return transport.getName();
+    }
+
+    @Override
+    public void start(SerialPortParser.ReadMode mode, SerialPortParser.OnDataResultListener listener) throws IOException {
+        transport.start(mode, (bytes, len) -> {
+            journal.append(CaptureJournal.INBOUND, bytes, 0, len);
+            listener.onDataResult(bytes, len);
+        });
+    }
+
+    @Override
+    public synchronized OutputStream getOutputStream() {
+        if (outputStream == null) {
+            OutputStream out = transport.getOutputStream();
+            outputStream = new OutputStream() {
+                private final byte[] single = new byte[1];
+
+                @Override
+                public void write(int b) throws IOException {
+                    single[0] = (byte) b;
+                    write(single, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                    journal.append(CaptureJournal.OUTBOUND, b, off, len);
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    out.flush();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    out.close();
+                }
+            };
+        }
+        return outputStream;
+    }
+
+    @Override
+    public void close() {
+        transport.close();
+    }
+}
@@ -0,0 +1,265 @@
+package com.reeman.serialport.controller;
+
+import com.reeman.serialport.platform.RosLog;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 指令发送队列
+ * <p>
+ * 按优先级发送,优先级见{@link RosCallbackParser#PRIORITY_SAFETY}等;同一种指令在同一优先级中未发送时只保留最新一条,
+ * 如move[...]、max_vel[...]、同一个主机的robot_cost[...],较低优先级中未发送的同一种指令被移除,较高优先级中的保留;
+ * move[0,0]与其他move[...]不是同一种指令,停止不会被之后的运动指令替换;停止类指令会丢弃所有未发送的导航控制指令,
+ * 避免停止后又被之前排队的指令重新启动。
+ * <p>
+ * 每条指令发送后按波特率等待其在串口上发送完成再发送下一条,待发送的指令留在队列中才能按优先级排序和合并。
+ * 发送任务在{@link SerialRuntime}的读写线程池中执行,需要等待时由定时器重新提交,不占用线程,多个串口共用线程
+ */
+class CommandScheduler implements Runnable {
+    /**
+     * 每个字节1个起始位、8个数据位、1个停止位
+     */
+    private static final int BITS_PER_BYTE = 10;
+    /**
+     * 等待时间短于该值时在发送任务中等待,避免经过定时器再提交的延迟
+     */
+    private static final long PARK_THRESHOLD = TimeUnit.MILLISECONDS.toNanos(2);
+
+    private final RosCallbackParser parser;
+    private final long nanosPerByte;
+    private final long minIntervalNanos;
+    private final ArrayDeque<Command>[] queues;
+    private final Executor executor;
+    private final ScheduledExecutorService timers;
+    private final Runnable resubmit = this::submit;
+    private boolean started;
+    private boolean stopped;
+    private long coalesced;
+    /**
+     * 是否已有发送任务在执行或等待
+     */
+    private boolean scheduled;
+    /**
+     * 下一条指令最早的发送时间
+     */
+    private long next;
+
+    /**
+     * @param baudRate    波特率,用于计算发送耗时
+     * @param minInterval 两条指令之间的最小间隔,毫秒
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    CommandScheduler(SerialRuntime runtime, RosCallbackParser parser, int baudRate, long minInterval) {
+        this.parser = parser;
+        this.nanosPerByte = TimeUnit.SECONDS.toNanos(BITS_PER_BYTE) / Math.max(baudRate, 1);
+        this.minIntervalNanos = TimeUnit.MILLISECONDS.toNanos(minInterval);
+        this.queues = new ArrayDeque[RosCallbackParser.PRIORITY_TELEMETRY + 1];
+        for (int i = 0; i < queues.length; i++) {
+            queues[i] = new ArrayDeque<>();
+        }
+        this.executor = runtime.io();
+        this.timers = runtime.timers();
+    }
+
+    /**
+     * 开始发送,之前放入的指令在此之后发送;停止后可再次开始
+     */
+    synchronized void start() {
+        started = true;
+        stopped = false;
+        trigger();
+    }
+
+    /**
+     * 丢弃未发送的指令,{@link #start()}之前放入的指令也被丢弃
+     */
+    synchronized void stop() {
+        stopped = true;
+        for (ArrayDeque<Command> queue : queues) {
+            queue.clear();
+        }
+    }
+
+    synchronized long getCoalesced() {
+        return coalesced;
+    }
+
+    /**
+     * @param frameLength 编码后的帧长度,用于计算发送耗时
+     */
+    synchronized void offer(String command, int priority, int frameLength) {
+        if (stopped) return;
+        if (priority < RosCallbackParser.PRIORITY_SAFETY || priority > RosCallbackParser.PRIORITY_TELEMETRY) {
+            throw new IllegalArgumentException("priority: " + priority);
+        }
+        String key = keyOf(command);
+        if (key != null && replace(key, command, priority, frameLength)) {
+            coalesced++;
+            return;
+        }
+        if (priority == RosCallbackParser.PRIORITY_SAFETY) {
+            coalesced += queues[RosCallbackParser.PRIORITY_NAVIGATION].size();
+            queues[RosCallbackParser.PRIORITY_NAVIGATION].clear();
+        }
+        queues[priority].add(new Command(command, key, frameLength));
+        trigger();
+    }
+
+    /**
+     * 没有发送任务时提交一个
+     */
+    private void trigger() {
+        if (!started || stopped || scheduled) return;
+        scheduled = true;
+        long delay = next - System.nanoTime();
+        if (delay > 0) {
+            later(delay);
+        } else {
+            submit();
+        }
+    }
+
+    private void later(long delay) {
+        try {
+            timers.schedule(resubmit, delay, TimeUnit.NANOSECONDS);
+        } catch (Exception e) {
+            scheduled = false;
+            RosLog.w(e, "发送定时器拒绝执行");
+        }
+    }
+
+    /**
+     * 替换同一优先级中未发送的同一种指令;较低优先级中的移除,由调用方按新的优先级排队;较高优先级中的保留,先于新指令发送
+     *
+     * @return true: 已替换
+     */
+    private boolean replace(String key, String command, int priority, int frameLength) {
+        for (int i = priority; i < queues.length; i++) {
+            Iterator<Command> iterator = queues[i].iterator();
+            while (iterator.hasNext()) {
+                Command pending = iterator.next();
+                if (!key.equals(pending.key)) continue;
+                if (i > priority) {
+                    iterator.remove();
+                    return false;
+                }
+                pending.command = command;
+                pending.frameLength = frameLength;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void submit() {
+        try {
+            executor.execute(this);
+        } catch (Exception e) {
+            synchronized (this) {
+                scheduled = false;
+            }
+            RosLog.w(e, "发送线程池拒绝执行");
+        }
+    }
+
+    /**
+     * @return 可以发送的指令;队列为空或需要等待时返回null,需要等待时已交给定时器
+     */
+    private synchronized Command take() {
+        if (stopped) {
+            scheduled = false;
+            return null;
+        }
+        long delay = next - System.nanoTime();
+        if (delay >= PARK_THRESHOLD) {
+            later(delay);
+            return null;
+        }
+        for (ArrayDeque<Command> queue : queues) {
+            Command command = queue.poll();
+            if (command != null) return command;
+        }
+        scheduled = false;
+        return null;
+    }
+
+    private synchronized long nextNanos() {
+        return next;
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            Command command = take();
+            if (command == null) return;
+            long delay = nextNanos() - System.nanoTime();
+            if (delay > 0) LockSupport.parkNanos(this, delay);
+            try {
+                parser.sendCommand(command.command);
+            } catch (Exception e) {
+                RosLog.w(e, "指令发送失败 %s", command.command);
+                continue;
+            }
+            synchronized (this) {
+                next = System.nanoTime() + Math.max(command.frameLength * nanosPerByte, minIntervalNanos);
+            }
+        }
+    }
+
+    /**
+     * @return 默认优先级
+     */
+    static int priorityOf(String command) {
+        if (command.equals("nav_cancel") || command.equals("nav_pause") || command.equals("move[0,0]")
+                || command.equals("dock:stop") || command.equals("power_off")) {
+            return RosCallbackParser.PRIORITY_SAFETY;
+        }
+        if (command.startsWith("move[") || command.startsWith("nav_point[") || command.startsWith("goal:nav[")
+                || command.equals("nav_resume") || command.startsWith("nav:reloc") || command.equals("dock:start")
+                || command.startsWith("robot_cost[")) {
+            return RosCallbackParser.PRIORITY_NAVIGATION;
+        }
+        if ((command.startsWith("get_") && !command.startsWith("get_current_info[")) || command.startsWith("nav:get_flag_point[") || command.equals("nav:get_pose")
+                || command.equals("nav:current_map") || command.equals("keep_connect") || command.equals("hostname:get")
+                || command.equals("sys:version") || command.equals("ip:request") || command.equals("cpu_performance")) {
+            return RosCallbackParser.PRIORITY_TELEMETRY;
+        }
+        return RosCallbackParser.PRIORITY_CONFIG;
+    }
+
+    /**
+     * @return 同一种指令的标识,不可合并返回null
+     */
+    static String keyOf(String command) {
+        if (command.equals("move[0,0]")) return "move:stop";
+        if (command.startsWith("move[")) return "move";
+        if (command.startsWith("max_vel[")) return "max_vel";
+        if (command.startsWith("nav:get_pose[")) return "nav:get_pose";
+        if (command.startsWith("switch_lidar[")) return "switch_lidar";
+        if (command.startsWith("get_current_info[")) return "get_current_info";
+        if (command.startsWith("robot_cost[")) {
+            //robot_cost[x,y,z,speed,hostname,cover]
+            int end = command.endsWith("]") ? command.length() - 1 : command.length();
+            String[] fields = command.substring("robot_cost[".length(), end).split(",");
+            return fields.length > 4 ? "robot_cost:" + fields[4] : "robot_cost";
+        }
+        return null;
+    }
+
+    private static class Command {
+        String command;
+        int frameLength;
+        final String key;
+
+        Command(String command, String key, int frameLength) {
+            this.command = command;
+            this.key = key;
+            this.frameLength = frameLength;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.reeman.serialport.controller;
+
+import com.reeman.serialport.report.ReportParser;
+import com.reeman.serialport.util.Parser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ROS当前的配置值,用于跳过不会改变配置的指令
+ * <p>
+ * max_vel、set_stop_time、set_globalcost_p发送后ROS回复get_max_vel:x、get_stop_time:x、get_global_p:x,
+ * 以回复为准,已发送未回复的值在{@link #PENDING_TIMEOUT}内视为当前值;
+ * set_tolerance、switch_lidar没有回复,以最后发送的值为准。
+ * 重新打开串口、发送sys:reboot/power_reboot后所有值变为未知,下一次设置一定发送
+ */
+class ConfigState {
+    /**
+     * 已发送未回复的值的有效时间,超时未回复时认为指令丢失
+     */
+    static final long PENDING_TIMEOUT = TimeUnit.SECONDS.toNanos(2);
+    private static final double EPSILON = 1e-6;
+
+    private static final String[] COMMANDS = {"max_vel[", "set_stop_time[", "set_globalcost_p[", "set_tolerance[", "switch_lidar["};
+    private static final byte[][] REPLIES = {
+            "get_max_vel:".getBytes(StandardCharsets.UTF_8),
+            "get_stop_time:".getBytes(StandardCharsets.UTF_8),
+            "get_global_p:".getBytes(StandardCharsets.UTF_8),
+            null,
+            null
+    };
+
+    private final double[] confirmed = new double[COMMANDS.length];
+    private final double[] pending = new double[COMMANDS.length];
+    private final long[] pendingTime = new long[COMMANDS.length];
+    private long suppressed;
+
+    ConfigState() {
+        invalidate();
+    }
+
+    /**
+     * 所有值变为未知
+     */
+    synchronized void invalidate() {
+        for (int i = 0; i < COMMANDS.length; i++) {
+            confirmed[i] = Double.NaN;
+            pending[i] = Double.NaN;
+        }
+    }
+
+    /**
+     * @return true: 配置指令的值与当前值相同,不需要发送
+     */
+    synchronized boolean isRedundant(String command) {
+        int index = indexOf(command);
+        if (index < 0) return false;
+        double value = valueOf(command, COMMANDS[index].length());
+        if (Double.isNaN(value)) return false;
+        double current = confirmed[index];
+        if (!Double.isNaN(pending[index]) && System.nanoTime() - pendingTime[index] < PENDING_TIMEOUT) {
+            current = pending[index];
+        }
+        if (Double.isNaN(current) || Math.abs(current - value) > EPSILON) return false;
+        suppressed++;
+        return true;
+    }
+
+    synchronized long getSuppressed() {
+        return suppressed;
+    }
+
+    /**
+     * 指令发送后调用,可在任意线程调用
+     */
+    void onSent(String command) {
+        if (command.equals("sys:reboot") || command.equals("power_reboot")) {
+            invalidate();
+            return;
+        }
+        int index = indexOf(command);
+        if (index < 0) return;
+        double value = valueOf(command, COMMANDS[index].length());
+        synchronized (this) {
+            if (REPLIES[index] == null) {
+                confirmed[index] = value;
+            } else {
+                pending[index] = value;
+                pendingTime[index] = System.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * 只在分发线程中调用
+     */
+    void onFrame(byte[] data, int offset, int len) {
+        for (int i = 0; i < REPLIES.length; i++) {
+            if (REPLIES[i] == null || !ReportParser.startsWith(data, offset, len, REPLIES[i])) continue;
+            String reply = Parser.bytesToString(data, offset, len);
+            double value;
+            try {
+                value = Double.parseDouble(reply.substring(REPLIES[i].length).trim());
+            } catch (NumberFormatException e) {
+                return;
+            }
+            synchronized (this) {
+                confirmed[i] = value;
+                if (Math.abs(pending[i] - value) <= EPSILON) pending[i] = Double.NaN;
+            }
+            return;
+        }
+    }
+
+    private static int indexOf(String command) {
+        for (int i = 0; i < COMMANDS.length; i++) {
+            if (command.startsWith(COMMANDS[i])) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @return 方括号中的值,on/off为1/0,无法解析时为NaN
+     */
+    private static double valueOf(String command, int start) {
+        int end = command.endsWith("]") ? command.length() - 1 : command.length();
+        String value = command.substring(start, end).trim();
+        if (value.equals("on")) return 1;
+        if (value.equals("off")) return 0;
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+}
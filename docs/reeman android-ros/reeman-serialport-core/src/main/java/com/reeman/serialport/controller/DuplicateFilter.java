@@ -0,0 +1,104 @@
+package com.reeman.serialport.controller;
+
+import com.reeman.serialport.platform.Platform;
+import com.reeman.serialport.report.ReportParser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 跳过与上一条内容相同的周期上报,只作用于监听器和订阅的回调
+ * <p>
+ * 每个前缀保存最后一条回调的数据位,新数据长度相同时逐字节比较;
+ * 状态快照、配置和等待回复的查询仍会收到被跳过的数据
+ * <p>
+ * 只在串口读线程中调用{@link #onReceive(byte[], int, int)},只在分发线程中调用{@link #isDuplicate(byte[], int, int)}
+ */
+class DuplicateFilter {
+    /**
+     * 长度位只有一个字节
+     */
+    private static final int MAX_PAYLOAD = 255;
+
+    private final byte[][] prefixes;
+    private final byte[][] last;
+    private final int[] lastLength;
+    private final AtomicLongArray lastSeen;
+    private volatile long skipped;
+
+    DuplicateFilter(List<String> prefixes) {
+        int n = prefixes.size();
+        this.prefixes = new byte[n][];
+        this.last = new byte[n][MAX_PAYLOAD];
+        this.lastLength = new int[n];
+        this.lastSeen = new AtomicLongArray(n);
+        for (int i = 0; i < n; i++) {
+            this.prefixes[i] = prefixes.get(i).getBytes(StandardCharsets.UTF_8);
+            this.lastLength[i] = -1;
+        }
+    }
+
+    /**
+     * 记录收到的时间,包括之后被跳过的数据
+     */
+    void onReceive(byte[] data, int offset, int len) {
+        int family = familyOf(data, offset, len);
+        if (family >= 0) lastSeen.lazySet(family, Platform.get().elapsedRealtime());
+    }
+
+    /**
+     * @return true: 与同一前缀的上一条回调的数据相同,不回调
+     */
+    boolean isDuplicate(byte[] data, int offset, int len) {
+        int family = familyOf(data, offset, len);
+        if (family < 0) return false;
+        if (len == lastLength[family] && equals(last[family], data, offset, len)) {
+            skipped++;
+            return true;
+        }
+        System.arraycopy(data, offset, last[family], 0, len);
+        lastLength[family] = len;
+        return false;
+    }
+
+    /**
+     * 重新连接后第一条数据不再跳过
+     */
+    void reset() {
+        for (int i = 0; i < lastLength.length; i++) {
+            lastLength[i] = -1;
+        }
+    }
+
+    long getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * @return 最后一次收到以prefix开头的数据的时间{@link Platform#elapsedRealtime()},
+     * 包括被跳过的数据;未配置该前缀或未收到过返回0
+     */
+    long getLastSeen(String prefix) {
+        byte[] bytes = prefix.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < prefixes.length; i++) {
+            if (Arrays.equals(prefixes[i], bytes)) return lastSeen.get(i);
+        }
+        return 0;
+    }
+
+    private int familyOf(byte[] data, int offset, int len) {
+        for (int i = 0; i < prefixes.length; i++) {
+            if (ReportParser.startsWith(data, offset, len, prefixes[i])) return i;
+        }
+        return -1;
+    }
+
+    private static boolean equals(byte[] last, byte[] data, int offset, int len) {
+        for (int i = 0; i < len; i++) {
+            if (last[i] != data[offset + i]) return false;
+        }
+        return true;
+    }
+}
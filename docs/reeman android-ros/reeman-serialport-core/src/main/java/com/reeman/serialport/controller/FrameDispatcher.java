@@ -0,0 +1,81 @@
+package com.reeman.serialport.controller;
+
+import com.reeman.serialport.platform.RosLog;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 上报分发
+ * <p>
+ * 串口读线程放入数据后,在{@link SerialRuntime}的分发线程池中提交一个分发任务,任务按顺序取完所有待分发的数据后结束;
+ * 同一时刻最多只有一个任务,连续到达的数据不会重复提交,多个串口共用分发线程;
+ * 待分发的数据缓存在{@link ReceiveBuffer}中,回调阻塞时按类型合并或丢弃
+ */
+class FrameDispatcher implements Runnable {
+    private static final int BACKLOG_WARNING = 10;
+
+    private final ReceiveBuffer buffer;
+    private final ReceiveBuffer.Batch batch = new ReceiveBuffer.Batch();
+    private final ReportDispatcher dispatcher;
+    private final Executor executor;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile boolean stopped = true;
+
+    FrameDispatcher(SerialRuntime runtime, ReceiveBuffer buffer, ReportDispatcher dispatcher) {
+        this.buffer = buffer;
+        this.dispatcher = dispatcher;
+        this.executor = runtime.dispatch();
+    }
+
+    void start() {
+        stopped = false;
+    }
+
+    void stop() {
+        stopped = true;
+        buffer.clear();
+    }
+
+    /**
+     * 由串口读线程调用
+     */
+    void offer(byte[] frame) {
+        if (stopped) return;
+        buffer.offer(frame);
+        schedule();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this);
+            } catch (Exception e) {
+                scheduled.set(false);
+                RosLog.w(e, "分发线程池拒绝执行");
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        do {
+            while (!stopped && buffer.drainTo(batch) != 0) {
+                if (batch.size > BACKLOG_WARNING) {
+                    RosLog.e("队列数据量过大 : %s", batch.size);
+                }
+                for (int i = 0; i < batch.size && !stopped; i++) {
+                    try {
+                        dispatcher.dispatch(batch.frames[i], 0, batch.frames[i].length);
+                    } catch (Exception e) {
+                        RosLog.w(e, "回调出错");
+                    }
+                }
+                batch.clear();
+            }
+            scheduled.set(false);
+            //释放后到达的数据由本任务继续处理,或已由读线程重新提交
+        } while (!stopped && buffer.size() != 0 && scheduled.compareAndSet(false, true));
+        if (stopped) buffer.clear();
+    }
+}
@@ -0,0 +1,101 @@
+package com.reeman.serialport.controller;
+
+import com.reeman.serialport.platform.RosLog;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 在指定线程池中回调的监听器
+ * <p>
+ * 每个监听器有自己的{@link ReceiveBuffer},回调阻塞时只影响自己的缓存,按类型合并或丢弃;
+ * 同一时刻最多只有一个任务在线程池中执行,任务按到达顺序取完所有数据后结束,保证回调顺序
+ */
+class ListenerMailbox implements Runnable {
+    private static final int BACKLOG_WARNING = 10;
+
+    final RosCallbackParser.RosCallback listener;
+    private final Executor executor;
+    private final ReceiveBuffer buffer;
+    private final ReceiveBuffer.Batch batch = new ReceiveBuffer.Batch();
+    private final ReportDispatcher dispatcher;
+    private final DuplicateFilter duplicates;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile boolean stopped;
+
+    /**
+     * @param duplicates 本监听器的重复过滤,为null时不跳过
+     */
+    ListenerMailbox(RosCallbackParser.RosCallback listener, Executor executor, List<ReceiveBuffer.Family> families, ReceiveBuffer.Family fallback,
+                    DuplicateFilter duplicates) {
+        this.listener = listener;
+        this.executor = executor;
+        this.buffer = new ReceiveBuffer(families, fallback);
+        this.duplicates = duplicates;
+        this.dispatcher = new ReportDispatcher(null, null, null, null, duplicates);
+        this.dispatcher.setListeners(new RosCallbackParser.RosCallback[]{listener});
+    }
+
+    /**
+     * 由串口读线程调用
+     */
+    void offer(byte[] frame) {
+        if (stopped) return;
+        buffer.offer(frame);
+        schedule();
+    }
+
+    /**
+     * 重新打开串口后继续接收,重新连接后第一条数据不再跳过
+     */
+    void start() {
+        if (duplicates != null) duplicates.reset();
+        stopped = false;
+    }
+
+    void stop() {
+        stopped = true;
+        buffer.clear();
+    }
+
+    long getDropped() {
+        return buffer.getDropped();
+    }
+
+    long getCoalesced() {
+        return buffer.getCoalesced();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this);
+            } catch (Exception e) {
+                scheduled.set(false);
+                RosLog.w(e, "回调线程池拒绝执行");
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        do {
+            while (!stopped && buffer.drainTo(batch) != 0) {
+                if (batch.size > BACKLOG_WARNING) {
+                    RosLog.e("%s 队列数据量过大 : %s", listener, batch.size);
+                }
+                for (int i = 0; i < batch.size && !stopped; i++) {
+                    try {
+                        dispatcher.dispatch(batch.frames[i], 0, batch.frames[i].length);
+                    } catch (Exception e) {
+                        RosLog.w(e, "回调出错");
+                    }
+                }
+                batch.clear();
+            }
+            scheduled.set(false);
+            //释放后到达的数据由本任务继续处理,或已由读线程重新提交
+        } while (!stopped && buffer.size() != 0 && scheduled.compareAndSet(false, true));
+    }
+}
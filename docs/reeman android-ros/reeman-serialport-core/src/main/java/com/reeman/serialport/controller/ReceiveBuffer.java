@@ -0,0 +1,255 @@
+package com.reeman.serialport.controller;
+
+import com.reeman.serialport.platform.RosLog;
+import com.reeman.serialport.report.ReportParser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 按消息类型分别缓存待分发的数据
+ * <p>
+ * 每种类型一个通道,通道的策略见{@link RosCallbackParser#POLICY_RELIABLE}/{@link RosCallbackParser#POLICY_LATEST}/
+ * {@link RosCallbackParser#POLICY_DROP_OLDEST};数据到达时分配递增序号,取出时按序号合并各通道,保持到达顺序
+ * <p>
+ * 所有通道都有上限,{@link RosCallbackParser#POLICY_RELIABLE}最多扩容到{@link #RELIABLE_LIMIT}条,之后丢弃最旧的数据并记录警告
+ * <p>
+ * 由串口读线程写入,分发线程取出
+ */
+class ReceiveBuffer {
+    /**
+     * {@link RosCallbackParser#POLICY_RELIABLE}通道的最大缓存数量
+     */
+    static final int RELIABLE_LIMIT = 1024;
+    /**
+     * 未匹配任何前缀的消息的默认缓存数量,超过时丢弃最旧的数据
+     */
+    static final int DEFAULT_CAPACITY = 64;
+
+    private final byte[][] prefixes;
+    private final Lane[] lanes;
+    private long sequence;
+    private int size;
+    private long dropped;
+    private long coalesced;
+
+    ReceiveBuffer(List<Family> families, Family fallback) {
+        prefixes = new byte[families.size()][];
+        lanes = new Lane[families.size() + 1];
+        for (int i = 0; i < families.size(); i++) {
+            prefixes[i] = families.get(i).prefix;
+            lanes[i] = new Lane(families.get(i));
+        }
+        lanes[families.size()] = new Lane(fallback);
+    }
+
+    /**
+     * 未匹配任何前缀的消息默认保留最新的{@link #DEFAULT_CAPACITY}条
+     */
+    static Family defaultFallback() {
+        return new Family("", RosCallbackParser.POLICY_DROP_OLDEST, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * 默认策略: 坐标、激光、电池、底盘状态、速度只保留最新一条,只有nav_result不丢弃
+     */
+    static List<Family> defaultFamilies() {
+        List<Family> families = new ArrayList<>();
+        families.add(new Family("pose", RosCallbackParser.POLICY_LATEST, 1));
+        families.add(new Family("nav:pose", RosCallbackParser.POLICY_LATEST, 1));
+        families.add(new Family("laser[", RosCallbackParser.POLICY_LATEST, 1));
+        families.add(new Family("core_data{", RosCallbackParser.POLICY_LATEST, 1));
+        families.add(new Family("current_info{", RosCallbackParser.POLICY_LATEST, 1));
+        families.add(new Family("battery_info{", RosCallbackParser.POLICY_LATEST, 1));
+        families.add(new Family("get_max_vel", RosCallbackParser.POLICY_LATEST, 1));
+        families.add(new Family("nav_result{", RosCallbackParser.POLICY_RELIABLE, 16));
+        return families;
+    }
+
+    void offer(byte[] frame) {
+        int family = familyOf(frame);
+        Lane lane = lanes[family];
+        boolean overflow = false;
+        synchronized (this) {
+            int before = lane.size;
+            int result = lane.add(frame, sequence++);
+            if (result == Lane.COALESCED) {
+                coalesced++;
+            } else if (result == Lane.DROPPED) {
+                dropped++;
+                if (lane.policy == RosCallbackParser.POLICY_RELIABLE && !lane.overflow) {
+                    lane.overflow = true;
+                    overflow = true;
+                }
+            }
+            size += lane.size - before;
+        }
+        if (overflow) {
+            RosLog.w("%s 缓存已满%s条,开始丢弃最旧的数据", lane.name, lane.capacity);
+        }
+    }
+
+    /**
+     * 按到达顺序取出所有数据
+     *
+     * @return 取出的数量
+     */
+    synchronized int drainTo(Batch batch) {
+        int count = size;
+        batch.ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            Lane first = null;
+            for (Lane lane : lanes) {
+                if (lane.size != 0 && (first == null || lane.headSequence() < first.headSequence())) {
+                    first = lane;
+                }
+            }
+            batch.frames[i] = first.poll();
+        }
+        size = 0;
+        batch.size = count;
+        return count;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized long getDropped() {
+        return dropped;
+    }
+
+    synchronized long getCoalesced() {
+        return coalesced;
+    }
+
+    synchronized void clear() {
+        for (Lane lane : lanes) {
+            while (lane.size != 0) lane.poll();
+        }
+        size = 0;
+    }
+
+    private int familyOf(byte[] frame) {
+        for (int i = 0; i < prefixes.length; i++) {
+            if (ReportParser.startsWith(frame, 0, frame.length, prefixes[i])) return i;
+        }
+        return prefixes.length;
+    }
+
+    static class Family {
+        final byte[] prefix;
+        final int policy;
+        final int capacity;
+
+        Family(String prefix, int policy, int capacity) {
+            this.prefix = prefix.getBytes(StandardCharsets.UTF_8);
+            this.policy = policy;
+            this.capacity = policy == RosCallbackParser.POLICY_LATEST ? 1 : Math.max(1, capacity);
+        }
+
+        /**
+         * @return 通道的最大缓存数量
+         */
+        int limit() {
+            return policy == RosCallbackParser.POLICY_RELIABLE ? Math.max(capacity, RELIABLE_LIMIT) : capacity;
+        }
+    }
+
+    /**
+     * 分发线程复用的批次
+     */
+    static class Batch {
+        byte[][] frames = new byte[16][];
+        int size;
+
+        void ensureCapacity(int capacity) {
+            if (frames.length < capacity) {
+                frames = new byte[Math.max(capacity, frames.length * 2)][];
+            }
+        }
+
+        void clear() {
+            Arrays.fill(frames, 0, size, null);
+            size = 0;
+        }
+    }
+
+    private static class Lane {
+        static final int ADDED = 0;
+        static final int COALESCED = 1;
+        static final int DROPPED = 2;
+
+        final String name;
+        final int policy;
+        final int capacity;
+        byte[][] frames;
+        long[] sequences;
+        int head;
+        int size;
+        /**
+         * 已开始丢弃,取空后重置,每次溢出只警告一次
+         */
+        boolean overflow;
+
+        Lane(Family family) {
+            name = family.prefix.length == 0 ? "默认" : new String(family.prefix, StandardCharsets.UTF_8);
+            policy = family.policy;
+            capacity = family.limit();
+            frames = new byte[family.capacity][];
+            sequences = new long[family.capacity];
+        }
+
+        int add(byte[] frame, long sequence) {
+            int result = ADDED;
+            if (size == capacity) {
+                if (policy == RosCallbackParser.POLICY_LATEST) {
+                    //替换未分发的旧数据,按最新数据的到达顺序分发
+                    frames[head] = frame;
+                    sequences[head] = sequence;
+                    return COALESCED;
+                } else {
+                    poll();
+                    result = DROPPED;
+                }
+            }
+            if (size == frames.length) grow();
+            int index = (head + size) % frames.length;
+            frames[index] = frame;
+            sequences[index] = sequence;
+            size++;
+            return result;
+        }
+
+        long headSequence() {
+            return sequences[head];
+        }
+
+        byte[] poll() {
+            byte[] frame = frames[head];
+            frames[head] = null;
+            head = (head + 1) % frames.length;
+            size--;
+            if (size == 0) overflow = false;
+            return frame;
+        }
+
+        /**
+         * 仅{@link RosCallbackParser#POLICY_RELIABLE}会超出初始容量,最多扩容到{@link #capacity}
+         */
+        private void grow() {
+            int length = Math.min(frames.length * 2, capacity);
+            byte[][] newFrames = new byte[length][];
+            long[] newSequences = new long[length];
+            for (int i = 0; i < size; i++) {
+                newFrames[i] = frames[(head + i) % frames.length];
+                newSequences[i] = sequences[(head + i) % frames.length];
+            }
+            frames = newFrames;
+            sequences = newSequences;
+            head = 0;
+        }
+    }
+}
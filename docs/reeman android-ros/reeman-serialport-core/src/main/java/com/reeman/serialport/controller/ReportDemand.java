@@ -0,0 +1,81 @@
+package com.reeman.serialport.controller;
+
+import com.reeman.serialport.report.Topic;
+
+import java.util.List;
+
+/**
+ * 按订阅数量开关高频上报
+ * <p>
+ * 坐标、激光、电池动态信息需要发送指令打开才会持续上报;第一个订阅出现时发送打开指令,
+ * 最后一个订阅取消时发送关闭指令。订阅前缀以上报前缀开头才算作该上报的订阅,
+ * 如"pose"/"pose["/{@link Topic#POSE}都会打开坐标上报;"p"、"nav:"等更宽的前缀能收到已打开的上报,但不会打开
+ */
+class ReportDemand {
+    private final RosCallbackParser parser;
+    private final Stream[] streams = {
+            new Stream("nav:get_pose[on]", "nav:get_pose[off]", "pose", "nav:pose"),
+            new Stream("switch_lidar[on]", "switch_lidar[off]", "laser["),
+            new Stream("get_current_info[1]", "get_current_info[0]", "current_info{"),
+    };
+    private boolean listening;
+
+    ReportDemand(RosCallbackParser parser) {
+        this.parser = parser;
+    }
+
+    synchronized void acquire(Topic<?> topic) {
+        for (Stream stream : streams) {
+            if (stream.matches(topic) && stream.count++ == 0 && listening) {
+                parser.sendCommand(stream.on);
+            }
+        }
+    }
+
+    synchronized void release(List<Topic<?>> topics) {
+        for (Topic<?> topic : topics) {
+            for (Stream stream : streams) {
+                if (stream.matches(topic) && stream.count > 0 && --stream.count == 0 && listening) {
+                    parser.sendCommand(stream.off);
+                }
+            }
+        }
+    }
+
+    /**
+     * 串口打开后重新打开仍有订阅的上报,串口打开前的订阅在此时生效
+     */
+    synchronized void start() {
+        listening = true;
+        for (Stream stream : streams) {
+            if (stream.count > 0) parser.sendCommand(stream.on);
+        }
+    }
+
+    synchronized void stop() {
+        listening = false;
+    }
+
+    private static class Stream {
+        final String on;
+        final String off;
+        final String[] prefixes;
+        int count;
+
+        Stream(String on, String off, String... prefixes) {
+            this.on = on;
+            this.off = off;
+            this.prefixes = prefixes;
+        }
+
+        boolean matches(Topic<?> topic) {
+            for (String prefix : topic.getPrefixes()) {
+                if (prefix.isEmpty()) continue;
+                for (String report : prefixes) {
+                    if (prefix.startsWith(report)) return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.reeman.serialport.controller;
+
+import com.reeman.serialport.platform.RosLog;
+import com.reeman.serialport.report.BatteryInfo;
+import com.reeman.serialport.report.CoreData;
+import com.reeman.serialport.report.CurrentInfo;
+import com.reeman.serialport.report.NavResult;
+import com.reeman.serialport.report.Pose;
+import com.reeman.serialport.report.ReportParser;
+import com.reeman.serialport.report.RobotStateStore;
+import com.reeman.serialport.util.Parser;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 将帧的数据位分发给监听器和订阅
+ * <p>
+ * 监听器为{@link RosCallbackParser.RosReportCallback}时,已知类型直接从字节解析到复用的对象中,
+ * 其他消息及解析失败的消息转换为字符串回调{@link RosCallbackParser.RosCallback#onResult(String)};
+ * 订阅由{@link TopicRouter}按前缀匹配,同一条消息对状态、所有监听器和订阅最多解析一次、转换一次字符串;
+ * 与上一条相同的消息仍更新状态、配置和查询,只跳过监听器和订阅;
+ * 非线程安全,只能在同一个分发线程中调用
+ */
+class ReportDispatcher {
+    private static final RosCallbackParser.RosCallback[] EMPTY = new RosCallbackParser.RosCallback[0];
+
+    private static final byte[] MAX_VEL = "get_max_vel:".getBytes(StandardCharsets.UTF_8);
+
+    private final TopicRouter router;
+    private final RobotStateStore stateStore;
+    private final RequestTracker requests;
+    private final ConfigState config;
+    private final DuplicateFilter duplicates;
+    private volatile RosCallbackParser.RosCallback[] listeners = EMPTY;
+    private final TopicRouter.Matches matches = new TopicRouter.Matches();
+    private final ReportParser reportParser = new ReportParser();
+    private final NavResult navResult = new NavResult();
+    private final CoreData coreData = new CoreData();
+    private final Pose pose = new Pose();
+    private final BatteryInfo batteryInfo = new BatteryInfo();
+    private final CurrentInfo currentInfo = new CurrentInfo();
+
+    /**
+     * 当前消息已解析的类型,-1表示未解析,{@link ReportParser#UNKNOWN}表示解析失败
+     */
+    private int parsedType;
+    private String text;
+
+    /**
+     * @param router     订阅,为null时不回调订阅
+     * @param stateStore 最新状态,为null时不更新
+     * @param requests   等待回复的查询,为null时不匹配
+     * @param config     配置的当前值,为null时不更新
+     * @param duplicates  与上一条相同时不回调监听器和订阅,为null时不跳过
+     */
+    ReportDispatcher(TopicRouter router, RobotStateStore stateStore, RequestTracker requests, ConfigState config,
+                     DuplicateFilter duplicates) {
+        this.router = router;
+        this.stateStore = stateStore;
+        this.requests = requests;
+        this.config = config;
+        this.duplicates = duplicates;
+    }
+
+    /**
+     * 整体替换监听器,可在任意线程调用
+     */
+    void setListeners(RosCallbackParser.RosCallback[] listeners) {
+        this.listeners = listeners;
+    }
+
+    void dispatch(byte[] data, int offset, int len) {
+        parsedType = -1;
+        text = null;
+        try {
+            if (stateStore != null) updateState(data, offset, len);
+            if (config != null) config.onFrame(data, offset, len);
+            if (requests != null) requests.onFrame(data, offset, len);
+            if (duplicates != null && duplicates.isDuplicate(data, offset, len)) return;
+            for (RosCallbackParser.RosCallback listener : listeners) {
+                if (!(listener instanceof RosCallbackParser.RosReportCallback)
+                        || !dispatchReport((RosCallbackParser.RosReportCallback) listener, data, offset, len)) {
+                    listener.onResult(text(data, offset, len));
+                }
+            }
+            if (router == null) return;
+            router.match(data, offset, len, matches);
+            for (int i = 0; i < matches.size; i++) {
+                deliver(matches.items[i], data, offset, len);
+            }
+        } finally {
+            text = null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void deliver(TopicRouter.Subscription subscription, byte[] data, int offset, int len) {
+        int type = subscription.topic == null ? ReportParser.UNKNOWN : subscription.topic.getType();
+        if (type == ReportParser.UNKNOWN) {
+            ((RosCallbackParser.MessageHandler<String>) subscription.handler).onMessage(text(data, offset, len));
+            return;
+        }
+        Object report = parse(type, data, offset, len);
+        if (report != null) {
+            ((RosCallbackParser.MessageHandler<Object>) subscription.handler).onMessage(report);
+        }
+    }
+
+    private void updateState(byte[] data, int offset, int len) {
+        int type = ReportParser.typeOf(data, offset, len);
+        Object report = parse(type, data, offset, len);
+        if (report == null) {
+            if (ReportParser.startsWith(data, offset, len, MAX_VEL)) {
+                String result = text(data, offset, len);
+                try {
+                    stateStore.updateMaxVel(Double.parseDouble(result.substring(MAX_VEL.length).trim()));
+                } catch (NumberFormatException e) {
+                    RosLog.w("最大速度格式错误 %s", result);
+                }
+            }
+            return;
+        }
+        switch (type) {
+            case ReportParser.NAV_RESULT:
+                stateStore.update(navResult);
+                break;
+            case ReportParser.CORE_DATA:
+                stateStore.update(coreData);
+                break;
+            case ReportParser.POSE:
+                stateStore.update(pose);
+                break;
+            case ReportParser.CURRENT_INFO:
+                stateStore.update(currentInfo);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private boolean dispatchReport(RosCallbackParser.RosReportCallback reportCallback, byte[] data, int offset, int len) {
+        int type = ReportParser.typeOf(data, offset, len);
+        if (parse(type, data, offset, len) == null) return false;
+        switch (type) {
+            case ReportParser.NAV_RESULT:
+                reportCallback.onNavResult(navResult);
+                return true;
+            case ReportParser.CORE_DATA:
+                reportCallback.onCoreData(coreData);
+                return true;
+            case ReportParser.POSE:
+                reportCallback.onPose(pose);
+                return true;
+            case ReportParser.BATTERY_INFO:
+                reportCallback.onBatteryInfo(batteryInfo);
+                return true;
+            case ReportParser.CURRENT_INFO:
+                reportCallback.onCurrentInfo(currentInfo);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return 解析后的复用对象,解析失败返回null
+     */
+    private Object parse(int type, byte[] data, int offset, int len) {
+        if (parsedType == -1) {
+            parsedType = parseInto(type, data, offset, len) ? type : ReportParser.UNKNOWN;
+        }
+        if (parsedType != type) return null;
+        switch (type) {
+            case ReportParser.NAV_RESULT:
+                return navResult;
+            case ReportParser.CORE_DATA:
+                return coreData;
+            case ReportParser.POSE:
+                return pose;
+            case ReportParser.BATTERY_INFO:
+                return batteryInfo;
+            case ReportParser.CURRENT_INFO:
+                return currentInfo;
+            default:
+                return null;
+        }
+    }
+
+    private boolean parseInto(int type, byte[] data, int offset, int len) {
+        switch (type) {
+            case ReportParser.NAV_RESULT:
+                return reportParser.parseNavResult(data, offset, len, navResult);
+            case ReportParser.CORE_DATA:
+                return reportParser.parseCoreData(data, offset, len, coreData);
+            case ReportParser.POSE:
+                return reportParser.parsePose(data, offset, len, pose);
+            case ReportParser.BATTERY_INFO:
+                return reportParser.parseBatteryInfo(data, offset, len, batteryInfo);
+            case ReportParser.CURRENT_INFO:
+                return reportParser.parseCurrentInfo(data, offset, len, currentInfo);
+            default:
+                return false;
+        }
+    }
+
+    private String text(byte[] data, int offset, int len) {
+        if (text == null) {
+            text = Parser.bytesToString(data, offset, len);
+        }
+        return text;
+    }
+}
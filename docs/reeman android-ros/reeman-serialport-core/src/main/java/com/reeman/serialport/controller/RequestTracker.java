@@ -0,0 +1,219 @@
+package com.reeman.serialport.controller;
+
+import com.reeman.serialport.platform.RosLog;
+import com.reeman.serialport.report.ReportParser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 按回复前缀匹配查询
+ * <p>
+ * ROS的回复没有请求编号,同一前缀的查询按发送顺序匹配,每条回复完成最早的一个匹配的查询;
+ * 相同指令的查询在回复前只发送一次,所有调用方等待同一个回复;回复在{@code maxAge}内可直接作为新查询的结果。
+ * 每个调用方有自己的超时和取消,所有调用方都结束后查询不再等待回复。
+ * 没有等待中的查询时分发线程只读一次计数
+ */
+class RequestTracker {
+    private final List<Request> pending = new ArrayList<>();
+    private final Map<String, Cached> replies = new HashMap<>();
+    private final ReportParser parser = new ReportParser();
+    private final ScheduledExecutorService timer;
+    private final long maxAgeNanos;
+    private volatile int pendingCount;
+    private boolean stopped;
+
+    /**
+     * @param timer        超时定时器
+     * @param maxAgeMillis 回复的有效期,0表示每次查询都重新发送
+     */
+    RequestTracker(ScheduledExecutorService timer, long maxAgeMillis) {
+        this.timer = timer;
+        this.maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxAgeMillis);
+    }
+
+    /**
+     * 登记查询,需要发送指令时在登记后调用send,避免回复先于登记到达
+     *
+     * @param key           相同key的查询合并,通常为查询指令
+     * @param timeoutMillis 超时后以{@link TimeoutException}完成
+     * @param send          发送查询指令,合并到已发送的查询或使用有效期内的回复时不调用
+     */
+    <T> RosFuture<T> register(String key, String prefix, Reply<T> reply, long timeoutMillis, Runnable send) {
+        RosFuture<T> future = new RosFuture<>();
+        Waiter waiter = new Waiter(future);
+        boolean first = false;
+        synchronized (this) {
+            if (stopped) {
+                future.completeExceptionally(new IllegalStateException("串口已关闭"));
+                return future;
+            }
+            Cached cached = replies.get(key);
+            if (cached != null && System.nanoTime() - cached.time <= maxAgeNanos) {
+                waiter.complete(cached.value);
+                return future;
+            }
+            Request request = find(key);
+            if (request == null) {
+                request = new Request(key, prefix, reply);
+                pending.add(request);
+                pendingCount = pending.size();
+                first = true;
+            }
+            request.waiters.add(waiter);
+            Request flight = request;
+            waiter.timeout = timer.schedule(() -> {
+                if (leave(flight, waiter)) {
+                    future.completeExceptionally(new TimeoutException(key + " " + timeoutMillis + "ms"));
+                }
+            }, timeoutMillis, TimeUnit.MILLISECONDS);
+            future.addListener((result, error) -> {
+                if (future.isCancelled()) leave(flight, waiter);
+            });
+        }
+        if (first) send.run();
+        return future;
+    }
+
+    /**
+     * 只在分发线程中调用
+     */
+    void onFrame(byte[] data, int offset, int len) {
+        if (pendingCount == 0) return;
+        List<Waiter> waiters = null;
+        Object result = null;
+        synchronized (this) {
+            for (Request request : pending) {
+                if (!ReportParser.startsWith(data, offset, len, request.prefix)) continue;
+                try {
+                    if (!request.reply.matches(data, offset, len, parser)) continue;
+                    result = request.reply.parse(data, offset, len, parser);
+                } catch (Exception e) {
+                    RosLog.w(e, "回复解析失败");
+                    continue;
+                }
+                remove(request);
+                waiters = new ArrayList<>(request.waiters);
+                request.waiters.clear();
+                if (maxAgeNanos > 0) {
+                    replies.put(request.key, new Cached(result, System.nanoTime()));
+                }
+                break;
+            }
+        }
+        if (waiters == null) return;
+        for (Waiter waiter : waiters) {
+            waiter.complete(result);
+        }
+    }
+
+    /**
+     * 重新打开串口后接受新的查询
+     */
+    synchronized void start() {
+        stopped = false;
+    }
+
+    /**
+     * 所有等待中的查询以异常完成,{@link #start()}之前的查询直接失败
+     */
+    void stop() {
+        List<Waiter> cancelled = new ArrayList<>();
+        synchronized (this) {
+            stopped = true;
+            for (Request request : pending) {
+                cancelled.addAll(request.waiters);
+            }
+            pending.clear();
+            replies.clear();
+            pendingCount = 0;
+        }
+        for (Waiter waiter : cancelled) {
+            if (waiter.timeout != null) waiter.timeout.cancel(false);
+            waiter.future.completeExceptionally(new IllegalStateException("串口已关闭"));
+        }
+    }
+
+    private Request find(String key) {
+        for (Request request : pending) {
+            if (request.key.equals(key)) return request;
+        }
+        return null;
+    }
+
+    /**
+     * 调用方超时或取消,没有调用方时不再等待回复
+     *
+     * @return false: 已经完成
+     */
+    private synchronized boolean leave(Request request, Waiter waiter) {
+        if (!request.waiters.remove(waiter)) return false;
+        if (waiter.timeout != null) waiter.timeout.cancel(false);
+        if (request.waiters.isEmpty()) remove(request);
+        return true;
+    }
+
+    private void remove(Request request) {
+        pending.remove(request);
+        pendingCount = pending.size();
+    }
+
+    /**
+     * 回复的匹配和解析,在分发线程中调用
+     */
+    interface Reply<T> {
+        /**
+         * @return 前缀相同时是否为该查询的回复,如点位名称相同
+         */
+        default boolean matches(byte[] data, int offset, int len, ReportParser parser) {
+            return true;
+        }
+
+        T parse(byte[] data, int offset, int len, ReportParser parser);
+    }
+
+    private static class Request {
+        final String key;
+        final byte[] prefix;
+        final Reply<?> reply;
+        final List<Waiter> waiters = new ArrayList<>(2);
+
+        Request(String key, String prefix, Reply<?> reply) {
+            this.key = key;
+            this.prefix = prefix.getBytes(StandardCharsets.UTF_8);
+            this.reply = reply;
+        }
+    }
+
+    private static class Waiter {
+        final RosFuture<?> future;
+        ScheduledFuture<?> timeout;
+
+        Waiter(RosFuture<?> future) {
+            this.future = future;
+        }
+
+        @SuppressWarnings("unchecked")
+        void complete(Object result) {
+            if (timeout != null) timeout.cancel(false);
+            ((RosFuture<Object>) future).complete(result);
+        }
+    }
+
+    private static class Cached {
+        final Object value;
+        final long time;
+
+        Cached(Object value, long time) {
+            this.value = value;
+            this.time = time;
+        }
+    }
+}
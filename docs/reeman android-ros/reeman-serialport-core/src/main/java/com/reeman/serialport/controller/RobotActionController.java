@@ -0,0 +1,929 @@
+package com.reeman.serialport.controller;
+
+import com.reeman.serialport.platform.Platform;
+import com.reeman.serialport.platform.RosLog;
+import com.reeman.serialport.report.BatteryInfo;
+import com.reeman.serialport.report.Pose;
+import com.reeman.serialport.report.ReportParser;
+import com.reeman.serialport.report.RobotState;
+import com.reeman.serialport.report.Topic;
+import com.reeman.serialport.util.CommandEncoder;
+import com.reeman.serialport.util.Parser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+
+/**
+ * 导航串口的控制器
+ * <p>
+ * 单台机器人使用{@link #getInstance()};一个进程连接多台机器人时每个串口创建一个控制器,
+ * 各自有独立的解析、状态和指令队列,通过同一个{@link SerialRuntime}共用读写和分发线程:
+ * <pre>
+ * SerialRuntime runtime = new SerialRuntime.Builder().dispatchThreads(4).build();
+ * RobotActionController robot = new RobotActionController();
+ * robot.init(new RosCallbackParser.Builder().port("/dev/ttyXRUSB0").baudRate(115200).callback(callback).runtime(runtime));
+ * </pre>
+ */
+public class RobotActionController {
+
+    private static volatile RobotActionController INSTANCE;
+    private RosCallbackParser parser;
+    private volatile String ipAddress;
+    private volatile int coordinateDigits = 3;
+    private volatile int radianDigits = 4;
+    private List<String> pathList;
+    private Closeable platformTask;
+
+    /**
+     * 设置ROS ip地址,以将日志上传到ROS
+     *
+     * @param ipAddress
+     */
+    public void setIpAddress(String ipAddress) {
+        this.ipAddress = ipAddress;
+    }
+
+    /**
+     * @return {@link #setIpAddress(String)}设置的ROS ip地址,未设置时为null
+     */
+    public String getIpAddress() {
+        return ipAddress;
+    }
+
+    /**
+     * 设置指令中坐标和弧度保留的小数位数,默认坐标3位(毫米)、弧度4位
+     *
+     * @param coordinateDigits x/y坐标的小数位数,0~9
+     * @param radianDigits     弧度的小数位数,0~9
+     */
+    public void setCoordinatePrecision(int coordinateDigits, int radianDigits) {
+        CommandEncoder.checkFractionDigits(coordinateDigits);
+        CommandEncoder.checkFractionDigits(radianDigits);
+        this.coordinateDigits = coordinateDigits;
+        this.radianDigits = radianDigits;
+    }
+
+    /**
+     * @return 默认的控制器,{@link #stopListen()}后重新创建
+     */
+    public static RobotActionController getInstance() {
+        if (INSTANCE == null) {
+            synchronized (RobotActionController.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new RobotActionController();
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+
+    /**
+     * 默认的初始化串口方法,波特率:115200,串口地址:/dev/ttyS1
+     *
+     * @param callback ROS上报内容的回调
+     * @param path     要上传到ros的日志目录
+     * @throws Exception
+     */
+    public void init(RosCallbackParser.RosCallback callback, String... path) throws Exception {
+        parser = new RosCallbackParser.Builder()
+                .baudRate(115200)
+                .port("/dev/ttyS1")
+                .callback(callback)
+                .build();
+        startListen(path);
+    }
+
+
+    /**
+     * @param baudRate 波特率
+     * @param port     串口地址
+     * @param callback ROS上报内容的回调
+     * @param path     要上传到ros的日志目录
+     * @throws Exception
+     */
+    public void init(int baudRate, String port, RosCallbackParser.RosCallback callback, String... path) throws Exception {
+        parser = new RosCallbackParser.Builder()
+                .baudRate(baudRate)
+                .port(port)
+                .callback(callback)
+                .build();
+        RosLog.d("baudRate: " + baudRate + ",port: " + port);
+        startListen(path);
+    }
+
+    /**
+     * 使用自定义配置初始化串口,如多个监听器、缓存策略、跳过重复上报、线程优先级({@link RosCallbackParser.Builder#runtime(SerialRuntime)})
+     *
+     * @param builder 串口配置
+     * @param path    要上传到ros的日志目录
+     * @throws Exception
+     */
+    public void init(RosCallbackParser.Builder builder, String... path) throws Exception {
+        parser = builder.build();
+        startListen(path);
+    }
+
+    private void startListen(String... path) throws Exception {
+        parser.startListen();
+        pathList = new ArrayList<>();
+        if (path != null && path.length != 0) {
+            pathList.addAll(Arrays.asList(path));
+        }
+        //日志上传、电源板日志等平台相关的功能
+        platformTask = Platform.get().onStartListen(this, parser.getRuntime(), pathList);
+    }
+
+    public void stopListen() {
+        if (platformTask != null) {
+            try {
+                platformTask.close();
+            } catch (IOException e) {
+                RosLog.w(e, "停止平台任务失败");
+            }
+            platformTask = null;
+        }
+        if (parser != null) {
+            parser.stopListen();
+            parser = null;
+        }
+        synchronized (RobotActionController.class) {
+            if (INSTANCE == this) INSTANCE = null;
+        }
+    }
+
+    /**
+     * 发送指令到导航,异步返回结果
+     *
+     * @param command
+     * @return 返回结果在RobotActionController.onResult(String)
+     * @see com.reeman.serialport.controller.RosCallbackParser.RosCallback#(String)
+     */
+    public void sendCommand(String command) {
+        parser.sendCommand(command);
+        if (!command.startsWith("keep") && !command.startsWith("send_to_base") && !command.startsWith("get_battery_info"))
+            RosLog.v("send %s", command);
+    }
+
+    /**
+     * 发送编码好的指令,不打印日志,用于高频指令
+     *
+     * @see CommandEncoder
+     */
+    public void sendCommand(CommandEncoder encoder) {
+        parser.sendCommand(encoder);
+    }
+
+    /**
+     * 发送配置指令,与ROS当前的值相同时不发送
+     *
+     * @see RosCallbackParser#sendConfig(String)
+     */
+    public void sendConfig(String command) {
+        if (parser.sendConfig(command)) {
+            RosLog.v("send %s", command);
+        } else {
+            RosLog.v("skip %s", command);
+        }
+    }
+
+    /**
+     * 下一次设置配置时一定发送,ROS的配置可能被其他程序修改时调用
+     *
+     * @see RosCallbackParser#resyncConfig()
+     */
+    public void resyncConfig() {
+        parser.resyncConfig();
+    }
+
+    /**
+     * 排队发送,按优先级发送并合并同一种未发送的指令
+     *
+     * @see RosCallbackParser#sendCommandToQueue(String)
+     */
+    public void sendCommandToQueue(String command) {
+        parser.sendCommandToQueue(command);
+        RosLog.v("send2 %s", command);
+    }
+
+    /**
+     * @param priority {@link RosCallbackParser#PRIORITY_SAFETY}等
+     */
+    public void sendCommandToQueue(String command, int priority) {
+        parser.sendCommandToQueue(command, priority);
+        RosLog.v("send2 %s", command);
+    }
+
+    /**
+     * 发送查询指令,以replyPrefix开头的第一条消息作为回复
+     *
+     * @see RosCallbackParser#request(String, String, long)
+     */
+    public RosFuture<String> request(String command, String replyPrefix, long timeoutMillis) {
+        return parser.request(command, replyPrefix, timeoutMillis);
+    }
+
+    /**
+     * 读取最新的机器人状态,可在任意线程调用
+     *
+     * @param out 由调用方创建并复用,如界面定时刷新时每次传入同一个对象
+     * @see RosCallbackParser#getState(RobotState)
+     */
+    public RobotState getState(RobotState out) {
+        return parser.getState(out);
+    }
+
+    /**
+     * @see RosCallbackParser#getLastSeen(String)
+     */
+    public long getLastSeen(String prefix) {
+        return parser.getLastSeen(prefix);
+    }
+
+    /**
+     * 添加在executor中回调的监听器
+     *
+     * @see RosCallbackParser#addListener(RosCallbackParser.RosCallback, Executor)
+     */
+    public void addListener(RosCallbackParser.RosCallback listener, Executor executor) {
+        parser.addListener(listener, executor);
+    }
+
+    public void removeListener(RosCallbackParser.RosCallback listener) {
+        parser.removeListener(listener);
+    }
+
+    /**
+     * 订阅指定类型的上报
+     *
+     * @see RosCallbackParser#subscribe(Topic, RosCallbackParser.MessageHandler)
+     */
+    public <T> void subscribe(Topic<T> topic, RosCallbackParser.MessageHandler<? super T> handler) {
+        parser.subscribe(topic, handler);
+    }
+
+    /**
+     * 订阅以prefix开头的消息
+     *
+     * @see RosCallbackParser#subscribe(String, RosCallbackParser.MessageHandler)
+     */
+    public void subscribe(String prefix, RosCallbackParser.MessageHandler<? super String> handler) {
+        parser.subscribe(prefix, handler);
+    }
+
+    /**
+     * 订阅没有匹配任何订阅的消息
+     */
+    public void subscribeUnmatched(RosCallbackParser.MessageHandler<String> handler) {
+        parser.subscribeUnmatched(handler);
+    }
+
+    public void unsubscribe(RosCallbackParser.MessageHandler<?> handler) {
+        parser.unsubscribe(handler);
+    }
+
+    /**
+     * 控制临时停靠开关,与当前值相同时不发送
+     *
+     * @param open
+     */
+    public void setTolerance(boolean open) {
+        sendConfig("set_tolerance[" + (open ? "1]" : "0]"));
+    }
+
+
+    public void getSpecialArea() {
+        sendCommand("sendWeb[in_polygon]");
+    }
+
+    /**
+     * 不规划局部路径,直接去目标点
+     *
+     * @param x
+     * @param y
+     * @param z
+     */
+    public void listPoint(double x, double y, double z) {
+        CommandEncoder encoder = pose(encoder("list_point["), x, y, z).append(']').end();
+        sendCommand(encoder);
+        RosLog.v("send %s", encoder);
+    }
+
+    /**
+     * 取临停点
+     */
+    public void getNearest() {
+        sendCommand("get_nearest");
+    }
+
+    /**
+     * 心跳
+     *
+     * @return hfls_version:HardwareVersion FirmwareVersion LoaderVersion SoftVersion
+     */
+    public void heartBeat() {
+        sendCommand("keep_connect");
+    }
+
+    /**
+     * 获取导航模式
+     *
+     * @return model:x
+     * x: 1:导航模式;2:建图模式;3:增量建图模式;
+     */
+    public void modelRequest() {
+        sendCommand("model:request");
+    }
+
+
+    /**
+     * 设置最大导航速度,与当前值相同时不发送
+     *
+     * @param maxSpeed range [0.3 - 1.0]
+     * @return get_max_vel:x
+     * x: 当前最大速度
+     */
+    public void setNavSpeed(String maxSpeed) {
+        Float speed = Float.parseFloat(maxSpeed);
+        if (speed.compareTo(0.3F) < 0) speed = 0.3F;
+        if (speed.compareTo(1.0F) > 0) speed = 1.0F;
+        sendConfig("max_vel[" + speed + "]");
+    }
+
+    /**
+     * 获取最大导航速度
+     *
+     * @return get_max_vel:x
+     * x: 当前最大速度
+     */
+    public void getNavSpeed() {
+        sendCommand("get_max_vel");
+    }
+
+    /**
+     * 异步获取最大导航速度
+     *
+     * @param timeoutMillis 超时时间
+     * @return 回复get_max_vel:x中的x
+     */
+    public RosFuture<Double> getNavSpeedAsync(long timeoutMillis) {
+        return parser.request("get_max_vel", "get_max_vel:",
+                (data, offset, len, reportParser) -> Double.parseDouble(replyValue(data, offset, len, "get_max_vel:")),
+                timeoutMillis);
+    }
+
+    /**
+     * 设置CPU高性能模式
+     */
+    public void cpuPerformance() {
+        sendCommand("cpu_performance");
+    }
+
+    /**
+     * 根据坐标和线速度设置其他机器人的位置,从而实现多机避障
+     *
+     * @param x
+     * @param y
+     * @param z
+     * @param hostname 其他机器人名称
+     * @param speed    线速度
+     */
+    public void expand(double x, double y, double z, String hostname, double speed) {
+        expand(x, y, z, hostname, speed, 0.006);
+    }
+
+
+    public void expand(double x, double y, double z, String hostname, double speed, double cover) {
+        sendCommand(pose(encoder("robot_cost["), x, y, z)
+                .append(',').append(speed == 0.0f ? 0.5 : speed).append(',').append(hostname)
+                .append(',').append(cover).append(']').end());
+    }
+
+    /**
+     * 整机关机指令
+     * - 发送整机关机指令后15s电源板会断电
+     * - 建议在发送完整机关机指令后给安卓发送关机指令
+     */
+    public void shutdown() {
+        sendCommand("power_off");
+    }
+
+    /**
+     * 进入loader模式
+     *
+     * @deprecated web端已支持升级电源板, 不要在app进入loader模式
+     */
+    @Deprecated
+    public void upgradeLoading() {
+        sendCommand("base_upgrade[start]");
+    }
+
+    /**
+     * 开始升级
+     *
+     * @deprecated web端已支持升级电源板, 不要在app进入loader模式
+     */
+    @Deprecated
+    public void affirmUpgrade() {
+        sendCommand("base_upgrade[affirm]");
+    }
+
+    /**
+     * 退出loader模式
+     *
+     * @deprecated web端已支持升级电源板, 不要在app进入loader模式
+     */
+    @Deprecated
+    public void cancelIap() {
+        sendCommand("cancel_iap");
+    }
+
+    /**
+     * 获取当前速度,当前遇到障碍物停留时间,全局路径是否考虑临时障碍
+     */
+    public void updateDynamic() {
+        sendCommand("update_dynamic");
+    }
+
+    /**
+     * 写入最大速度(0.3-1.0)
+     *
+     * @param maxSpeed range [0.3 - 1.0]
+     * @return get_max_vel:x
+     * x: 当前最大速度
+     */
+    public void writeMaxValue(String maxSpeed) {
+        Float speed = Float.parseFloat(maxSpeed);
+        if (speed.compareTo(0.3F) < 0) speed = 0.3F;
+        if (speed.compareTo(1.0F) > 0) speed = 1.0F;
+        sendCommand("write_max_vel[" + speed + "]");
+    }
+
+    /**
+     * 设置导航中遇到障碍物停留时间,与当前值相同时不发送
+     *
+     * @param stopTime range [1 - 10]
+     * @return get_stop_time:5.0
+     */
+    public void setStopTime(int stopTime) {
+        if (stopTime < 1) stopTime = 1;
+        if (stopTime > 10) stopTime = 10;
+        sendConfig("set_stop_time[" + stopTime + "]");
+    }
+
+    /**
+     * 全局路径是否考虑临时障碍,与当前值相同时不发送
+     *
+     * @param consider 是否考虑
+     * @return get_global_p:1.0
+     */
+    public void globalTemporaryObstacleControl(boolean consider) {
+        sendConfig("set_globalcost_p[" + (consider ? 1 : 0) + "]");
+    }
+
+    /**
+     * 整机重启
+     */
+    public void powerReboot() {
+        sendCommand("power_reboot");
+    }
+
+    /**
+     * 重启导航系统
+     *
+     * @return initpose:0,x y radian
+     */
+    public void sysReboot() {
+        sendCommand("sys:reboot");
+    }
+
+    /**
+     * 激光数据上报控制,订阅laser[时会自动打开和关闭,手动关闭会影响其他订阅;与当前状态相同时不发送
+     *
+     * @param report true:打开;false:关闭
+     * @return laser[distance]
+     */
+    public void lidarReportControl(boolean report) {
+        sendConfig("switch_lidar[" + (report ? "on]" : "off]"));
+    }
+
+    /**
+     * 获取导航主机编号
+     *
+     * @return sys:boot:x
+     * x: 导航主机编号
+     */
+    public void getHostName() {
+        sendCommand("hostname:get");
+    }
+
+    /**
+     * 异步获取导航主机编号
+     *
+     * @param timeoutMillis 超时时间
+     * @return 回复sys:boot:x中的x
+     */
+    public RosFuture<String> getHostNameAsync(long timeoutMillis) {
+        return parser.request("hostname:get", "sys:boot:",
+                (data, offset, len, reportParser) -> replyValue(data, offset, len, "sys:boot:"),
+                timeoutMillis);
+    }
+
+    /**
+     * 获取导航主机版本
+     *
+     * @return ver:x
+     * x: 导航版本
+     * @deprecated 心跳包会上报导航主机版本, 推荐从心跳包获取
+     */
+    @Deprecated
+    public void getHostVersion() {
+        sendCommand("sys:version");
+    }
+
+    /**
+     * 获取导航wifi和ip
+     *
+     * @return ip:ssid:x.x.x.x
+     * ssid: wifi名
+     * x.x.x.x:ip地址
+     */
+    public void getHostIp() {
+        sendCommand("ip:request");
+    }
+
+    /**
+     * 获取当前地图
+     *
+     * @return current_map[map_name:x]
+     * x: 地图名称
+     */
+    public void getCurrentMap() {
+        sendCommand("nav:current_map");
+    }
+
+    /**
+     * 异步获取当前地图
+     *
+     * @param timeoutMillis 超时时间
+     * @return 回复current_map[map_name:x]中的x
+     */
+    public RosFuture<String> getCurrentMapAsync(long timeoutMillis) {
+        return parser.request("nav:current_map", "current_map[", (data, offset, len, reportParser) -> {
+            String value = replyValue(data, offset, len, "current_map[");
+            if (value.endsWith("]")) value = value.substring(0, value.length() - 1);
+            return value.startsWith("map_name:") ? value.substring("map_name:".length()) : value;
+        }, timeoutMillis);
+    }
+
+    /**
+     * 标点
+     *
+     * @param arr   坐标
+     * @param type  类型
+     * @param point 名称
+     */
+    public void markPoint(double[] arr, String type, String point) {
+        if (arr == null || arr.length != 3)
+            return;
+        CommandEncoder encoder = pose(encoder("nav:set_flag_point["), arr[0], arr[1], arr[2])
+                .append(',').append(type).append(',').append(point).append(']').end();
+        sendCommand(encoder);
+        RosLog.v("send %s", encoder);
+    }
+
+    /**
+     * 对接充电桩
+     */
+    public void dockStart() {
+        sendCommand("dock:start");
+    }
+
+    /**
+     * 取消对接充电桩
+     */
+    public void cancelCharge() {
+        sendCommand("dock:stop");
+    }
+
+
+    /**
+     * 删除指定点位
+     *
+     * @param name
+     */
+    public void deletePoint(String name) {
+        sendCommand("nav:del_flag_point[" + name + "]");
+    }
+
+    /**
+     * 保存地图
+     */
+    public void saveMap() {
+        sendCommand("save_map");
+    }
+
+    /**
+     * 切换到导航模式
+     */
+    public void modelNavi() {
+        sendCommand("model:navi");
+    }
+
+    /**
+     * 切换到建图模式
+     */
+    public void modelMapping() {
+        sendCommand("model:mapping");
+    }
+
+    /**
+     * 切换到增量建图模式
+     */
+    public void modelRemap() {
+        sendCommand("model:remap");
+    }
+
+    /**
+     * 导航到点
+     * 如果点的type为`normal`,则为普通导航;
+     * 如果点的type为`charge`,导航到目标点后会自动对接充电桩;
+     *
+     * @param point
+     * @return nav_result{state code name dist_to_goal mileage}
+     */
+    public void navigationByPoint(String point) {
+        String cmd = "nav_point[" + point + "]";
+        sendCommand(cmd);
+    }
+
+    /**
+     * 获取电池固定信息
+     *
+     * @return battery_info{manufacturer nominal_voltage temperature cycle_times rated_capacity full_capacity capacity}
+     */
+    public void getBatteryInfo() {
+        sendCommand("get_battery_info");
+    }
+
+    /**
+     * 异步获取电池固定信息
+     *
+     * @param timeoutMillis 超时时间
+     * @return 同时查询的调用方得到同一个对象,不要修改
+     */
+    public RosFuture<BatteryInfo> getBatteryInfoAsync(long timeoutMillis) {
+        return parser.request("get_battery_info", "battery_info{", (data, offset, len, reportParser) -> {
+            BatteryInfo batteryInfo = new BatteryInfo();
+            if (!reportParser.parseBatteryInfo(data, offset, len, batteryInfo)) {
+                throw new IllegalArgumentException(Parser.bytesToString(data, offset, len));
+            }
+            return batteryInfo;
+        }, timeoutMillis);
+    }
+
+
+    /**
+     * 电池动态信息上报控制,订阅current_info{时会自动打开和关闭,手动关闭会影响其他订阅
+     *
+     * @param report
+     * @return current_info{55 202 0 0 1}
+     */
+    public void currentInfoControl(boolean report) {
+        sendCommand("get_current_info[" + (report ? 1 : 0) + "]");
+    }
+
+    /**
+     * 切换地图
+     *
+     * @param mapName 地图名称
+     * @return apply_map[map_name:m]
+     */
+    public void applyMap(String mapName) {
+        sendCommand("call_web[apply_map:" + mapName + "]");
+    }
+
+    /**
+     * 坐标导航
+     *
+     * @param x      x轴坐标
+     * @param y      y轴坐标
+     * @param radian 弧度
+     * @return nav_result{state code name dist_to_goal mileage}
+     */
+    public void navigationByCoordinates(String x, String y, String radian) {
+        String cmd = "goal:nav[" + x + "," + y + "," + radian + "]";
+        sendCommand(cmd);
+    }
+
+    /**
+     * 坐标导航
+     *
+     * @param x      x轴坐标
+     * @param y      y轴坐标
+     * @param radian 弧度
+     * @return nav_result{state code name dist_to_goal mileage}
+     */
+    public void navigationByCoordinates(double x, double y, double radian) {
+        CommandEncoder encoder = pose(encoder("goal:nav["), x, y, radian).append(']').end();
+        sendCommand(encoder);
+        RosLog.v("send %s", encoder);
+    }
+
+    /**
+     * 暂停导航
+     *
+     * @return nav_result{2 code name dist_to_goal mileage}
+     */
+    public void pauseNavigation() {
+        sendCommand("nav_pause");
+    }
+
+    /**
+     * 恢复导航
+     *
+     * @return nav_result{state code name dist_to_goal mileage}
+     */
+    public void resumeNavigation() {
+        sendCommand("nav_resume");
+    }
+
+    /**
+     * 获取点位坐标
+     *
+     * @param point 点位名称
+     *              return get_flag_point[x,y,radian,type,name]/get_flag_point:-1
+     */
+    public void getPointPosition(String point) {
+        sendCommand("nav:get_flag_point[" + point + "]");
+    }
+
+    /**
+     * 异步获取点位坐标
+     *
+     * @param point         点位名称
+     * @param timeoutMillis 超时时间
+     * @return 回复get_flag_point[x,y,radian,type,name];点位不存在(get_flag_point:-1)时为null
+     */
+    public RosFuture<String> getPointPositionAsync(String point, long timeoutMillis) {
+        return parser.request("nav:get_flag_point[" + point + "]", "get_flag_point", new RequestTracker.Reply<String>() {
+            @Override
+            public boolean matches(byte[] data, int offset, int len, ReportParser reportParser) {
+                String reply = Parser.bytesToString(data, offset, len);
+                return reply.startsWith("get_flag_point:") || reply.endsWith("," + point + "]");
+            }
+
+            @Override
+            public String parse(byte[] data, int offset, int len, ReportParser reportParser) {
+                String reply = Parser.bytesToString(data, offset, len);
+                return reply.startsWith("get_flag_point[") ? reply : null;
+            }
+        }, timeoutMillis);
+    }
+
+    /**
+     * 获取当前位置坐标
+     *
+     * @return pose[x, y, radian]/pose:notfound
+     */
+    public void getCurrentPosition() {
+        sendCommand("nav:get_pose");
+    }
+
+    /**
+     * 异步获取当前位置坐标
+     *
+     * @param timeoutMillis 超时时间
+     * @return 正在定位(pose:notfound)时{@link Pose#isFound()}为false;同时查询的调用方得到同一个对象,不要修改
+     */
+    public RosFuture<Pose> getCurrentPositionAsync(long timeoutMillis) {
+        return parser.request("nav:get_pose", "pose", (data, offset, len, reportParser) -> {
+            Pose pose = new Pose();
+            if (!reportParser.parsePose(data, offset, len, pose)) {
+                throw new IllegalArgumentException(Parser.bytesToString(data, offset, len));
+            }
+            return pose;
+        }, timeoutMillis);
+    }
+
+    private static String replyValue(byte[] data, int offset, int len, String prefix) {
+        return Parser.bytesToString(data, offset, len).substring(prefix.length()).trim();
+    }
+
+    /**
+     * 重定位
+     *
+     * @param coordinate 坐标
+     * @return initpose:0,x y radian
+     */
+    public void relocateByCoordinate(double[] coordinate) {
+        if (coordinate == null || coordinate.length != 3)
+            return;
+        CommandEncoder encoder = pose(encoder("nav:reloc["), coordinate[0], coordinate[1], coordinate[2]).append(']').end();
+        sendCommand(encoder);
+        RosLog.v("send %s", encoder);
+    }
+
+    public void relocByName(String point) {
+        sendCommand("nav:reloc_name[" + point + "]");
+    }
+
+    public void moveRight(int angle, int speed) {
+        sendCommand(encoder("move[").append(angle).append(',').append(speed).append(']').end());
+    }
+
+    public void moveForward() {
+        sendCommand(encoder("move[100,0]").end());
+    }
+
+    public void moveBackward() {
+        sendCommand(encoder("move[-100,0]").end());
+    }
+
+    public void turn(double angle) {
+        sendCommand(encoder("move[0,").append(angle).append(']').end());
+    }
+
+    public void stopMove() {
+        sendCommand("move[0,0]");
+    }
+
+    /**
+     * 当前线程复用的编码器
+     */
+    private static CommandEncoder encoder(String keyword) {
+        return CommandEncoder.local().begin(keyword);
+    }
+
+    /**
+     * 按{@link #setCoordinatePrecision(int, int)}写入x,y,radian
+     */
+    private CommandEncoder pose(CommandEncoder encoder, double x, double y, double radian) {
+        int digits = coordinateDigits;
+        return encoder.append(x, digits).append(',').append(y, digits).append(',').append(radian, radianDigits);
+    }
+
+    /**
+     * 取消导航
+     *
+     * @return nav_result{4 code name dist_to_goal mileage}
+     */
+    public void cancelNavigation() {
+        sendCommand("nav_cancel");
+    }
+
+
+    /**
+     * ROS连接wifi
+     *
+     * @param wifiName     wifi名称
+     * @param wifiPassword wifi密码
+     * @return wifi:connect success 连接成功
+     * wifi:connect fail 连接失败
+     * wifi:connecting 连接进行中
+     */
+    public void connectROSWifi(String wifiName, String wifiPassword) {
+        sendCommand("wifi[ssid " + wifiName + ";pwd " + wifiPassword + "]");
+    }
+
+    /**
+     * 自动上报坐标,订阅坐标时会自动打开和关闭,手动关闭会影响其他订阅
+     *
+     * @param autoUpload
+     */
+    public void positionAutoUploadControl(boolean autoUpload) {
+        sendCommand("nav:get_pose[" + (autoUpload ? "on" : "off") + "]");
+    }
+
+    /**
+     * 发送透传指令到电源板
+     *
+     * @param data 数据位
+     */
+    public void sendToBase(int... data) {
+        int length = data.length + 2;
+        byte[] bytes = new byte[length];
+        bytes[0] = (byte) 0XD0;
+        bytes[1] = (byte) data.length;
+        for (int i = 2; i < length; i++) {
+            bytes[i] = (byte) data[i - 2];
+        }
+        String s = Parser.byteArrayToDecimalString(bytes);
+        RosLog.v("透传 %s", s);
+        sendToBase(s);
+    }
+
+    /**
+     * 发送透传指令
+     *
+     * @param data
+     */
+    public void sendToBase(String data) {
+        sendCommand("send_to_base[" + data + "]");
+    }
+}
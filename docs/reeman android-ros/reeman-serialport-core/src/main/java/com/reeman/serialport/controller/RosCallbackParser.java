@@ -0,0 +1,589 @@
+package com.reeman.serialport.controller;
+
+import com.reeman.serialport.capture.CaptureJournal;
+import com.reeman.serialport.platform.Platform;
+import com.reeman.serialport.platform.RosLog;
+import com.reeman.serialport.report.BatteryInfo;
+import com.reeman.serialport.report.CoreData;
+import com.reeman.serialport.report.CurrentInfo;
+import com.reeman.serialport.report.NavResult;
+import com.reeman.serialport.report.Pose;
+import com.reeman.serialport.report.RobotState;
+import com.reeman.serialport.report.RobotStateStore;
+import com.reeman.serialport.report.Topic;
+import com.reeman.serialport.transport.Transport;
+import com.reeman.serialport.transport.TransportFactory;
+import com.reeman.serialport.util.CommandEncoder;
+import com.reeman.serialport.util.FrameDecoder;
+import com.reeman.serialport.util.Parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+public class RosCallbackParser {
+    /**
+     * 不丢弃,回调阻塞时缓存所有数据,最多1024条,超过时丢弃最旧的数据并记录警告
+     */
+    public static final int POLICY_RELIABLE = 0;
+    /**
+     * 只保留最新一条未分发的数据
+     */
+    public static final int POLICY_LATEST = 1;
+    /**
+     * 超过容量时丢弃最旧的数据
+     */
+    public static final int POLICY_DROP_OLDEST = 2;
+    /**
+     * 停止类指令: nav_cancel/nav_pause/move[0,0]/dock:stop/power_off,发送时丢弃未发送的导航控制指令
+     */
+    public static final int PRIORITY_SAFETY = 0;
+    /**
+     * 导航控制指令: move/nav_point/goal:nav/nav_resume/nav:reloc/dock:start/robot_cost
+     */
+    public static final int PRIORITY_NAVIGATION = 1;
+    /**
+     * 配置指令,未识别的指令也使用该优先级
+     */
+    public static final int PRIORITY_CONFIG = 2;
+    /**
+     * 查询指令: get_xxx/nav:get_pose/hostname:get/keep_connect等
+     */
+    public static final int PRIORITY_TELEMETRY = 3;
+
+    private final String port;
+    private final int baudRate;
+    private final FrameDecoder decoder = new FrameDecoder(new FrameDecoder.OnFrameListener() {
+        @Override
+        public void onFrame(byte type, byte[] data, int offset, int len) {
+            if (type == FrameDecoder.TYPE_DATA && len != 0) {
+                if (duplicateFilter != null) duplicateFilter.onReceive(data, offset, len);
+                byte[] frame = Arrays.copyOfRange(data, offset, offset + len);
+                dispatcher.offer(frame);
+                for (ListenerMailbox mailbox : mailboxes) {
+                    mailbox.offer(frame);
+                }
+            }
+        }
+
+        @Override
+        public void onChecksumError(byte type, byte[] data, int offset, int len) {
+            RosLog.w("导航数据包校验不通过%s", Parser.byteArrToHex(data, len));
+        }
+    });
+    private SerialPortParser parser;
+    private final SerialPortParser.ReadMode readMode;
+    private final SerialRuntime runtime;
+    private final TransportFactory transportFactory;
+    private final CaptureJournal capture;
+    private final List<ReceiveBuffer.Family> families;
+    private final ReceiveBuffer.Family fallback;
+    private final ReceiveBuffer receiveBuffer;
+    private final List<String> skipDuplicates;
+    private final DuplicateFilter duplicateFilter;
+    private final TopicRouter router = new TopicRouter();
+    private final ReportDemand reportDemand = new ReportDemand(this);
+    private final RobotStateStore stateStore = new RobotStateStore();
+    private final RequestTracker requestTracker;
+    private final ConfigState configState = new ConfigState();
+    private final ReportDispatcher reportDispatcher;
+    private final FrameDispatcher dispatcher;
+    private final List<RosCallback> inlineListeners = new ArrayList<>();
+    private volatile ListenerMailbox[] mailboxes = new ListenerMailbox[0];
+    private final CommandScheduler commandScheduler;
+
+    public RosCallbackParser(String port, int baudRate, RosCallback callback) {
+        this(port, baudRate, callback, ReceiveBuffer.defaultFamilies(), ReceiveBuffer.defaultFallback(), new ArrayList<>(), 0, 0, SerialPortParser.ReadMode.IMMEDIATE, SerialRuntime.getDefault(),
+                Platform.get().transportFactory(), null);
+    }
+
+    private RosCallbackParser(String port, int baudRate, RosCallback callback, List<ReceiveBuffer.Family> families, ReceiveBuffer.Family fallback,
+                              List<String> skipDuplicates, long sendInterval, long replyMaxAge, SerialPortParser.ReadMode readMode,
+                              SerialRuntime runtime, TransportFactory transportFactory, CaptureJournal capture) {
+        this.port = port;
+        this.baudRate = baudRate;
+        this.families = families;
+        this.fallback = fallback;
+        this.receiveBuffer = new ReceiveBuffer(families, fallback);
+        this.skipDuplicates = skipDuplicates;
+        this.duplicateFilter = skipDuplicates.isEmpty() ? null : new DuplicateFilter(skipDuplicates);
+        this.readMode = readMode;
+        this.runtime = runtime;
+        this.transportFactory = transportFactory;
+        this.capture = capture;
+        this.requestTracker = new RequestTracker(runtime.timers(), replyMaxAge);
+        this.reportDispatcher = new ReportDispatcher(router, stateStore, requestTracker, configState, duplicateFilter);
+        this.dispatcher = new FrameDispatcher(runtime, receiveBuffer, reportDispatcher);
+        this.commandScheduler = new CommandScheduler(runtime, this, baudRate, sendInterval);
+        if (callback != null) addListener(callback);
+    }
+
+    public void startListen() throws Exception {
+        requestTracker.start();
+        configState.invalidate();
+        if (duplicateFilter != null) duplicateFilter.reset();
+        for (ListenerMailbox mailbox : mailboxes) {
+            mailbox.start();
+        }
+        dispatcher.start();
+        Transport transport = null;
+        try {
+            transport = transportFactory.open(runtime, port, baudRate);
+            if (capture != null) transport = capture.tap(transport);
+            parser = new SerialPortParser(runtime, transport, readMode, (bytes, len) -> decoder.feed(bytes, 0, len));
+            parser.start();
+        } catch (Exception | Error e) {
+            //打开失败时关闭已打开的串口,撤销之前的启动
+            if (parser != null) {
+                parser.stop();
+                parser = null;
+            } else if (transport != null) {
+                transport.close();
+            }
+            requestTracker.stop();
+            dispatcher.stop();
+            for (ListenerMailbox mailbox : mailboxes) {
+                mailbox.stop();
+            }
+            throw e;
+        }
+        commandScheduler.start();
+        reportDemand.start();
+    }
+
+    public void stopListen() {
+        reportDemand.stop();
+        commandScheduler.stop();
+        requestTracker.stop();
+        if (parser != null) {
+            parser.stop();
+            parser = null;
+        }
+        dispatcher.stop();
+        for (ListenerMailbox mailbox : mailboxes) {
+            mailbox.stop();
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException 指令超过{@link CommandEncoder#MAX_DATA_LENGTH}字节
+     */
+    public void sendCommand(String cmd) {
+        sendCommand(CommandEncoder.local().begin(cmd).end());
+        configState.onSent(cmd);
+    }
+
+    /**
+     * 发送配置指令,与ROS当前的值相同时不发送
+     * <p>
+     * 支持max_vel[x]、set_stop_time[x]、set_globalcost_p[x]、set_tolerance[x]、switch_lidar[on/off],
+     * 当前值来自get_max_vel:x等回复或最后发送的值,其他指令直接发送;
+     * 重新打开串口、发送sys:reboot后或调用{@link #resyncConfig()}后下一次设置一定发送
+     *
+     * @return false: 与当前值相同,未发送
+     */
+    public boolean sendConfig(String cmd) {
+        if (configState.isRedundant(cmd)) return false;
+        sendCommand(cmd);
+        return true;
+    }
+
+    /**
+     * 忘记所有配置的当前值,ROS的配置可能被其他程序修改时调用
+     */
+    public void resyncConfig() {
+        configState.invalidate();
+    }
+
+    /**
+     * @return {@link #sendConfig(String)}跳过的指令数
+     */
+    public long getSuppressedConfigCount() {
+        return configState.getSuppressed();
+    }
+
+    /**
+     * @return 串口、分发和定时线程所属的运行环境
+     */
+    public SerialRuntime getRuntime() {
+        return runtime;
+    }
+
+    /**
+     * 发送编码好的指令,数据复制到发送队列后即可复用encoder
+     */
+    public void sendCommand(CommandEncoder encoder) {
+        try {
+            parser.sendCommand(encoder.buffer(), 0, encoder.length());
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 按默认优先级排队发送,优先级见{@link #PRIORITY_SAFETY}等
+     *
+     * @throws IllegalArgumentException 指令超过{@link CommandEncoder#MAX_DATA_LENGTH}字节
+     */
+    public void sendCommandToQueue(String cmd) {
+        if (cmd == null || cmd.isEmpty()) return;
+        sendCommandToQueue(cmd, CommandScheduler.priorityOf(cmd));
+    }
+
+    /**
+     * @param priority {@link #PRIORITY_SAFETY}/{@link #PRIORITY_NAVIGATION}/{@link #PRIORITY_CONFIG}/{@link #PRIORITY_TELEMETRY}
+     * @throws IllegalArgumentException 指令超过{@link CommandEncoder#MAX_DATA_LENGTH}字节
+     */
+    public void sendCommandToQueue(String cmd, int priority) {
+        if (cmd == null || cmd.isEmpty()) return;
+        //排队前检查长度,避免在发送线程中才失败
+        commandScheduler.offer(cmd, priority, CommandEncoder.local().begin(cmd).end().length());
+    }
+
+    /**
+     * 添加监听器,在分发线程中按到达顺序回调,与订阅共用一个线程,适合不阻塞的回调
+     */
+    public synchronized void addListener(RosCallback listener) {
+        inlineListeners.add(listener);
+        reportDispatcher.setListeners(inlineListeners.toArray(new RosCallback[0]));
+    }
+
+    /**
+     * 添加监听器,在executor中按到达顺序回调
+     * <p>
+     * 每个监听器单独缓存待回调的数据,回调阻塞只影响自己,缓存策略与分发线程相同;
+     * 多个监听器可共用一个线程池,同一个监听器的回调不会并发执行
+     *
+     * @param executor 如{@link #mainThreadExecutor()},或应用自己的后台线程池
+     */
+    public synchronized void addListener(RosCallback listener, Executor executor) {
+        ListenerMailbox[] grown = Arrays.copyOf(mailboxes, mailboxes.length + 1);
+        grown[mailboxes.length] = new ListenerMailbox(listener, executor, families, fallback,
+                skipDuplicates.isEmpty() ? null : new DuplicateFilter(skipDuplicates));
+        mailboxes = grown;
+    }
+
+    /**
+     * 移除监听器,未回调的数据直接丢弃
+     */
+    public synchronized void removeListener(RosCallback listener) {
+        if (inlineListeners.remove(listener)) {
+            reportDispatcher.setListeners(inlineListeners.toArray(new RosCallback[0]));
+        }
+        List<ListenerMailbox> remaining = new ArrayList<>();
+        for (ListenerMailbox mailbox : mailboxes) {
+            if (mailbox.listener == listener) {
+                mailbox.stop();
+            } else {
+                remaining.add(mailbox);
+            }
+        }
+        mailboxes = remaining.toArray(new ListenerMailbox[0]);
+    }
+
+    /**
+     * 在主线程中回调的executor,只能在Android上使用
+     */
+    public static Executor mainThreadExecutor() {
+        return Platform.get().mainThreadExecutor();
+    }
+
+    /**
+     * 发送查询指令,以replyPrefix开头的第一条消息作为回复
+     * <p>
+     * 同一前缀的多个查询按发送顺序依次匹配回复;回复同时照常分发给监听器和订阅。
+     * 相同指令的查询在收到回复前不重复发送,所有调用方得到同一个回复,
+     * 各自的超时和取消互不影响;设置了{@link Builder#replyMaxAge(long)}时有效期内的回复直接作为结果
+     *
+     * @param command       查询指令,如"hostname:get"
+     * @param replyPrefix   回复前缀,如"sys:boot:"
+     * @param timeoutMillis 超时后以{@link java.util.concurrent.TimeoutException}完成
+     * @return 回复的完整消息
+     */
+    public RosFuture<String> request(String command, String replyPrefix, long timeoutMillis) {
+        return request(command, replyPrefix, (data, offset, len, reportParser) -> Parser.bytesToString(data, offset, len), timeoutMillis);
+    }
+
+    <T> RosFuture<T> request(String command, String replyPrefix, RequestTracker.Reply<T> reply, long timeoutMillis) {
+        return requestTracker.register(command, replyPrefix, reply, timeoutMillis, () -> sendCommand(command));
+    }
+
+    /**
+     * 读取最新的坐标、底盘状态、电流、导航状态和最大速度,可在任意线程调用,不加锁不分配内存
+     *
+     * @param out 由调用方创建并复用
+     * @return out
+     */
+    public RobotState getState(RobotState out) {
+        return stateStore.read(out);
+    }
+
+    /**
+     * 订阅指定类型的上报,回调在分发线程中执行,参数会被复用,只在回调期间有效;
+     * 坐标、激光、电池动态信息在第一个订阅出现时自动打开上报,最后一个订阅取消时关闭
+     *
+     * @param topic   {@link Topic#NAV_RESULT}/{@link Topic#POSE}等,或{@link Topic#of(String)}
+     * @param handler 回调
+     */
+    public <T> void subscribe(Topic<T> topic, MessageHandler<? super T> handler) {
+        router.add(topic, handler);
+        reportDemand.acquire(topic);
+    }
+
+    /**
+     * 订阅以prefix开头的消息,如"nav_result"/"sys:boot"
+     */
+    public void subscribe(String prefix, MessageHandler<? super String> handler) {
+        subscribe(Topic.of(prefix), handler);
+    }
+
+    /**
+     * 订阅没有匹配任何订阅的消息
+     */
+    public void subscribeUnmatched(MessageHandler<String> handler) {
+        router.addUnmatched(handler);
+    }
+
+    /**
+     * 取消handler的所有订阅,没有订阅的高频上报会被关闭
+     */
+    public void unsubscribe(MessageHandler<?> handler) {
+        reportDemand.release(router.remove(handler));
+    }
+
+    /**
+     * @return 超过容量被丢弃的消息数量
+     */
+    public long getDroppedCount() {
+        long dropped = receiveBuffer.getDropped();
+        for (ListenerMailbox mailbox : mailboxes) {
+            dropped += mailbox.getDropped();
+        }
+        return dropped;
+    }
+
+    /**
+     * @return 被更新的数据覆盖的消息数量
+     */
+    public long getCoalescedCount() {
+        long coalesced = receiveBuffer.getCoalesced();
+        for (ListenerMailbox mailbox : mailboxes) {
+            coalesced += mailbox.getCoalesced();
+        }
+        return coalesced;
+    }
+
+    /**
+     * @return 排队发送时被更新的指令替换或被停止指令丢弃的指令数量
+     */
+    public long getCoalescedCommandCount() {
+        return commandScheduler.getCoalesced();
+    }
+
+    /**
+     * @return 与上一条相同被跳过的消息数量,见{@link Builder#skipDuplicates(String)}
+     */
+    public long getSkippedCount() {
+        return duplicateFilter == null ? 0 : duplicateFilter.getSkipped();
+    }
+
+    /**
+     * @param prefix {@link Builder#skipDuplicates(String)}设置的前缀
+     * @return 最后一次收到该类消息的时间{@link Platform#elapsedRealtime()},包括被跳过的消息;未收到过返回0
+     */
+    public long getLastSeen(String prefix) {
+        return duplicateFilter == null ? 0 : duplicateFilter.getLastSeen(prefix);
+    }
+
+    public static class Builder {
+        private String port;
+        private int baudRate;
+        private RosCallback callback;
+        private final List<RosCallback> listeners = new ArrayList<>();
+        private final List<Executor> executors = new ArrayList<>();
+        private final List<ReceiveBuffer.Family> families = new ArrayList<>();
+        private ReceiveBuffer.Family fallback = ReceiveBuffer.defaultFallback();
+        private final List<String> skipDuplicates = new ArrayList<>();
+        private long sendInterval;
+        private long replyMaxAge;
+        private SerialPortParser.ReadMode readMode = SerialPortParser.ReadMode.IMMEDIATE;
+        private SerialRuntime runtime;
+        private TransportFactory transportFactory;
+        private CaptureJournal capture;
+
+        public Builder port(String port) {
+            this.port = port;
+            return this;
+        }
+
+        public Builder baudRate(int baudRate) {
+            this.baudRate = baudRate;
+            return this;
+        }
+
+        /**
+         * 在分发线程中回调的监听器
+         */
+        public Builder callback(RosCallback callback) {
+            this.callback = callback;
+            return this;
+        }
+
+        /**
+         * @see RosCallbackParser#addListener(RosCallback, Executor)
+         */
+        public Builder addListener(RosCallback listener, Executor executor) {
+            listeners.add(listener);
+            executors.add(executor);
+            return this;
+        }
+
+        /**
+         * 设置以prefix开头的消息在回调阻塞时的缓存策略,优先于默认策略
+         *
+         * @param prefix   消息前缀,如"laser["
+         * @param policy   {@link #POLICY_RELIABLE}/{@link #POLICY_LATEST}/{@link #POLICY_DROP_OLDEST}
+         * @param capacity 缓存数量,{@link #POLICY_LATEST}固定为1,{@link #POLICY_RELIABLE}为初始容量,最多扩容到1024条
+         */
+        public Builder receivePolicy(String prefix, int policy, int capacity) {
+            families.add(new ReceiveBuffer.Family(prefix, policy, capacity));
+            return this;
+        }
+
+        /**
+         * 设置未匹配任何前缀的消息的缓存策略,默认{@link #POLICY_DROP_OLDEST}保留最新的64条
+         */
+        public Builder defaultReceivePolicy(int policy, int capacity) {
+            fallback = new ReceiveBuffer.Family("", policy, capacity);
+            return this;
+        }
+
+        /**
+         * 以prefix开头的消息与上一条完全相同时不再回调监听器和订阅,如"core_data{";
+         * 被跳过的消息仍会更新状态快照、查询的回复和{@link RosCallbackParser#getLastSeen(String)},
+         * 数量见{@link RosCallbackParser#getSkippedCount()}
+         */
+        public Builder skipDuplicates(String prefix) {
+            skipDuplicates.add(prefix);
+            return this;
+        }
+
+        /**
+         * 排队发送的指令之间的最小间隔,默认0,只受串口发送速度限制
+         *
+         * @param sendInterval 毫秒
+         */
+        public Builder sendInterval(long sendInterval) {
+            this.sendInterval = sendInterval;
+            return this;
+        }
+
+        /**
+         * 查询回复的有效期,有效期内相同指令的查询直接使用上次的回复,不再发送;默认0,每次都重新查询
+         *
+         * @param replyMaxAge 毫秒,如位置查询可设为100
+         * @see RosCallbackParser#request(String, String, long)
+         */
+        public Builder replyMaxAge(long replyMaxAge) {
+            this.replyMaxAge = replyMaxAge;
+            return this;
+        }
+
+        /**
+         * 串口读取策略,默认{@link SerialPortParser.ReadMode#IMMEDIATE}
+         */
+        public Builder readMode(SerialPortParser.ReadMode readMode) {
+            this.readMode = readMode;
+            return this;
+        }
+
+        /**
+         * 线程的优先级和线程池,默认{@link SerialRuntime#getDefault()}
+         */
+        public Builder runtime(SerialRuntime runtime) {
+            this.runtime = runtime;
+            return this;
+        }
+
+        /**
+         * 打开串口的方式,默认{@link Platform#transportFactory()};
+         * 如{@link com.reeman.serialport.transport.TcpTransportFactory}或连接模拟器的{@link com.reeman.serialport.sim.RosSimulator#loopback()}
+         */
+        public Builder transport(TransportFactory transportFactory) {
+            this.transportFactory = transportFactory;
+            return this;
+        }
+
+        /**
+         * 记录串口读写的原始数据,用于复现问题和回放,见{@link com.reeman.serialport.capture.CaptureReplay};
+         * 停止监听时不关闭journal
+         */
+        public Builder capture(CaptureJournal journal) {
+            this.capture = journal;
+            return this;
+        }
+
+        public RosCallbackParser build() {
+            List<ReceiveBuffer.Family> list = new ArrayList<>(families);
+            list.addAll(ReceiveBuffer.defaultFamilies());
+            RosCallbackParser parser = new RosCallbackParser(port, baudRate, callback, list, fallback, skipDuplicates, sendInterval, replyMaxAge, readMode,
+                    runtime == null ? SerialRuntime.getDefault() : runtime,
+                    transportFactory == null ? Platform.get().transportFactory() : transportFactory, capture);
+            for (int i = 0; i < listeners.size(); i++) {
+                parser.addListener(listeners.get(i), executors.get(i));
+            }
+            return parser;
+        }
+    }
+
+    public interface RosCallback {
+        void onResult(String result);
+    }
+
+    public interface MessageHandler<T> {
+        void onMessage(T message);
+    }
+
+    /**
+     * 按类型回调ROS上报,已知类型不再回调{@link #onResult(String)},未覆盖的类型直接忽略;
+     * 回调参数会被复用,只在回调期间有效
+     */
+    public interface RosReportCallback extends RosCallback {
+        /**
+         * nav_result{state code name dist_to_goal mileage}
+         */
+        default void onNavResult(NavResult navResult) {
+        }
+
+        /**
+         * core_data{bumper cliff button battery charger}
+         */
+        default void onCoreData(CoreData coreData) {
+        }
+
+        /**
+         * pose[x,y,radian]/pose:notfound
+         */
+        default void onPose(Pose pose) {
+        }
+
+        /**
+         * battery_info{manufacturer nominal_voltage temperature cycle_times rated_capacity full_capacity capacity health}
+         */
+        default void onBatteryInfo(BatteryInfo batteryInfo) {
+        }
+
+        /**
+         * current_info{voltage current adapter_current warning offline}
+         */
+        default void onCurrentInfo(CurrentInfo currentInfo) {
+        }
+
+        /**
+         * 其他类型的上报
+         */
+        @Override
+        void onResult(String result);
+    }
+}
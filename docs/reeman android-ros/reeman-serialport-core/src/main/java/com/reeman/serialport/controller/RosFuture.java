@@ -0,0 +1,170 @@
+package com.reeman.serialport.controller;
+
+import com.reeman.serialport.platform.RosLog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 异步查询的结果
+ * <p>
+ * 由收到的回复、超时或取消完成,完成后不再改变;可阻塞等待{@link #get()},
+ * 也可通过{@link #addListener(Callback, Executor)}在指定线程中回调。
+ * minSdk 21不能使用CompletableFuture,接口按其常用部分设计
+ *
+ * @param <T> 回复解析后的类型
+ */
+public class RosFuture<T> implements Future<T> {
+    private static final int PENDING = 0;
+    private static final int SUCCESS = 1;
+    private static final int FAILED = 2;
+    private static final int CANCELLED = 3;
+
+    private int state = PENDING;
+    private T value;
+    private Throwable error;
+    private List<Runnable> listeners;
+
+    public boolean complete(T value) {
+        return finish(SUCCESS, value, null);
+    }
+
+    public boolean completeExceptionally(Throwable error) {
+        return finish(FAILED, null, error);
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return finish(CANCELLED, null, new CancellationException());
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return state == CANCELLED;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return state != PENDING;
+    }
+
+    @Override
+    public synchronized T get() throws InterruptedException, ExecutionException {
+        while (state == PENDING) {
+            wait();
+        }
+        return result();
+    }
+
+    @Override
+    public synchronized T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (state == PENDING) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) throw new TimeoutException();
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return result();
+    }
+
+    /**
+     * 完成后在executor中回调,已完成时立即提交
+     */
+    public RosFuture<T> addListener(Callback<? super T> callback, Executor executor) {
+        Runnable listener = () -> {
+            T result;
+            Throwable failure;
+            synchronized (RosFuture.this) {
+                result = value;
+                failure = error;
+            }
+            callback.onComplete(result, failure);
+        };
+        synchronized (this) {
+            if (state == PENDING) {
+                if (listeners == null) listeners = new ArrayList<>(2);
+                listeners.add(() -> execute(executor, listener));
+                return this;
+            }
+        }
+        execute(executor, listener);
+        return this;
+    }
+
+    /**
+     * 完成后在完成的线程中回调,回调不能阻塞
+     */
+    public RosFuture<T> addListener(Callback<? super T> callback) {
+        return addListener(callback, Runnable::run);
+    }
+
+    /**
+     * 所有查询都完成后完成,任意一个失败时以该异常完成
+     */
+    public static RosFuture<Void> allOf(RosFuture<?>... futures) {
+        RosFuture<Void> all = new RosFuture<>();
+        if (futures.length == 0) {
+            all.complete(null);
+            return all;
+        }
+        AtomicInteger remaining = new AtomicInteger(futures.length);
+        for (RosFuture<?> future : futures) {
+            future.addListener((result, error) -> {
+                if (error != null) {
+                    all.completeExceptionally(error);
+                } else if (remaining.decrementAndGet() == 0) {
+                    all.complete(null);
+                }
+            });
+        }
+        return all;
+    }
+
+    private T result() throws ExecutionException {
+        if (state == SUCCESS) return value;
+        if (state == CANCELLED) throw (CancellationException) error;
+        throw new ExecutionException(error);
+    }
+
+    private boolean finish(int newState, T newValue, Throwable newError) {
+        List<Runnable> pending;
+        synchronized (this) {
+            if (state != PENDING) return false;
+            state = newState;
+            value = newValue;
+            error = newError;
+            pending = listeners;
+            listeners = null;
+            notifyAll();
+        }
+        if (pending != null) {
+            for (Runnable listener : pending) {
+                listener.run();
+            }
+        }
+        return true;
+    }
+
+    private static void execute(Executor executor, Runnable listener) {
+        try {
+            executor.execute(listener);
+        } catch (Exception e) {
+            RosLog.w(e, "查询结果回调出错");
+        }
+    }
+
+    public interface Callback<T> {
+        /**
+         * @param result 成功时的结果
+         * @param error  失败时的异常,超时为{@link TimeoutException},取消为{@link CancellationException};成功时为null
+         */
+        void onComplete(T result, Throwable error);
+    }
+}
@@ -0,0 +1,132 @@
+package com.reeman.serialport.controller;
+
+import com.reeman.serialport.platform.Platform;
+import com.reeman.serialport.transport.Transport;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 一个串口的读写,串口由{@link Transport}打开和读取,写入使用本串口在{@link SerialRuntime}中的写线程
+ */
+public class SerialPortParser {
+    private final Transport transport;
+    private final ReadMode mode;
+    private OnDataResultListener listener;
+    private boolean started;
+    private final SerialWriter writer;
+
+    public SerialPortParser(File file, int baudRate, OnDataResultListener listener) throws Exception {
+        this(file, baudRate, ReadMode.IMMEDIATE, listener);
+    }
+
+    /**
+     * @param mode 读到多少数据或等待多久后回调
+     */
+    public SerialPortParser(File file, int baudRate, ReadMode mode, OnDataResultListener listener) throws Exception {
+        this(SerialRuntime.getDefault(), file, baudRate, mode, listener);
+    }
+
+    /**
+     * 使用平台默认的实现打开串口,见{@link Platform#transportFactory()}
+     *
+     * @param runtime 读写线程所属的运行环境
+     * @param mode    读到多少数据或等待多久后回调
+     */
+    public SerialPortParser(SerialRuntime runtime, File file, int baudRate, ReadMode mode, OnDataResultListener listener) throws Exception {
+        this(runtime, Platform.get().transportFactory().open(runtime, file.getPath(), baudRate), mode, listener);
+    }
+
+    /**
+     * @param transport 已打开的串口,{@link #stop()}时关闭
+     * @param mode      读到多少数据或等待多久后回调
+     */
+    public SerialPortParser(SerialRuntime runtime, Transport transport, ReadMode mode, OnDataResultListener listener) {
+        this.transport = transport;
+        this.mode = mode;
+        this.listener = listener;
+        writer = new SerialWriter(runtime, transport.getOutputStream(), transport.getName());
+    }
+
+
+    public synchronized void start() throws IOException {
+        if (listener == null || started) return;
+        transport.start(mode, listener);
+        started = true;
+    }
+
+
+    public synchronized void stop() {
+        listener = null;
+        //先发送完已放入的指令再关闭串口
+        writer.stop();
+        transport.close();
+    }
+
+    /**
+     * 可在任意线程调用,在写线程中发送完整的帧
+     *
+     * @param bytes 完整的帧
+     */
+    public void sendCommand(byte[] bytes) throws IOException {
+        writer.offer(bytes, 0, bytes.length);
+    }
+
+    /**
+     * 可在任意线程调用,数据复制到发送队列后返回,调用后可以复用data
+     */
+    public void sendCommand(byte[] data, int offset, int length) {
+        writer.offer(data, offset, length);
+    }
+
+    public interface OnDataResultListener {
+        /**
+         * 在读线程中回调
+         *
+         * @param bytes 复用的缓冲区,只在回调期间有效
+         */
+        void onDataResult(byte[] bytes, int len);
+
+    }
+
+    /**
+     * 读取策略,类似termios的VMIN/VTIME
+     * <p>
+     * 读线程在数据到达时被唤醒,已读到minBytes字节或interByteTimeout毫秒内没有新数据时回调;
+     * {@link #IMMEDIATE}延迟最低,适合导航数据;批量读取回调次数少,适合写文件等单次回调开销大的场景
+     */
+    public static final class ReadMode {
+        /**
+         * 有数据就回调
+         */
+        public static final ReadMode IMMEDIATE = new ReadMode(1, 0);
+
+        private final int minBytes;
+        private final long interByteTimeout;
+
+        private ReadMode(int minBytes, long interByteTimeout) {
+            this.minBytes = minBytes;
+            this.interByteTimeout = interByteTimeout;
+        }
+
+        /**
+         * @param minBytes         读到的字节数达到该值时立即回调,最多1024
+         * @param interByteTimeout 未达到minBytes时,超过该时间没有新数据也回调,毫秒
+         */
+        public static ReadMode batch(int minBytes, long interByteTimeout) {
+            if (minBytes < 1 || interByteTimeout < 0 || interByteTimeout > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("minBytes: " + minBytes + ", interByteTimeout: " + interByteTimeout);
+            }
+            return new ReadMode(minBytes, interByteTimeout);
+        }
+
+        public int getMinBytes() {
+            return minBytes;
+        }
+
+        public long getInterByteTimeout() {
+            return interByteTimeout;
+        }
+    }
+
+}
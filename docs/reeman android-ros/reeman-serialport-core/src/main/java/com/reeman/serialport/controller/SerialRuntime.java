@@ -0,0 +1,272 @@
+package com.reeman.serialport.controller;
+
+import com.reeman.serialport.platform.Platform;
+import com.reeman.serialport.platform.RosLog;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 串口库的所有线程
+ * <p>
+ * 线程按用途分为:
+ * <ul>
+ * <li>{@link #ROLE_IO}: 串口读线程、每个串口的写线程和指令发送线程池</li>
+ * <li>{@link #ROLE_DISPATCH}: 上报分发线程池,监听器和订阅在此回调</li>
+ * <li>{@link #ROLE_TIMER}: 查询超时等定时任务</li>
+ * <li>{@link #ROLE_BACKGROUND}: 日志上传等耗时的后台任务</li>
+ * </ul>
+ * 线程统一命名为serial-用途-名称,均为守护线程,未调用stopListen也不会阻止进程退出;
+ * 除读线程外空闲30秒后结束,各线程池都可替换为应用提供的线程池,应用提供的线程池由应用关闭。
+ * 后台任务有自己的线程,不会占用读写和分发线程。
+ * <p>
+ * 同一个运行环境可供多个串口和控制器共用,除读写外线程数不随串口数增加:每个串口同一时刻最多占用一个发送和一个分发线程,
+ * 保证各自的顺序,不同串口可在线程池的不同线程中并行;写入会阻塞到数据交给串口驱动,每个串口有自己的写线程,
+ * 一个串口写入大量数据不会延迟其他串口
+ *
+ * <pre>
+ * SerialRuntime runtime = new SerialRuntime.Builder()
+ *         .priority(SerialRuntime.ROLE_IO, SerialRuntime.PRIORITY_URGENT_DISPLAY)
+ *         .backgroundExecutor(appScheduledExecutor)
+ *         .build();
+ * new RosCallbackParser.Builder().runtime(runtime)...
+ * </pre>
+ */
+public class SerialRuntime {
+    public static final int ROLE_IO = 0;
+    public static final int ROLE_DISPATCH = 1;
+    public static final int ROLE_TIMER = 2;
+    public static final int ROLE_BACKGROUND = 3;
+
+    /**
+     * 线程优先级,与android.os.Process的THREAD_PRIORITY_*相同
+     */
+    public static final int PRIORITY_URGENT_DISPLAY = -8;
+    public static final int PRIORITY_DISPLAY = -4;
+    public static final int PRIORITY_FOREGROUND = -2;
+    public static final int PRIORITY_DEFAULT = 0;
+    public static final int PRIORITY_BACKGROUND = 10;
+
+    private static final String[] ROLE_NAMES = {"io", "dispatch", "timer", "background"};
+    private static final long KEEP_ALIVE = 30;
+    private static volatile SerialRuntime defaultRuntime;
+
+    private final int[] priorities;
+    private final Executor io;
+    private final Executor dispatch;
+    private final ScheduledExecutorService timers;
+    private final ScheduledExecutorService background;
+    private final boolean ownsIo;
+    private final boolean ownsDispatch;
+    private final boolean ownsTimers;
+    private final boolean ownsBackground;
+
+    private SerialRuntime(Builder builder) {
+        this.priorities = builder.priorities.clone();
+        this.ownsIo = builder.io == null;
+        this.ownsDispatch = builder.dispatch == null;
+        this.io = ownsIo ? newExecutor(ROLE_IO, builder.ioThreads) : builder.io;
+        this.dispatch = ownsDispatch ? newExecutor(ROLE_DISPATCH, builder.dispatchThreads) : builder.dispatch;
+        this.ownsTimers = builder.timers == null;
+        this.ownsBackground = builder.background == null;
+        this.timers = ownsTimers ? newScheduledExecutor(ROLE_TIMER) : builder.timers;
+        this.background = ownsBackground ? newScheduledExecutor(ROLE_BACKGROUND) : builder.background;
+    }
+
+    /**
+     * @return 未指定时使用的默认配置
+     */
+    public static SerialRuntime getDefault() {
+        if (defaultRuntime == null) {
+            synchronized (SerialRuntime.class) {
+                if (defaultRuntime == null) {
+                    defaultRuntime = new Builder().build();
+                }
+            }
+        }
+        return defaultRuntime;
+    }
+
+    /**
+     * 定时任务,回调不能阻塞
+     */
+    public ScheduledExecutorService timers() {
+        return timers;
+    }
+
+    /**
+     * 耗时的后台任务
+     */
+    public ScheduledExecutorService background() {
+        return background;
+    }
+
+    /**
+     * 关闭自己创建的线程池,应用提供的线程池不关闭;关闭后不能再使用,默认运行环境不要关闭
+     */
+    public void shutdown() {
+        if (ownsIo) ((ExecutorService) io).shutdownNow();
+        if (ownsDispatch) ((ExecutorService) dispatch).shutdownNow();
+        if (ownsTimers) timers.shutdownNow();
+        if (ownsBackground) background.shutdownNow();
+    }
+
+    /**
+     * 指令发送,任务不能长时间阻塞
+     */
+    Executor io() {
+        return io;
+    }
+
+    /**
+     * 上报分发
+     */
+    Executor dispatch() {
+        return dispatch;
+    }
+
+    /**
+     * 创建指定用途的线程,线程启动时设置该用途的优先级,串口实现用于创建读线程
+     *
+     * @param name 线程名称为serial-用途-name
+     */
+    public Thread newThread(int role, Runnable runnable, String name) {
+        int priority = priorities[role];
+        Thread thread = new Thread(() -> {
+            try {
+                Platform.get().setThreadPriority(priority);
+            } catch (Exception e) {
+                RosLog.w(e, "设置线程优先级失败 %s", priority);
+            }
+            runnable.run();
+        }, "serial-" + ROLE_NAMES[role] + "-" + name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * 创建一个串口的写线程,空闲30秒后结束,串口关闭时由调用方关闭
+     *
+     * @param name 线程名称为serial-io-write-name
+     */
+    ExecutorService newWriter(String name) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, KEEP_ALIVE, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> newThread(ROLE_IO, r, "write-" + name));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private ThreadPoolExecutor newExecutor(int role, int threads) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> newThread(role, r, String.valueOf(count.incrementAndGet())));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private ScheduledExecutorService newScheduledExecutor(int role) {
+        AtomicInteger count = new AtomicInteger();
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1,
+                r -> newThread(role, r, String.valueOf(count.incrementAndGet())));
+        executor.setRemoveOnCancelPolicy(true);
+        executor.setKeepAliveTime(KEEP_ALIVE, TimeUnit.SECONDS);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    public static class Builder {
+        private final int[] priorities = {
+                PRIORITY_DISPLAY,
+                PRIORITY_FOREGROUND,
+                PRIORITY_DEFAULT,
+                PRIORITY_BACKGROUND
+        };
+        private int ioThreads = 1;
+        private int dispatchThreads = 1;
+        private Executor io;
+        private Executor dispatch;
+        private ScheduledExecutorService timers;
+        private ScheduledExecutorService background;
+
+        /**
+         * 设置线程优先级,默认读写{@link #PRIORITY_DISPLAY}、分发{@link #PRIORITY_FOREGROUND}、
+         * 定时{@link #PRIORITY_DEFAULT}、后台{@link #PRIORITY_BACKGROUND};
+         * 使用应用提供的线程池时不设置,普通JVM上不生效
+         *
+         * @param role     {@link #ROLE_IO}/{@link #ROLE_DISPATCH}/{@link #ROLE_TIMER}/{@link #ROLE_BACKGROUND}
+         * @param priority 如{@link #PRIORITY_DISPLAY},即android.os.Process#setThreadPriority(int)的参数,-20~19,越小越优先
+         */
+        public Builder priority(int role, int priority) {
+            if (role < ROLE_IO || role > ROLE_BACKGROUND) {
+                throw new IllegalArgumentException("role: " + role);
+            }
+            priorities[role] = priority;
+            return this;
+        }
+
+        /**
+         * 指令发送的线程数,默认1;多个串口同时发送大量指令时可增加,单个串口的顺序不受影响;写入使用每个串口自己的写线程
+         */
+        public Builder ioThreads(int ioThreads) {
+            this.ioThreads = checkThreads(ioThreads);
+            return this;
+        }
+
+        /**
+         * 上报分发的线程数,默认1;多个串口的回调耗时较长时可增加,如每个核一个,单个串口的回调顺序不受影响
+         */
+        public Builder dispatchThreads(int dispatchThreads) {
+            this.dispatchThreads = checkThreads(dispatchThreads);
+            return this;
+        }
+
+        /**
+         * 在应用提供的线程池中执行指令发送,设置后{@link #ioThreads(int)}不生效;
+         * 任务很短,但等待发送间隔时最多阻塞2毫秒,不要使用主线程
+         */
+        public Builder ioExecutor(Executor io) {
+            this.io = io;
+            return this;
+        }
+
+        /**
+         * 在应用提供的线程池中分发上报,设置后{@link #dispatchThreads(int)}不生效;
+         * 每个串口同一时刻最多一个分发任务,回调顺序不依赖线程池;监听器和订阅在此回调,回调耗时会延迟同一串口后续的上报
+         */
+        public Builder dispatchExecutor(Executor dispatch) {
+            this.dispatch = dispatch;
+            return this;
+        }
+
+        /**
+         * 在应用提供的线程池中执行定时任务,任务很短且不阻塞
+         */
+        public Builder timerExecutor(ScheduledExecutorService timers) {
+            this.timers = timers;
+            return this;
+        }
+
+        /**
+         * 在应用提供的线程池中执行日志上传等后台任务,不要与读写、分发共用线程
+         */
+        public Builder backgroundExecutor(ScheduledExecutorService background) {
+            this.background = background;
+            return this;
+        }
+
+        public SerialRuntime build() {
+            return new SerialRuntime(this);
+        }
+
+        private static int checkThreads(int threads) {
+            if (threads < 1) throw new IllegalArgumentException("threads: " + threads);
+            return threads;
+        }
+    }
+}
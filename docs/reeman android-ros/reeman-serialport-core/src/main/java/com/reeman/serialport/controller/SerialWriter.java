@@ -0,0 +1,148 @@
+package com.reeman.serialport.controller;
+
+import com.reeman.serialport.platform.RosLog;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 串口写入
+ * <p>
+ * 任意线程把编码好的帧复制到无锁环形队列的预分配槽位中,同一时刻只有一个写入任务操作输出流,帧不会被其他线程的数据打断;
+ * 写入任务每次把所有待发送的帧拼接到同一个缓冲区后调用一次write,减少系统调用,队列为空时结束;
+ * 只有没有写入任务时才向本串口的写线程提交。write会阻塞到数据交给驱动,115200波特率下4KB约350毫秒,
+ * 因此写线程由{@link SerialRuntime#newWriter(String)}为每个串口单独创建,不占用共用的线程池。队列满时发送方等待;
+ * 停止时先发送完已放入的帧,停止前发出的nav_cancel等指令不会丢失
+ */
+class SerialWriter implements Runnable {
+    private static final int BUFFER_SIZE = 4096;
+    private static final int SLOT_COUNT = 64;
+    /**
+     * 帧头2字节、长度1字节、最多255字节数据位、校验1字节
+     */
+    private static final int SLOT_SIZE = 259;
+    /**
+     * 停止时等待已放入的帧发送完成的最长时间,毫秒
+     */
+    private static final long DRAIN_TIMEOUT = 500;
+
+    private final OutputStream outputStream;
+    private final byte[][] slots = new byte[SLOT_COUNT][SLOT_SIZE];
+    private final int[] lengths = new int[SLOT_COUNT];
+    /**
+     * 槽位序号等于tail时可写入,等于head+1时可读取
+     */
+    private final AtomicLongArray sequences = new AtomicLongArray(SLOT_COUNT);
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final String name;
+    private final ExecutorService executor;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile boolean closing;
+    private volatile boolean stopped;
+
+    SerialWriter(SerialRuntime runtime, OutputStream outputStream, String name) {
+        this.outputStream = outputStream;
+        this.name = name;
+        this.executor = runtime.newWriter(name);
+        for (int i = 0; i < SLOT_COUNT; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 不再接收新的帧,等待已放入的帧写完,最多{@link #DRAIN_TIMEOUT}毫秒,之后关闭串口是安全的
+     */
+    void stop() {
+        closing = true;
+        schedule();
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(DRAIN_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                RosLog.w("%s 停止时未发送完", name);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        stopped = true;
+    }
+
+    /**
+     * 可在任意线程调用,复制后帧在写线程中发送
+     */
+    void offer(byte[] frame, int offset, int length) {
+        if (length > SLOT_SIZE) {
+            RosLog.w("帧长度超过%s,不发送", SLOT_SIZE);
+            return;
+        }
+        if (closing) return;
+        while (!stopped) {
+            long position = tail.get();
+            int index = (int) (position % SLOT_COUNT);
+            long sequence = sequences.get(index);
+            if (sequence == position) {
+                if (!tail.compareAndSet(position, position + 1)) continue;
+                System.arraycopy(frame, offset, slots[index], 0, length);
+                lengths[index] = length;
+                sequences.set(index, position + 1);
+                schedule();
+                return;
+            }
+            if (sequence < position) {
+                //队列已满,等待写入任务
+                schedule();
+                Thread.yield();
+            }
+        }
+    }
+
+    private void schedule() {
+        if (!scheduled.get() && scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this);
+            } catch (Exception e) {
+                scheduled.set(false);
+                if (!closing) RosLog.w(e, "%s 写入线程池拒绝执行", name);
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        do {
+            while (!stopped) {
+                int length = 0;
+                while (isReadable()) {
+                    int index = (int) (head % SLOT_COUNT);
+                    if (length + lengths[index] > buffer.length) break;
+                    System.arraycopy(slots[index], 0, buffer, length, lengths[index]);
+                    length += lengths[index];
+                    sequences.lazySet(index, head + SLOT_COUNT);
+                    head++;
+                }
+                if (length == 0) break;
+                write(length);
+            }
+            scheduled.set(false);
+            //释放后放入的帧由本任务继续写入,或已由发送方重新提交
+        } while (!stopped && isReadable() && scheduled.compareAndSet(false, true));
+    }
+
+    private boolean isReadable() {
+        return sequences.get((int) (head % SLOT_COUNT)) == head + 1;
+    }
+
+    private void write(int length) {
+        try {
+            outputStream.write(buffer, 0, length);
+        } catch (IOException e) {
+            RosLog.w(e, "%s 写入失败", name);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.reeman.serialport.controller;
+
+import com.reeman.serialport.report.Topic;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 按消息前缀路由订阅
+ * <p>
+ * 所有订阅前缀组成一棵字节前缀树,每条消息从根节点沿字节向下走一次,经过的节点上的订阅即为匹配的订阅;
+ * 订阅变化时重建整棵树后整体替换,路由时不加锁
+ */
+class TopicRouter {
+    private static final Subscription[] EMPTY = new Subscription[0];
+
+    private final List<Subscription> subscriptions = new ArrayList<>();
+    private volatile Node root = new Node();
+    private volatile Subscription[] unmatched = EMPTY;
+
+    synchronized void add(Topic<?> topic, RosCallbackParser.MessageHandler<?> handler) {
+        String[] prefixes = topic.getPrefixes();
+        for (int i = 0; i < prefixes.length; i++) {
+            subscriptions.add(new Subscription(topic, prefixes[i], handler, i == 0));
+        }
+        rebuild();
+    }
+
+    synchronized void addUnmatched(RosCallbackParser.MessageHandler<String> handler) {
+        subscriptions.add(new Subscription(null, null, handler, true));
+        rebuild();
+    }
+
+    /**
+     * @return 被移除的订阅对应的Topic,同一Topic订阅了几次就返回几次,未订阅过返回空列表
+     */
+    synchronized List<Topic<?>> remove(RosCallbackParser.MessageHandler<?> handler) {
+        List<Topic<?>> removed = new ArrayList<>();
+        Iterator<Subscription> iterator = subscriptions.iterator();
+        while (iterator.hasNext()) {
+            Subscription subscription = iterator.next();
+            if (subscription.handler == handler) {
+                iterator.remove();
+                if (subscription.topic != null && subscription.first) {
+                    removed.add(subscription.topic);
+                }
+            }
+        }
+        rebuild();
+        return removed;
+    }
+
+    /**
+     * 只在分发线程中调用
+     *
+     * @param matches 匹配的订阅,容量不足时扩容
+     * @return 匹配的订阅,数量为{@link Matches#size}
+     */
+    Matches match(byte[] data, int offset, int len, Matches matches) {
+        matches.size = 0;
+        Node node = root;
+        matches.addAll(node.subscriptions);
+        for (int i = offset; i < offset + len; i++) {
+            node = node.child(data[i]);
+            if (node == null) break;
+            matches.addAll(node.subscriptions);
+        }
+        if (matches.size == 0) {
+            matches.addAll(unmatched);
+        }
+        return matches;
+    }
+
+    private void rebuild() {
+        Node newRoot = new Node();
+        List<Subscription> newUnmatched = new ArrayList<>();
+        for (Subscription subscription : subscriptions) {
+            if (subscription.prefix == null) {
+                newUnmatched.add(subscription);
+                continue;
+            }
+            Node node = newRoot;
+            for (byte b : subscription.prefix) {
+                node = node.childOrCreate(b);
+            }
+            node.add(subscription);
+        }
+        unmatched = newUnmatched.toArray(EMPTY);
+        root = newRoot;
+    }
+
+    static class Subscription {
+        final Topic<?> topic;
+        final byte[] prefix;
+        final RosCallbackParser.MessageHandler<?> handler;
+        /**
+         * 一次订阅的多个前缀中的第一个
+         */
+        final boolean first;
+
+        Subscription(Topic<?> topic, String prefix, RosCallbackParser.MessageHandler<?> handler, boolean first) {
+            this.topic = topic;
+            this.prefix = prefix == null ? null : prefix.getBytes(StandardCharsets.UTF_8);
+            this.handler = handler;
+            this.first = first;
+        }
+    }
+
+    /**
+     * 分发线程复用的匹配结果,同一个handler匹配多个前缀时只保留一次
+     */
+    static class Matches {
+        Subscription[] items = new Subscription[4];
+        int size;
+
+        void addAll(Subscription[] subscriptions) {
+            for (Subscription subscription : subscriptions) {
+                if (!contains(subscription.handler)) add(subscription);
+            }
+        }
+
+        private boolean contains(RosCallbackParser.MessageHandler<?> handler) {
+            for (int i = 0; i < size; i++) {
+                if (items[i].handler == handler) return true;
+            }
+            return false;
+        }
+
+        private void add(Subscription subscription) {
+            if (size == items.length) {
+                Subscription[] grown = new Subscription[items.length * 2];
+                System.arraycopy(items, 0, grown, 0, size);
+                items = grown;
+            }
+            items[size++] = subscription;
+        }
+    }
+
+    private static class Node {
+        byte[] keys = new byte[0];
+        Node[] children = new Node[0];
+        Subscription[] subscriptions = EMPTY;
+
+        Node child(byte b) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == b) return children[i];
+            }
+            return null;
+        }
+
+        Node childOrCreate(byte b) {
+            Node child = child(b);
+            if (child != null) return child;
+            child = new Node();
+            int n = keys.length;
+            byte[] newKeys = new byte[n + 1];
+            Node[] newChildren = new Node[n + 1];
+            System.arraycopy(keys, 0, newKeys, 0, n);
+            System.arraycopy(children, 0, newChildren, 0, n);
+            newKeys[n] = b;
+            newChildren[n] = child;
+            keys = newKeys;
+            children = newChildren;
+            return child;
+        }
+
+        void add(Subscription subscription) {
+            Subscription[] grown = new Subscription[subscriptions.length + 1];
+            System.arraycopy(subscriptions, 0, grown, 0, subscriptions.length);
+            grown[subscriptions.length] = subscription;
+            subscriptions = grown;
+        }
+    }
+}
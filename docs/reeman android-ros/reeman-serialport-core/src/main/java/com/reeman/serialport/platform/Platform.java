@@ -0,0 +1,117 @@
+package com.reeman.serialport.platform;
+
+import com.reeman.serialport.controller.RobotActionController;
+import com.reeman.serialport.controller.SerialRuntime;
+import com.reeman.serialport.transport.FileTransportFactory;
+import com.reeman.serialport.transport.TransportFactory;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 串口库依赖的平台功能
+ * <p>
+ * 核心模块只使用JDK,日志、线程优先级、时钟、主线程和默认的串口实现由平台提供。
+ * 运行时存在reeman-serialport模块的{@value #ANDROID_PLATFORM}时使用它,
+ * 否则为普通JVM:日志输出到{@link Logger},直接读写设备文件,可在桌面和CI中运行
+ */
+public class Platform {
+    public static final int VERBOSE = 2;
+    public static final int DEBUG = 3;
+    public static final int INFO = 4;
+    public static final int WARN = 5;
+    public static final int ERROR = 6;
+
+    private static final String ANDROID_PLATFORM = "com.reeman.serialport.android.AndroidPlatform";
+    private static final Platform PLATFORM = findPlatform();
+
+    private final Logger logger = Logger.getLogger(RosLog.TAG);
+
+    protected Platform() {
+    }
+
+    public static Platform get() {
+        return PLATFORM;
+    }
+
+    private static Platform findPlatform() {
+        try {
+            return (Platform) Class.forName(ANDROID_PLATFORM).getDeclaredConstructor().newInstance();
+        } catch (ClassNotFoundException e) {
+            return new Platform();
+        } catch (Exception | LinkageError e) {
+            Platform platform = new Platform();
+            platform.log(WARN, "加载" + ANDROID_PLATFORM + "失败,使用JVM实现", e);
+            return platform;
+        }
+    }
+
+    /**
+     * @param priority {@link #VERBOSE}~{@link #ERROR},与android.util.Log相同
+     * @param t        可以为null
+     */
+    public void log(int priority, String message, Throwable t) {
+        logger.logp(level(priority), null, null, message, t);
+    }
+
+    /**
+     * 该级别的日志是否会输出,不输出时{@link RosLog}不格式化参数
+     *
+     * @param priority {@link #VERBOSE}~{@link #ERROR}
+     */
+    public boolean isLoggable(int priority) {
+        return logger.isLoggable(level(priority));
+    }
+
+    private static Level level(int priority) {
+        return priority >= ERROR ? Level.SEVERE
+                : priority == WARN ? Level.WARNING
+                : priority == INFO ? Level.INFO
+                : priority == DEBUG ? Level.FINE : Level.FINEST;
+    }
+
+    /**
+     * 在当前线程中调用,设置当前线程的优先级
+     *
+     * @param priority 与android.os.Process#setThreadPriority相同,-20~19,越小越优先;JVM上忽略
+     */
+    public void setThreadPriority(int priority) {
+    }
+
+    /**
+     * @return 单调递增的毫秒时间,不受修改系统时间影响;Android上为开机以来的时间
+     */
+    public long elapsedRealtime() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    /**
+     * @return 在主线程中执行的Executor
+     * @throws UnsupportedOperationException 平台没有主线程
+     */
+    public Executor mainThreadExecutor() {
+        throw new UnsupportedOperationException("当前平台没有主线程");
+    }
+
+    /**
+     * @return 按串口地址打开串口的默认实现
+     */
+    public TransportFactory transportFactory() {
+        return FileTransportFactory.INSTANCE;
+    }
+
+    /**
+     * 控制器开始监听后调用,启动平台相关的功能,如电源板日志、日志上传
+     *
+     * @param runtime  控制器使用的运行环境,后台任务在{@link SerialRuntime#background()}中执行
+     * @param logPaths 要上传到ros的日志目录
+     * @return 在stopListen时关闭,没有需要停止的功能时为null
+     */
+    public Closeable onStartListen(RobotActionController controller, SerialRuntime runtime, List<String> logPaths) {
+        return null;
+    }
+}
@@ -0,0 +1,58 @@
+package com.reeman.serialport.platform;
+
+/**
+ * 串口库的日志,标签为{@value #TAG},由{@link Platform}输出
+ * <p>
+ * 用法与Timber相同,有参数时按{@link String#format(String, Object...)}格式化;
+ * 该级别不输出时不格式化,参数的toString不会被调用,高频路径可以直接传入参数
+ */
+public final class RosLog {
+    public static final String TAG = "ros";
+
+    private RosLog() {
+    }
+
+    public static void v(String message, Object... args) {
+        log(Platform.VERBOSE, null, message, args);
+    }
+
+    public static void d(String message, Object... args) {
+        log(Platform.DEBUG, null, message, args);
+    }
+
+    public static void i(String message, Object... args) {
+        log(Platform.INFO, null, message, args);
+    }
+
+    public static void w(String message, Object... args) {
+        log(Platform.WARN, null, message, args);
+    }
+
+    public static void w(Throwable t, String message, Object... args) {
+        log(Platform.WARN, t, message, args);
+    }
+
+    public static void e(String message, Object... args) {
+        log(Platform.ERROR, null, message, args);
+    }
+
+    public static void e(Throwable t, String message, Object... args) {
+        log(Platform.ERROR, t, message, args);
+    }
+
+    /**
+     * 拼接日志参数本身有开销时先检查
+     *
+     * @param priority {@link Platform#VERBOSE}~{@link Platform#ERROR}
+     */
+    public static boolean isLoggable(int priority) {
+        return Platform.get().isLoggable(priority);
+    }
+
+    private static void log(int priority, Throwable t, String message, Object... args) {
+        Platform platform = Platform.get();
+        if (!platform.isLoggable(priority)) return;
+        if (args != null && args.length > 0) message = String.format(message, args);
+        platform.log(priority, message, t);
+    }
+}
@@ -0,0 +1,100 @@
+package com.reeman.serialport.report;
+
+import java.util.Objects;
+
+/**
+ * 电池固定信息
+ * <p>
+ * battery_info{manufacturer nominal_voltage temperature cycle_times rated_capacity full_capacity capacity health}
+ * <p>
+ * 对象会被复用,只在回调期间有效,需要保存时请使用{@link #BatteryInfo(BatteryInfo)}复制
+ */
+public class BatteryInfo {
+    String manufacturer;
+    double nominalVoltage;
+    double temperature;
+    int cycleTimes;
+    double ratedCapacity;
+    double fullCapacity;
+    double capacity;
+    int health;
+
+    public BatteryInfo() {
+    }
+
+    public BatteryInfo(BatteryInfo other) {
+        set(other);
+    }
+
+    public void set(BatteryInfo other) {
+        manufacturer = other.manufacturer;
+        nominalVoltage = other.nominalVoltage;
+        temperature = other.temperature;
+        cycleTimes = other.cycleTimes;
+        ratedCapacity = other.ratedCapacity;
+        fullCapacity = other.fullCapacity;
+        capacity = other.capacity;
+        health = other.health;
+    }
+
+    public String getManufacturer() {
+        return manufacturer;
+    }
+
+    public double getNominalVoltage() {
+        return nominalVoltage;
+    }
+
+    public double getTemperature() {
+        return temperature;
+    }
+
+    public int getCycleTimes() {
+        return cycleTimes;
+    }
+
+    public double getRatedCapacity() {
+        return ratedCapacity;
+    }
+
+    public double getFullCapacity() {
+        return fullCapacity;
+    }
+
+    public double getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return 健康度,旧版本导航不上报时为-1
+     */
+    public int getHealth() {
+        return health;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BatteryInfo that = (BatteryInfo) o;
+        return cycleTimes == that.cycleTimes
+                && health == that.health
+                && Double.compare(nominalVoltage, that.nominalVoltage) == 0
+                && Double.compare(temperature, that.temperature) == 0
+                && Double.compare(ratedCapacity, that.ratedCapacity) == 0
+                && Double.compare(fullCapacity, that.fullCapacity) == 0
+                && Double.compare(capacity, that.capacity) == 0
+                && Objects.equals(manufacturer, that.manufacturer);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(manufacturer, nominalVoltage, temperature, cycleTimes, ratedCapacity, fullCapacity, capacity, health);
+    }
+
+    @Override
+    public String toString() {
+        return "battery_info{" + manufacturer + " " + nominalVoltage + " " + temperature + " " + cycleTimes + " "
+                + ratedCapacity + " " + fullCapacity + " " + capacity + " " + health + "}";
+    }
+}
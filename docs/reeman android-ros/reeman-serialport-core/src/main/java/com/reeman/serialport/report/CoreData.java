@@ -0,0 +1,90 @@
+package com.reeman.serialport.report;
+
+import java.util.Objects;
+
+/**
+ * 底盘状态上报
+ * <p>
+ * core_data{bumper cliff button battery charger}
+ * <p>
+ * 对象会被复用,只在回调期间有效,需要保存时请使用{@link #CoreData(CoreData)}复制
+ */
+public class CoreData {
+    int bumper;
+    int cliff;
+    int button;
+    int battery;
+    int charger;
+
+    public CoreData() {
+    }
+
+    public CoreData(CoreData other) {
+        set(other);
+    }
+
+    public void set(CoreData other) {
+        bumper = other.bumper;
+        cliff = other.cliff;
+        button = other.button;
+        battery = other.battery;
+        charger = other.charger;
+    }
+
+    /**
+     * @return 碰撞 1:中间;2:后面;4:左边;8:右边
+     */
+    public int getBumper() {
+        return bumper;
+    }
+
+    /**
+     * @return 防跌落 4:左边;2:中间;1:3D
+     */
+    public int getCliff() {
+        return cliff;
+    }
+
+    /**
+     * @return 急停开关 0:按下;1:抬起
+     */
+    public int getButton() {
+        return button;
+    }
+
+    /**
+     * @return 电量百分比
+     */
+    public int getBattery() {
+        return battery;
+    }
+
+    /**
+     * @return 充电状态
+     */
+    public int getCharger() {
+        return charger;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CoreData that = (CoreData) o;
+        return bumper == that.bumper
+                && cliff == that.cliff
+                && button == that.button
+                && battery == that.battery
+                && charger == that.charger;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(bumper, cliff, button, battery, charger);
+    }
+
+    @Override
+    public String toString() {
+        return "core_data{" + bumper + " " + cliff + " " + button + " " + battery + " " + charger + "}";
+    }
+}
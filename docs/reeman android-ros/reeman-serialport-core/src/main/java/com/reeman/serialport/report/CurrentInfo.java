@@ -0,0 +1,78 @@
+package com.reeman.serialport.report;
+
+import java.util.Objects;
+
+/**
+ * 电池动态信息上报
+ * <p>
+ * current_info{voltage current adapter_current warning offline}
+ * <p>
+ * 对象会被复用,只在回调期间有效,需要保存时请使用{@link #CurrentInfo(CurrentInfo)}复制
+ */
+public class CurrentInfo {
+    double voltage;
+    double current;
+    double adapterCurrent;
+    int warning;
+    int offline;
+
+    public CurrentInfo() {
+    }
+
+    public CurrentInfo(CurrentInfo other) {
+        set(other);
+    }
+
+    public void set(CurrentInfo other) {
+        voltage = other.voltage;
+        current = other.current;
+        adapterCurrent = other.adapterCurrent;
+        warning = other.warning;
+        offline = other.offline;
+    }
+
+    public double getVoltage() {
+        return voltage;
+    }
+
+    public double getCurrent() {
+        return current;
+    }
+
+    /**
+     * @return 适配器电流,需要硬件支持
+     */
+    public double getAdapterCurrent() {
+        return adapterCurrent;
+    }
+
+    public int getWarning() {
+        return warning;
+    }
+
+    public int getOffline() {
+        return offline;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CurrentInfo that = (CurrentInfo) o;
+        return warning == that.warning
+                && offline == that.offline
+                && Double.compare(voltage, that.voltage) == 0
+                && Double.compare(current, that.current) == 0
+                && Double.compare(adapterCurrent, that.adapterCurrent) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(voltage, current, adapterCurrent, warning, offline);
+    }
+
+    @Override
+    public String toString() {
+        return "current_info{" + voltage + " " + current + " " + adapterCurrent + " " + warning + " " + offline + "}";
+    }
+}
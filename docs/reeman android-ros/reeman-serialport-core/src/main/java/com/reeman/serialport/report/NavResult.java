@@ -0,0 +1,90 @@
+package com.reeman.serialport.report;
+
+import java.util.Objects;
+
+/**
+ * 导航状态上报
+ * <p>
+ * nav_result{state code name dist_to_goal mileage}
+ * <p>
+ * 对象会被复用,只在回调期间有效,需要保存时请使用{@link #NavResult(NavResult)}复制
+ */
+public class NavResult {
+    int state;
+    int code;
+    String name;
+    double distToGoal;
+    double mileage;
+
+    public NavResult() {
+    }
+
+    public NavResult(NavResult other) {
+        set(other);
+    }
+
+    public void set(NavResult other) {
+        state = other.state;
+        code = other.code;
+        name = other.name;
+        distToGoal = other.distToGoal;
+        mileage = other.mileage;
+    }
+
+    /**
+     * @return 0:初始状态;1:开始导航;2:暂停;3:导航完成;4:取消导航;5:恢复导航;6:导航指令发送成功,尚未开始导航
+     */
+    public int getState() {
+        return state;
+    }
+
+    /**
+     * @return 0:成功;其他见导航错误码
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * @return 目标点名称
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return 距目标点距离
+     */
+    public double getDistToGoal() {
+        return distToGoal;
+    }
+
+    /**
+     * @return 导航里程
+     */
+    public double getMileage() {
+        return mileage;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        NavResult that = (NavResult) o;
+        return state == that.state
+                && code == that.code
+                && Double.compare(distToGoal, that.distToGoal) == 0
+                && Double.compare(mileage, that.mileage) == 0
+                && Objects.equals(name, that.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(state, code, name, distToGoal, mileage);
+    }
+
+    @Override
+    public String toString() {
+        return "nav_result{" + state + " " + code + " " + name + " " + distToGoal + " " + mileage + "}";
+    }
+}
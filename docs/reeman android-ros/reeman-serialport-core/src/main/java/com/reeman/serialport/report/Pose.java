@@ -0,0 +1,71 @@
+package com.reeman.serialport.report;
+
+import java.util.Objects;
+
+/**
+ * 坐标上报
+ * <p>
+ * pose[x,y,radian]/nav:pose[x,y,radian]/pose:notfound
+ * <p>
+ * 对象会被复用,只在回调期间有效,需要保存时请使用{@link #Pose(Pose)}复制
+ */
+public class Pose {
+    boolean found;
+    double x;
+    double y;
+    double radian;
+
+    public Pose() {
+    }
+
+    public Pose(Pose other) {
+        set(other);
+    }
+
+    public void set(Pose other) {
+        found = other.found;
+        x = other.x;
+        y = other.y;
+        radian = other.radian;
+    }
+
+    /**
+     * @return false: 正在定位(pose:notfound)
+     */
+    public boolean isFound() {
+        return found;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getRadian() {
+        return radian;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Pose that = (Pose) o;
+        return found == that.found
+                && Double.compare(x, that.x) == 0
+                && Double.compare(y, that.y) == 0
+                && Double.compare(radian, that.radian) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(found, x, y, radian);
+    }
+
+    @Override
+    public String toString() {
+        return found ? "pose[" + x + "," + y + "," + radian + "]" : "pose:notfound";
+    }
+}
@@ -0,0 +1,284 @@
+package com.reeman.serialport.report;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 直接从帧的数据位解析ROS上报,数值字段不经过中间字符串
+ * <p>
+ * 非线程安全,每个分发线程持有一个实例
+ */
+public class ReportParser {
+
+    public static final int UNKNOWN = 0;
+    public static final int NAV_RESULT = 1;
+    public static final int CORE_DATA = 2;
+    public static final int POSE = 3;
+    public static final int BATTERY_INFO = 4;
+    public static final int CURRENT_INFO = 5;
+
+    private static final byte[] NAV_RESULT_PREFIX = ascii("nav_result{");
+    private static final byte[] CORE_DATA_PREFIX = ascii("core_data{");
+    private static final byte[] POSE_PREFIX = ascii("pose");
+    private static final byte[] NAV_POSE_PREFIX = ascii("nav:pose");
+    private static final byte[] NOT_FOUND = ascii(":notfound");
+    private static final byte[] BATTERY_INFO_PREFIX = ascii("battery_info{");
+    private static final byte[] CURRENT_INFO_PREFIX = ascii("current_info{");
+
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+
+    private final StringCache nameCache = new StringCache();
+    private final StringCache manufacturerCache = new StringCache();
+
+    private byte[] data;
+    private int position;
+    private int end;
+    private boolean error;
+
+    /**
+     * @return 上报类型,未知类型返回{@link #UNKNOWN}
+     */
+    public static int typeOf(byte[] data, int offset, int len) {
+        if (len == 0) return UNKNOWN;
+        switch (data[offset]) {
+            case 'n':
+                if (startsWith(data, offset, len, NAV_RESULT_PREFIX)) return NAV_RESULT;
+                if (isPose(data, offset, len, NAV_POSE_PREFIX)) return POSE;
+                break;
+            case 'c':
+                if (startsWith(data, offset, len, CORE_DATA_PREFIX)) return CORE_DATA;
+                if (startsWith(data, offset, len, CURRENT_INFO_PREFIX)) return CURRENT_INFO;
+                break;
+            case 'p':
+                if (isPose(data, offset, len, POSE_PREFIX)) return POSE;
+                break;
+            case 'b':
+                if (startsWith(data, offset, len, BATTERY_INFO_PREFIX)) return BATTERY_INFO;
+                break;
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * nav_result{state code name dist_to_goal mileage}
+     */
+    public boolean parseNavResult(byte[] data, int offset, int len, NavResult out) {
+        if (!startsWith(data, offset, len, NAV_RESULT_PREFIX)) return false;
+        begin(data, offset + NAV_RESULT_PREFIX.length, offset + len);
+        out.state = readInt();
+        out.code = readInt();
+        out.name = readString(nameCache);
+        out.distToGoal = readDouble();
+        out.mileage = readDouble();
+        return finish('}');
+    }
+
+    /**
+     * core_data{bumper cliff button battery charger}
+     */
+    public boolean parseCoreData(byte[] data, int offset, int len, CoreData out) {
+        if (!startsWith(data, offset, len, CORE_DATA_PREFIX)) return false;
+        begin(data, offset + CORE_DATA_PREFIX.length, offset + len);
+        out.bumper = readInt();
+        out.cliff = readInt();
+        out.button = readInt();
+        out.battery = readInt();
+        out.charger = readInt();
+        return finish('}');
+    }
+
+    /**
+     * pose[x,y,radian]/nav:pose[x,y,radian]/pose:notfound
+     */
+    public boolean parsePose(byte[] data, int offset, int len, Pose out) {
+        int prefix;
+        if (isPose(data, offset, len, POSE_PREFIX)) {
+            prefix = POSE_PREFIX.length;
+        } else if (isPose(data, offset, len, NAV_POSE_PREFIX)) {
+            prefix = NAV_POSE_PREFIX.length;
+        } else {
+            return false;
+        }
+        if (data[offset + prefix] == ':') {
+            out.found = false;
+            return startsWith(data, offset + prefix, len - prefix, NOT_FOUND);
+        }
+        begin(data, offset + prefix + 1, offset + len);
+        out.found = true;
+        out.x = readDouble();
+        out.y = readDouble();
+        out.radian = readDouble();
+        return finish(']');
+    }
+
+    /**
+     * battery_info{manufacturer nominal_voltage temperature cycle_times rated_capacity full_capacity capacity health}
+     */
+    public boolean parseBatteryInfo(byte[] data, int offset, int len, BatteryInfo out) {
+        if (!startsWith(data, offset, len, BATTERY_INFO_PREFIX)) return false;
+        begin(data, offset + BATTERY_INFO_PREFIX.length, offset + len);
+        out.manufacturer = readString(manufacturerCache);
+        out.nominalVoltage = readDouble();
+        out.temperature = readDouble();
+        out.cycleTimes = readInt();
+        out.ratedCapacity = readDouble();
+        out.fullCapacity = readDouble();
+        out.capacity = readDouble();
+        skipSeparators();
+        out.health = position < end && data[position] != '}' ? readInt() : -1;
+        return finish('}');
+    }
+
+    /**
+     * current_info{voltage current adapter_current warning offline}
+     */
+    public boolean parseCurrentInfo(byte[] data, int offset, int len, CurrentInfo out) {
+        if (!startsWith(data, offset, len, CURRENT_INFO_PREFIX)) return false;
+        begin(data, offset + CURRENT_INFO_PREFIX.length, offset + len);
+        out.voltage = readDouble();
+        out.current = readDouble();
+        out.adapterCurrent = readDouble();
+        out.warning = readInt();
+        out.offline = readInt();
+        return finish('}');
+    }
+
+    private void begin(byte[] data, int position, int end) {
+        this.data = data;
+        this.position = position;
+        this.end = end;
+        this.error = false;
+    }
+
+    private boolean finish(char terminator) {
+        skipSeparators();
+        boolean ok = !error && position < end && data[position] == terminator;
+        data = null;
+        return ok;
+    }
+
+    private void skipSeparators() {
+        while (position < end && (data[position] == ' ' || data[position] == ',')) {
+            position++;
+        }
+    }
+
+    private int tokenEnd() {
+        int i = position;
+        while (i < end && !isDelimiter(data[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    private int readInt() {
+        return (int) readDouble();
+    }
+
+    private double readDouble() {
+        skipSeparators();
+        int begin = position;
+        boolean negative = position < end && data[position] == '-';
+        if (negative || position < end && data[position] == '+') {
+            position++;
+        }
+        int digitsBegin = position;
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean fraction = false;
+        for (; position < end; position++) {
+            byte b = data[position];
+            if (b >= '0' && b <= '9') {
+                if (digits == 15) return fallback(begin);
+                if (mantissa != 0 || b != '0') digits++;
+                mantissa = mantissa * 10 + (b - '0');
+                if (fraction) scale++;
+                if (scale == POW10.length) return fallback(begin);
+            } else if (b == '.' && !fraction) {
+                fraction = true;
+            } else if (isDelimiter(b)) {
+                break;
+            } else {
+                return fallback(begin);
+            }
+        }
+        if (position == digitsBegin + (fraction ? 1 : 0)) {
+            error = true;
+            return 0;
+        }
+        double value = scale == 0 ? mantissa : mantissa / POW10[scale];
+        return negative ? -value : value;
+    }
+
+    /**
+     * 指数形式等少见格式交给Double.parseDouble
+     */
+    private double fallback(int begin) {
+        position = begin;
+        int tokenEnd = tokenEnd();
+        position = tokenEnd;
+        try {
+            return Double.parseDouble(new String(data, begin, tokenEnd - begin, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            error = true;
+            return 0;
+        }
+    }
+
+    private String readString(StringCache cache) {
+        skipSeparators();
+        int begin = position;
+        position = tokenEnd();
+        if (position == begin) {
+            error = true;
+            return null;
+        }
+        return cache.get(data, begin, position - begin);
+    }
+
+    private static boolean isDelimiter(byte b) {
+        return b == ' ' || b == ',' || b == ']' || b == '}';
+    }
+
+    private static boolean isPose(byte[] data, int offset, int len, byte[] prefix) {
+        if (!startsWith(data, offset, len, prefix) || len == prefix.length) return false;
+        byte next = data[offset + prefix.length];
+        return next == '[' || next == ':';
+    }
+
+    public static boolean startsWith(byte[] data, int offset, int len, byte[] prefix) {
+        if (len < prefix.length) return false;
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[offset + i] != prefix[i]) return false;
+        }
+        return true;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 点位名称等字段通常不变,内容相同时复用上一次的String
+     */
+    private static class StringCache {
+        private byte[] bytes = new byte[16];
+        private int length = -1;
+        private String value;
+
+        String get(byte[] data, int offset, int len) {
+            if (len == length) {
+                int i = 0;
+                while (i < len && bytes[i] == data[offset + i]) i++;
+                if (i == len) return value;
+            }
+            if (bytes.length < len) bytes = new byte[len];
+            System.arraycopy(data, offset, bytes, 0, len);
+            length = len;
+            value = new String(data, offset, len, StandardCharsets.UTF_8);
+            return value;
+        }
+    }
+}
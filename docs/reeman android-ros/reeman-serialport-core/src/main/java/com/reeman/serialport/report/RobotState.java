@@ -0,0 +1,85 @@
+package com.reeman.serialport.report;
+
+/**
+ * 机器人最新状态的快照,由{@link RobotStateStore#read(RobotState)}填充
+ * <p>
+ * 对象由调用方创建并复用,读取时不分配内存;未收到过的上报对应的has方法返回false
+ */
+public class RobotState {
+    final Pose pose = new Pose();
+    final CoreData coreData = new CoreData();
+    final CurrentInfo currentInfo = new CurrentInfo();
+    final NavResult navResult = new NavResult();
+    double maxVel;
+    boolean hasPose;
+    boolean hasCoreData;
+    boolean hasCurrentInfo;
+    boolean hasNavResult;
+    boolean hasMaxVel;
+    long version;
+
+    /**
+     * @return 最后一次收到的坐标,pose:notfound时{@link Pose#isFound()}为false,坐标为之前的坐标
+     */
+    public Pose getPose() {
+        return pose;
+    }
+
+    public CoreData getCoreData() {
+        return coreData;
+    }
+
+    public CurrentInfo getCurrentInfo() {
+        return currentInfo;
+    }
+
+    public NavResult getNavResult() {
+        return navResult;
+    }
+
+    /**
+     * @return get_max_vel:x
+     */
+    public double getMaxVel() {
+        return maxVel;
+    }
+
+    public boolean hasPose() {
+        return hasPose;
+    }
+
+    public boolean hasCoreData() {
+        return hasCoreData;
+    }
+
+    public boolean hasCurrentInfo() {
+        return hasCurrentInfo;
+    }
+
+    public boolean hasNavResult() {
+        return hasNavResult;
+    }
+
+    public boolean hasMaxVel() {
+        return hasMaxVel;
+    }
+
+    /**
+     * @return 状态每次更新加1,版本相同说明状态没有变化
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public String toString() {
+        return "RobotState{" +
+                "version=" + version +
+                ", pose=" + (hasPose ? pose : null) +
+                ", coreData=" + (hasCoreData ? coreData : null) +
+                ", currentInfo=" + (hasCurrentInfo ? currentInfo : null) +
+                ", navResult=" + (hasNavResult ? navResult : null) +
+                ", maxVel=" + (hasMaxVel ? maxVel : null) +
+                '}';
+    }
+}
@@ -0,0 +1,158 @@
+package com.reeman.serialport.report;
+
+/**
+ * 保存最新的坐标、底盘状态、电流、导航状态和最大速度
+ * <p>
+ * 只有分发线程写入,任意线程读取;用顺序锁发布: 写入前后各把序号加1,序号为奇数表示正在写入,
+ * 读取前后序号一致才说明读到的是同一次写入的结果,否则重读。读写都不加锁,读取不分配内存
+ */
+public final class RobotStateStore {
+    private static final int POSE = 1;
+    private static final int CORE_DATA = 1 << 1;
+    private static final int CURRENT_INFO = 1 << 2;
+    private static final int NAV_RESULT = 1 << 3;
+    private static final int MAX_VEL = 1 << 4;
+
+    private volatile long sequence;
+    private volatile int present;
+
+    private volatile boolean poseFound;
+    private volatile double poseX;
+    private volatile double poseY;
+    private volatile double poseRadian;
+
+    private volatile int bumper;
+    private volatile int cliff;
+    private volatile int button;
+    private volatile int battery;
+    private volatile int charger;
+
+    private volatile double voltage;
+    private volatile double current;
+    private volatile double adapterCurrent;
+    private volatile int warning;
+    private volatile int offline;
+
+    private volatile int navState;
+    private volatile int navCode;
+    private volatile String navName;
+    private volatile double navDistToGoal;
+    private volatile double navMileage;
+
+    private volatile double maxVel;
+
+    /**
+     * pose:notfound只更新定位状态,保留之前的坐标
+     */
+    public void update(Pose pose) {
+        begin();
+        poseFound = pose.found;
+        if (pose.found) {
+            poseX = pose.x;
+            poseY = pose.y;
+            poseRadian = pose.radian;
+        }
+        end(POSE);
+    }
+
+    public void update(CoreData coreData) {
+        begin();
+        bumper = coreData.bumper;
+        cliff = coreData.cliff;
+        button = coreData.button;
+        battery = coreData.battery;
+        charger = coreData.charger;
+        end(CORE_DATA);
+    }
+
+    public void update(CurrentInfo currentInfo) {
+        begin();
+        voltage = currentInfo.voltage;
+        current = currentInfo.current;
+        adapterCurrent = currentInfo.adapterCurrent;
+        warning = currentInfo.warning;
+        offline = currentInfo.offline;
+        end(CURRENT_INFO);
+    }
+
+    public void update(NavResult navResult) {
+        begin();
+        navState = navResult.state;
+        navCode = navResult.code;
+        navName = navResult.name;
+        navDistToGoal = navResult.distToGoal;
+        navMileage = navResult.mileage;
+        end(NAV_RESULT);
+    }
+
+    public void updateMaxVel(double maxVel) {
+        begin();
+        this.maxVel = maxVel;
+        end(MAX_VEL);
+    }
+
+    /**
+     * @return 状态每次更新加1
+     */
+    public long getVersion() {
+        return sequence >>> 1;
+    }
+
+    /**
+     * 读取一致的快照到out
+     *
+     * @return out
+     */
+    public RobotState read(RobotState out) {
+        long before;
+        do {
+            before = sequence;
+            while ((before & 1) != 0) {
+                Thread.yield();
+                before = sequence;
+            }
+            int flags = present;
+            out.hasPose = (flags & POSE) != 0;
+            out.hasCoreData = (flags & CORE_DATA) != 0;
+            out.hasCurrentInfo = (flags & CURRENT_INFO) != 0;
+            out.hasNavResult = (flags & NAV_RESULT) != 0;
+            out.hasMaxVel = (flags & MAX_VEL) != 0;
+
+            out.pose.found = poseFound;
+            out.pose.x = poseX;
+            out.pose.y = poseY;
+            out.pose.radian = poseRadian;
+
+            out.coreData.bumper = bumper;
+            out.coreData.cliff = cliff;
+            out.coreData.button = button;
+            out.coreData.battery = battery;
+            out.coreData.charger = charger;
+
+            out.currentInfo.voltage = voltage;
+            out.currentInfo.current = current;
+            out.currentInfo.adapterCurrent = adapterCurrent;
+            out.currentInfo.warning = warning;
+            out.currentInfo.offline = offline;
+
+            out.navResult.state = navState;
+            out.navResult.code = navCode;
+            out.navResult.name = navName;
+            out.navResult.distToGoal = navDistToGoal;
+            out.navResult.mileage = navMileage;
+
+            out.maxVel = maxVel;
+        } while (sequence != before);
+        out.version = before >>> 1;
+        return out;
+    }
+
+    private void begin() {
+        sequence = sequence + 1;
+    }
+
+    private void end(int flag) {
+        present = present | flag;
+        sequence = sequence + 1;
+    }
+}
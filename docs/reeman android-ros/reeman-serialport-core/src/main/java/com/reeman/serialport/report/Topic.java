@@ -0,0 +1,46 @@
+package com.reeman.serialport.report;
+
+/**
+ * 可订阅的上报类型,订阅后直接收到解析好的对象
+ *
+ * @param <T> 回调参数类型
+ */
+public final class Topic<T> {
+
+    public static final Topic<NavResult> NAV_RESULT = new Topic<>(ReportParser.NAV_RESULT, "nav_result{");
+    public static final Topic<CoreData> CORE_DATA = new Topic<>(ReportParser.CORE_DATA, "core_data{");
+    public static final Topic<Pose> POSE = new Topic<>(ReportParser.POSE, "pose[", "pose:", "nav:pose[", "nav:pose:");
+    public static final Topic<BatteryInfo> BATTERY_INFO = new Topic<>(ReportParser.BATTERY_INFO, "battery_info{");
+    public static final Topic<CurrentInfo> CURRENT_INFO = new Topic<>(ReportParser.CURRENT_INFO, "current_info{");
+
+    private final int type;
+    private final String[] prefixes;
+
+    private Topic(int type, String... prefixes) {
+        this.type = type;
+        this.prefixes = prefixes;
+    }
+
+    /**
+     * 以prefix开头的消息,回调原始字符串
+     */
+    public static Topic<String> of(String prefix) {
+        return new Topic<>(ReportParser.UNKNOWN, prefix);
+    }
+
+    /**
+     * @return {@link ReportParser}中的类型,原始字符串为{@link ReportParser#UNKNOWN}
+     */
+    public int getType() {
+        return type;
+    }
+
+    public String[] getPrefixes() {
+        return prefixes.clone();
+    }
+
+    @Override
+    public String toString() {
+        return prefixes[0];
+    }
+}
@@ -0,0 +1,521 @@
+package com.reeman.serialport.sim;
+
+import com.reeman.serialport.controller.SerialPortParser;
+import com.reeman.serialport.controller.SerialRuntime;
+import com.reeman.serialport.platform.RosLog;
+import com.reeman.serialport.transport.FileTransportFactory;
+import com.reeman.serialport.transport.LoopbackTransport;
+import com.reeman.serialport.transport.TcpTransportFactory;
+import com.reeman.serialport.transport.Transport;
+import com.reeman.serialport.transport.TransportFactory;
+import com.reeman.serialport.util.CommandEncoder;
+import com.reeman.serialport.util.FrameDecoder;
+import com.reeman.serialport.util.Parser;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 模拟导航主机,不需要机器人即可测试收发、吞吐量和延迟
+ * <p>
+ * 回复keep_connect、nav:get_pose、get_battery_info、get_max_vel等查询,nav_point/goal:nav以设定的速度直线移动到目标点,
+ * 期间按频率上报nav_result,到达后上报导航完成;同时按频率上报pose和core_data。
+ * 未知点位的导航以nav_result{4 -1 name ...}结束,其他未知指令忽略;{@link Builder#on(String, Script)}可增加或替换指令的处理。
+ * 所有指令和定时上报在模拟器自己的线程中处理,处理不能阻塞
+ *
+ * <pre>
+ * RosSimulator simulator = new RosSimulator.Builder().point("A", 2, 1, 0).poseRate(20).build();
+ * new RosCallbackParser.Builder().port("sim").transport(simulator.loopback()).callback(callback).build();
+ * </pre>
+ */
+public class RosSimulator {
+    /**
+     * 导航时位置的更新频率
+     */
+    private static final long MOVE_PERIOD = 50;
+
+    private final SerialRuntime runtime;
+    private final ScheduledThreadPoolExecutor executor;
+    private final Map<String, Script> scripts;
+    private final Map<String, double[]> points;
+    private final long poseInterval;
+    private final long coreDataInterval;
+    private final long navResultInterval;
+    private final long replyDelay;
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final List<Future<?>> streams = new ArrayList<>();
+    /**
+     * 以下字段只在模拟器线程中访问
+     */
+    private SerialPortParser parser;
+    private double x;
+    private double y;
+    private double radian;
+    private double mileage;
+    private double speed;
+    private int battery;
+    private boolean poseUpload = true;
+    private String navName;
+    private double[] navGoal;
+    private boolean navPaused;
+    private long lastNavResult;
+
+    private RosSimulator(Builder builder) {
+        runtime = builder.runtime == null ? SerialRuntime.getDefault() : builder.runtime;
+        executor = new ScheduledThreadPoolExecutor(1, r -> runtime.newThread(SerialRuntime.ROLE_DISPATCH, r, "sim"));
+        executor.setRemoveOnCancelPolicy(true);
+        scripts = new LinkedHashMap<>(builder.scripts);
+        points = new LinkedHashMap<>(builder.points);
+        poseInterval = interval(builder.poseRate);
+        coreDataInterval = interval(builder.coreDataRate);
+        navResultInterval = interval(builder.navResultRate);
+        replyDelay = builder.replyDelay;
+        x = builder.pose[0];
+        y = builder.pose[1];
+        radian = builder.pose[2];
+        speed = builder.speed;
+        battery = builder.battery;
+    }
+
+    /**
+     * @return 频率对应的间隔,微秒;0表示不上报
+     */
+    private static long interval(double hz) {
+        return hz <= 0 ? 0 : Math.max(1, (long) (1_000_000 / hz));
+    }
+
+    /**
+     * 在transport上模拟导航主机,已连接的transport先关闭
+     */
+    public void attach(Transport transport) throws IOException {
+        FrameDecoder decoder = new FrameDecoder(new FrameDecoder.OnFrameListener() {
+            @Override
+            public void onFrame(byte type, byte[] data, int offset, int len) {
+                String command = Parser.bytesToString(data, offset, len);
+                if (!executor.isShutdown()) executor.execute(() -> handle(command));
+            }
+
+            @Override
+            public void onChecksumError(byte type, byte[] data, int offset, int len) {
+                RosLog.w("模拟器收到的指令校验不通过");
+            }
+        });
+        SerialPortParser next = new SerialPortParser(runtime, transport, SerialPortParser.ReadMode.IMMEDIATE,
+                (bytes, len) -> decoder.feed(bytes, 0, len));
+        Future<?> attached = executor.submit(() -> {
+            stopStreams();
+            if (parser != null) parser.stop();
+            parser = next;
+            startStreams();
+            return null;
+        });
+        try {
+            attached.get();
+            next.start();
+        } catch (Exception e) {
+            next.stop();
+            throw new IOException("连接模拟器失败", e);
+        }
+    }
+
+    /**
+     * @return 每次打开串口时创建一对{@link LoopbackTransport},模拟器连接其中一端,串口地址和波特率忽略
+     */
+    public TransportFactory loopback() {
+        return (runtime, port, baudRate) -> {
+            LoopbackTransport[] pair = LoopbackTransport.pair(port);
+            attach(pair[1]);
+            return pair[0];
+        };
+    }
+
+    /**
+     * 发送一条上报,可在任意线程调用
+     *
+     * @param report 数据位,如"nav_result{3 0 A 0 12}"
+     */
+    public void send(String report) {
+        executor.execute(() -> sendFrame(CommandEncoder.local().begin(report).end()));
+    }
+
+    /**
+     * 停止上报并关闭连接
+     */
+    public void close() {
+        Future<?> closed = executor.submit(() -> {
+            stopStreams();
+            if (parser != null) {
+                parser.stop();
+                parser = null;
+            }
+        });
+        try {
+            closed.get();
+        } catch (Exception e) {
+            RosLog.w(e, "关闭模拟器失败");
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return 收到的指令数
+     */
+    public long getReceived() {
+        return received.get();
+    }
+
+    /**
+     * @return 发送的帧数
+     */
+    public long getSent() {
+        return sent.get();
+    }
+
+    private void startStreams() {
+        if (poseInterval > 0) {
+            streams.add(executor.scheduleAtFixedRate(() -> {
+                if (poseUpload) sendPose();
+            }, poseInterval, poseInterval, TimeUnit.MICROSECONDS));
+        }
+        if (coreDataInterval > 0) {
+            streams.add(executor.scheduleAtFixedRate(() -> sendFrame(CommandEncoder.local().begin("core_data{0 0 0 ")
+                    .append(battery).append(" 0}").end()), coreDataInterval, coreDataInterval, TimeUnit.MICROSECONDS));
+        }
+        streams.add(executor.scheduleAtFixedRate(this::move, MOVE_PERIOD, MOVE_PERIOD, TimeUnit.MILLISECONDS));
+    }
+
+    private void stopStreams() {
+        for (Future<?> stream : streams) {
+            stream.cancel(false);
+        }
+        streams.clear();
+        navName = null;
+    }
+
+    private void handle(String command) {
+        received.incrementAndGet();
+        for (Map.Entry<String, Script> entry : scripts.entrySet()) {
+            if (command.startsWith(entry.getKey())) {
+                try {
+                    entry.getValue().onCommand(command, this);
+                } catch (Exception e) {
+                    RosLog.w(e, "模拟器脚本出错 %s", command);
+                }
+                return;
+            }
+        }
+        if (command.equals("keep_connect")) {
+            reply("hfls_version:sim 1.0 1.0 1.0");
+        } else if (command.startsWith("nav:get_pose[")) {
+            poseUpload = command.startsWith("on", "nav:get_pose[".length());
+        } else if (command.equals("nav:get_pose")) {
+            if (replyDelay == 0) sendPose();
+            else executor.schedule(this::sendPose, replyDelay, TimeUnit.MILLISECONDS);
+        } else if (command.startsWith("nav_point[")) {
+            String name = argument(command, "nav_point[");
+            double[] point = points.get(name);
+            if (point == null) {
+                reply("nav_result{4 -1 " + name + " 0 " + mileage + "}");
+            } else {
+                navigate(name, point);
+            }
+        } else if (command.startsWith("goal:nav[")) {
+            double[] goal = numbers(argument(command, "goal:nav["));
+            if (goal != null) navigate("goal", goal);
+        } else if (command.equals("nav_cancel")) {
+            if (navName != null) finishNav(4);
+        } else if (command.equals("nav_pause")) {
+            if (navName != null && !navPaused) {
+                navPaused = true;
+                sendNavResult(2);
+            }
+        } else if (command.equals("nav_resume")) {
+            if (navName != null && navPaused) {
+                navPaused = false;
+                sendNavResult(5);
+            }
+        } else if (command.startsWith("nav:reloc[")) {
+            double[] pose = numbers(argument(command, "nav:reloc["));
+            if (pose != null) relocate(pose);
+        } else if (command.startsWith("nav:reloc_name[")) {
+            double[] point = points.get(argument(command, "nav:reloc_name["));
+            if (point != null) relocate(point);
+        } else if (command.startsWith("nav:get_flag_point[")) {
+            String name = argument(command, "nav:get_flag_point[");
+            double[] point = points.get(name);
+            reply(point == null ? "get_flag_point:-1"
+                    : "get_flag_point[" + point[0] + "," + point[1] + "," + point[2] + ",normal," + name + "]");
+        } else if (command.equals("get_battery_info")) {
+            reply("battery_info{sim 25.2 30.0 12 10.0 9.8 " + battery * 9.8 / 100 + " 100}");
+        } else if (command.startsWith("get_current_info[")) {
+            reply("current_info{25.2 1.2 0 0 0}");
+        } else if (command.equals("get_max_vel")) {
+            reply("get_max_vel:" + speed);
+        } else if (command.startsWith("max_vel[")) {
+            double[] value = numbers(argument(command, "max_vel["));
+            if (value != null && value.length == 1) speed = value[0];
+            reply("get_max_vel:" + speed);
+        } else if (command.startsWith("set_stop_time[")) {
+            reply("get_stop_time:" + argument(command, "set_stop_time["));
+        } else if (command.startsWith("set_globalcost_p[")) {
+            reply("get_global_p:" + argument(command, "set_globalcost_p["));
+        } else if (command.equals("hostname:get")) {
+            reply("sys:boot:sim");
+        } else if (command.equals("sys:version")) {
+            reply("ver:sim");
+        } else if (command.equals("nav:current_map")) {
+            reply("current_map[map_name:sim]");
+        }
+    }
+
+    /**
+     * 在{@link Builder#replyDelay(long)}后回复
+     */
+    private void reply(String report) {
+        if (replyDelay == 0) {
+            sendFrame(CommandEncoder.local().begin(report).end());
+        } else {
+            executor.schedule(() -> sendFrame(CommandEncoder.local().begin(report).end()), replyDelay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void sendPose() {
+        sendFrame(CommandEncoder.local().begin("pose[").append(x, 3).append(',').append(y, 3).append(',')
+                .append(radian, 4).append(']').end());
+    }
+
+    private void sendNavResult(int state) {
+        lastNavResult = System.nanoTime();
+        sendFrame(CommandEncoder.local().begin("nav_result{").append(state).append(" 0 ").append(navName).append(' ')
+                .append(distance(), 3).append(' ').append(mileage, 3).append('}').end());
+    }
+
+    private void sendFrame(CommandEncoder encoder) {
+        if (parser == null) return;
+        parser.sendCommand(encoder.buffer(), 0, encoder.length());
+        sent.incrementAndGet();
+    }
+
+    private void navigate(String name, double[] goal) {
+        if (navName != null) finishNav(4);
+        navName = name;
+        navGoal = goal;
+        navPaused = false;
+        sendNavResult(6);
+        sendNavResult(1);
+    }
+
+    private void finishNav(int state) {
+        sendNavResult(state);
+        navName = null;
+        navGoal = null;
+    }
+
+    private void relocate(double[] pose) {
+        x = pose[0];
+        y = pose[1];
+        radian = pose[2];
+        reply("initpose:0," + x + " " + y + " " + radian);
+    }
+
+    private void move() {
+        if (navName == null || navPaused) return;
+        double step = speed * MOVE_PERIOD / 1000;
+        double distance = distance();
+        if (distance <= step) {
+            mileage += distance;
+            x = navGoal[0];
+            y = navGoal[1];
+            radian = navGoal[2];
+            finishNav(3);
+            return;
+        }
+        radian = Math.atan2(navGoal[1] - y, navGoal[0] - x);
+        x += step * Math.cos(radian);
+        y += step * Math.sin(radian);
+        mileage += step;
+        if (navResultInterval > 0 && System.nanoTime() - lastNavResult >= TimeUnit.MICROSECONDS.toNanos(navResultInterval)) {
+            sendNavResult(1);
+        }
+    }
+
+    private double distance() {
+        return navGoal == null ? 0 : Math.hypot(navGoal[0] - x, navGoal[1] - y);
+    }
+
+    /**
+     * @return prefix之后、结尾的]之前的参数
+     */
+    private static String argument(String command, String prefix) {
+        int end = command.endsWith("]") ? command.length() - 1 : command.length();
+        return command.substring(prefix.length(), Math.max(prefix.length(), end)).trim();
+    }
+
+    /**
+     * @return 逗号分隔的数字,格式错误时为null
+     */
+    private static double[] numbers(String argument) {
+        String[] parts = argument.split(",");
+        double[] values = new double[parts.length];
+        try {
+            for (int i = 0; i < parts.length; i++) {
+                values[i] = Double.parseDouble(parts[i].trim());
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return values.length == 1 || values.length >= 3 ? values : null;
+    }
+
+    /**
+     * 独立运行的模拟器,供其他进程连接
+     * <ul>
+     * <li>tcp:9000: 监听TCP端口,同一时刻只服务一个连接,新的连接接入后断开当前连接</li>
+     * <li>/dev/pts/3: 读写设备文件,如{@link com.reeman.serialport.transport.PtyPair}创建的一端</li>
+     * </ul>
+     * 其余参数为点位name=x,y,radian
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("usage: RosSimulator tcp:<port>|<device> [name=x,y,radian ...]");
+            return;
+        }
+        Builder builder = new Builder();
+        for (int i = 1; i < args.length; i++) {
+            int equals = args[i].indexOf('=');
+            double[] point = equals > 0 ? numbers(args[i].substring(equals + 1)) : null;
+            if (point == null || point.length != 3) throw new IllegalArgumentException(args[i]);
+            builder.point(args[i].substring(0, equals), point[0], point[1], point[2]);
+        }
+        RosSimulator simulator = builder.build();
+        SerialRuntime runtime = SerialRuntime.getDefault();
+        if (args[0].startsWith("tcp:")) {
+            try (ServerSocket server = new ServerSocket(Integer.parseInt(args[0].substring(4)))) {
+                while (true) {
+                    simulator.attach(TcpTransportFactory.accept(runtime, server));
+                }
+            }
+        }
+        simulator.attach(FileTransportFactory.INSTANCE.open(runtime, args[0], 115200));
+        Thread.currentThread().join();
+    }
+
+    /**
+     * 指令的处理脚本,在模拟器线程中调用
+     */
+    public interface Script {
+        /**
+         * @param command   收到的指令
+         * @param simulator 通过{@link #send(String)}回复
+         */
+        void onCommand(String command, RosSimulator simulator);
+    }
+
+    public static class Builder {
+        private SerialRuntime runtime;
+        private final Map<String, Script> scripts = new LinkedHashMap<>();
+        private final Map<String, double[]> points = new LinkedHashMap<>();
+        private final double[] pose = new double[3];
+        private double poseRate = 10;
+        private double coreDataRate = 2;
+        private double navResultRate = 1;
+        private double speed = 0.5;
+        private int battery = 80;
+        private long replyDelay;
+
+        /**
+         * 模拟器线程和连接所属的运行环境,默认{@link SerialRuntime#getDefault()}
+         */
+        public Builder runtime(SerialRuntime runtime) {
+            this.runtime = runtime;
+            return this;
+        }
+
+        /**
+         * 以prefix开头的指令由script处理,先于内置的处理,按添加顺序匹配
+         */
+        public Builder on(String prefix, Script script) {
+            scripts.put(prefix, script);
+            return this;
+        }
+
+        /**
+         * 增加nav_point可以导航的点位
+         */
+        public Builder point(String name, double x, double y, double radian) {
+            points.put(name, new double[]{x, y, radian});
+            return this;
+        }
+
+        /**
+         * 初始位置,默认原点
+         */
+        public Builder pose(double x, double y, double radian) {
+            pose[0] = x;
+            pose[1] = y;
+            pose[2] = radian;
+            return this;
+        }
+
+        /**
+         * pose上报频率,Hz,默认10;0不上报,nav:get_pose[off]也可关闭
+         */
+        public Builder poseRate(double hz) {
+            this.poseRate = hz;
+            return this;
+        }
+
+        /**
+         * core_data上报频率,Hz,默认2;0不上报
+         */
+        public Builder coreDataRate(double hz) {
+            this.coreDataRate = hz;
+            return this;
+        }
+
+        /**
+         * 导航中nav_result{1 ...}的上报频率,Hz,默认1;0只上报开始和结束
+         */
+        public Builder navResultRate(double hz) {
+            this.navResultRate = hz;
+            return this;
+        }
+
+        /**
+         * 导航速度,m/s,默认0.5,max_vel[x]可修改
+         */
+        public Builder speed(double speed) {
+            this.speed = speed;
+            return this;
+        }
+
+        /**
+         * core_data和battery_info中的电量,默认80
+         */
+        public Builder battery(int battery) {
+            this.battery = battery;
+            return this;
+        }
+
+        /**
+         * 查询的回复延迟,毫秒,默认0,用于测试超时和延迟
+         */
+        public Builder replyDelay(long replyDelay) {
+            this.replyDelay = replyDelay;
+            return this;
+        }
+
+        public RosSimulator build() {
+            return new RosSimulator(this);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.reeman.serialport.transport;
+
+import com.reeman.serialport.controller.SerialRuntime;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 直接读写设备文件,如/dev/ttyUSB0,普通JVM上的默认实现
+ * <p>
+ * 读写使用两个FileChannel,关闭时可唤醒阻塞在read上的读线程,读取时不占用写入的锁。
+ * Java不能设置termios,波特率等参数需要事先设置,如stty -F /dev/ttyUSB0 115200 raw -echo
+ */
+public final class FileTransportFactory implements TransportFactory {
+    public static final FileTransportFactory INSTANCE = new FileTransportFactory();
+
+    private FileTransportFactory() {
+    }
+
+    @Override
+    public Transport open(SerialRuntime runtime, String port, int baudRate) throws IOException {
+        File file = new File(port);
+        FileChannel read = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        FileChannel write;
+        try {
+            write = FileChannel.open(file.toPath(), StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            read.close();
+            throw e;
+        }
+        return new StreamTransport(runtime, file.getName(), Channels.newInputStream(read), Channels.newOutputStream(write), () -> {
+            try {
+                read.close();
+            } finally {
+                write.close();
+            }
+        });
+    }
+}
@@ -0,0 +1,103 @@
+package com.reeman.serialport.transport;
+
+import com.reeman.serialport.controller.SerialPortParser;
+import com.reeman.serialport.platform.RosLog;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程内的一对相连的串口,用于测试和压测,不需要设备
+ * <p>
+ * 一端写入时在写入线程中直接回调另一端的监听器,不经过读线程和内核;从0开始写入的数据原样传给对端,不复制。
+ * 每次写入回调一次,不按{@link SerialPortParser.ReadMode}合并;对端未开始读取或已关闭时数据被丢弃,与串口对端未打开时相同
+ */
+public final class LoopbackTransport implements Transport {
+    private final String name;
+    private LoopbackTransport peer;
+    private volatile SerialPortParser.OnDataResultListener listener;
+    private volatile boolean closed;
+    private final AtomicLong dropped = new AtomicLong();
+    /**
+     * 只在写入线程中使用
+     */
+    private byte[] scratch = new byte[1];
+
+    private final OutputStream outputStream = new OutputStream() {
+        @Override
+        public void write(int b) throws IOException {
+            scratch[0] = (byte) b;
+            write(scratch, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (closed) throw new IOException(name + " 已关闭");
+            if (off != 0) {
+                if (scratch.length < len) scratch = new byte[len];
+                System.arraycopy(b, off, scratch, 0, len);
+                b = scratch;
+            }
+            peer.receive(b, len);
+        }
+    };
+
+    private LoopbackTransport(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return 相连的两端,名称为name-0和name-1
+     */
+    public static LoopbackTransport[] pair(String name) {
+        LoopbackTransport a = new LoopbackTransport(name + "-0");
+        LoopbackTransport b = new LoopbackTransport(name + "-1");
+        a.peer = b;
+        b.peer = a;
+        return new LoopbackTransport[]{a, b};
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public synchronized void start(SerialPortParser.ReadMode mode, SerialPortParser.OnDataResultListener listener) throws IOException {
+        if (closed) throw new IOException(name + " 已关闭");
+        if (this.listener != null) throw new IllegalStateException(name + " 已开始读取");
+        this.listener = listener;
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        listener = null;
+    }
+
+    /**
+     * @return 因本端未开始读取或已关闭而丢弃的字节数
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    private void receive(byte[] data, int len) {
+        SerialPortParser.OnDataResultListener current = listener;
+        if (current == null) {
+            dropped.addAndGet(len);
+            return;
+        }
+        try {
+            current.onDataResult(data, len);
+        } catch (Exception e) {
+            RosLog.w(e, "%s 数据处理失败", name);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.reeman.serialport.transport;
+
+import com.reeman.serialport.controller.SerialRuntime;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一对相连的Linux伪终端,一端的写入从另一端读出,用于连接独立进程中的模拟器或ROS工具
+ * <p>
+ * Java不能调用openpty,由socat创建并转发,两端为raw模式,路径为dir下的name-0和name-1的符号链接;
+ * 两端都是普通的tty,可被{@link FileTransportFactory}或Android上的JNI串口打开。需要安装socat
+ *
+ * <pre>
+ * PtyPair pty = PtyPair.open(new File("/tmp"), "ros");
+ * //另一个进程: java com.reeman.serialport.sim.RosSimulator /tmp/ros-1
+ * new RosCallbackParser.Builder().port(pty.getPath(0))...
+ * </pre>
+ */
+public final class PtyPair implements Closeable {
+    private static final long START_TIMEOUT = 5000;
+
+    private final Process process;
+    private final String[] paths;
+
+    private PtyPair(Process process, String[] paths) {
+        this.process = process;
+        this.paths = paths;
+    }
+
+    /**
+     * 启动socat,两端的链接都出现后返回
+     */
+    public static PtyPair open(File dir, String name) throws IOException {
+        String[] paths = {new File(dir, name + "-0").getPath(), new File(dir, name + "-1").getPath()};
+        for (String path : paths) {
+            new File(path).delete();
+        }
+        Process process = new ProcessBuilder("socat",
+                "pty,raw,echo=0,link=" + paths[0],
+                "pty,raw,echo=0,link=" + paths[1])
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(START_TIMEOUT);
+        try {
+            while (!new File(paths[0]).exists() || !new File(paths[1]).exists()) {
+                if (!process.isAlive()) throw new IOException("socat退出: " + process.exitValue());
+                if (System.nanoTime() - deadline > 0) throw new IOException("socat未创建伪终端");
+                Thread.sleep(10);
+            }
+        } catch (IOException | InterruptedException e) {
+            process.destroy();
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            throw (IOException) e;
+        }
+        return new PtyPair(process, paths);
+    }
+
+    /**
+     * @param end 0或1
+     */
+    public String getPath(int end) {
+        return paths[end];
+    }
+
+    /**
+     * 打开其中一端
+     *
+     * @param end 0或1
+     */
+    public Transport open(SerialRuntime runtime, int end) throws IOException {
+        return FileTransportFactory.INSTANCE.open(runtime, paths[end], 115200);
+    }
+
+    /**
+     * 结束socat并删除链接,两端都会断开
+     */
+    @Override
+    public void close() {
+        process.destroy();
+        try {
+            process.waitFor(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (String path : paths) {
+            new File(path).delete();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.reeman.serialport.transport;
+
+import com.reeman.serialport.controller.SerialPortParser;
+import com.reeman.serialport.controller.SerialRuntime;
+import com.reeman.serialport.platform.RosLog;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * 基于阻塞流的串口,每个串口一个读线程
+ * <p>
+ * 读线程阻塞在read上,读够minBytes或流中暂时没有更多数据时回调,不等待interByteTimeout;
+ * 读取出错时按10ms~1s逐次加倍暂停后重试,读到流结束时停止读取。
+ * 关闭时先关闭流以唤醒读线程,流关闭后不唤醒阻塞的read时(如部分设备文件),读线程在下一次读到数据后结束
+ */
+public class StreamTransport implements Transport {
+    private static final int BUFFER_SIZE = 1024;
+    private static final long MIN_BACKOFF = 10;
+    private static final long MAX_BACKOFF = 1000;
+    /**
+     * 关闭时等待读线程结束的最长时间
+     */
+    private static final long STOP_TIMEOUT = 500;
+
+    private final SerialRuntime runtime;
+    private final String name;
+    private final InputStream inputStream;
+    private final OutputStream outputStream;
+    private final Closeable closeable;
+    private volatile SerialPortParser.OnDataResultListener listener;
+    private Thread thread;
+    private boolean closed;
+
+    /**
+     * @param closeable 关闭串口,关闭后阻塞的read应抛出异常或返回-1
+     */
+    public StreamTransport(SerialRuntime runtime, String name, InputStream inputStream, OutputStream outputStream,
+                           Closeable closeable) {
+        this.runtime = runtime;
+        this.name = name;
+        this.inputStream = inputStream;
+        this.outputStream = outputStream;
+        this.closeable = closeable;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public synchronized void start(SerialPortParser.ReadMode mode, SerialPortParser.OnDataResultListener listener) throws IOException {
+        if (closed) throw new IOException(name + " 已关闭");
+        if (thread != null) throw new IllegalStateException(name + " 已开始读取");
+        this.listener = listener;
+        thread = runtime.newThread(SerialRuntime.ROLE_IO, () -> read(mode), "read-" + name);
+        thread.start();
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    @Override
+    public void close() {
+        Thread reader;
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            listener = null;
+            reader = thread;
+        }
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            RosLog.w(e, "%s 关闭失败", name);
+        }
+        if (reader == null || reader == Thread.currentThread()) return;
+        try {
+            reader.join(STOP_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void read(SerialPortParser.ReadMode mode) {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int length = 0;
+        long backoff = 0;
+        while (listener != null) {
+            int len;
+            try {
+                len = inputStream.read(buffer, length, buffer.length - length);
+            } catch (IOException e) {
+                if (listener == null) break;
+                backoff = backoff == 0 ? MIN_BACKOFF : Math.min(backoff * 2, MAX_BACKOFF);
+                RosLog.w(e, "%s 读取失败,%sms后重试", name, backoff);
+                sleep(backoff);
+                continue;
+            }
+            if (len < 0) {
+                if (listener != null) RosLog.w("%s 已断开", name);
+                break;
+            }
+            backoff = 0;
+            length += len;
+            if (length >= mode.getMinBytes() || length == buffer.length || available() == 0) {
+                deliver(buffer, length);
+                length = 0;
+            }
+        }
+        RosLog.w("%s read thread finish", name);
+    }
+
+    private int available() {
+        try {
+            return inputStream.available();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private void deliver(byte[] buffer, int length) {
+        SerialPortParser.OnDataResultListener current = listener;
+        if (current == null) return;
+        try {
+            current.onDataResult(buffer, length);
+        } catch (Exception e) {
+            RosLog.w(e, "%s 数据处理失败", name);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.reeman.serialport.transport;
+
+import com.reeman.serialport.controller.SerialRuntime;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * 通过TCP连接ROS或模拟器,串口地址为host:port,波特率忽略
+ * <p>
+ * 开启TCP_NODELAY,每次写入立即发送;关闭时关闭socket以唤醒读线程
+ */
+public final class TcpTransportFactory implements TransportFactory {
+    public static final TcpTransportFactory INSTANCE = new TcpTransportFactory();
+    private static final int CONNECT_TIMEOUT = 3000;
+
+    private TcpTransportFactory() {
+    }
+
+    /**
+     * @param port host:port,如127.0.0.1:9000
+     */
+    @Override
+    public Transport open(SerialRuntime runtime, String port, int baudRate) throws IOException {
+        int colon = port.lastIndexOf(':');
+        if (colon <= 0) throw new IOException("地址格式应为host:port: " + port);
+        int tcpPort;
+        try {
+            tcpPort = Integer.parseInt(port.substring(colon + 1));
+        } catch (NumberFormatException e) {
+            throw new IOException("地址格式应为host:port: " + port);
+        }
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(port.substring(0, colon), tcpPort), CONNECT_TIMEOUT);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        return wrap(runtime, socket);
+    }
+
+    /**
+     * 等待一个连接,用于模拟器等服务端
+     */
+    public static Transport accept(SerialRuntime runtime, ServerSocket server) throws IOException {
+        return wrap(runtime, server.accept());
+    }
+
+    /**
+     * @param socket 已连接的socket,关闭Transport时关闭
+     */
+    public static Transport wrap(SerialRuntime runtime, Socket socket) throws IOException {
+        try {
+            socket.setTcpNoDelay(true);
+            return new StreamTransport(runtime, "tcp-" + socket.getPort(), socket.getInputStream(), socket.getOutputStream(), socket);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+}
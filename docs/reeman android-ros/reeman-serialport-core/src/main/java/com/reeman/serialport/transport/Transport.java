@@ -0,0 +1,33 @@
+package com.reeman.serialport.transport;
+
+import com.reeman.serialport.controller.SerialPortParser;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 一个已打开的串口,由{@link TransportFactory}创建
+ * <p>
+ * Android上为JNI打开的串口,同一个运行环境的所有串口在一个poll线程中读取;普通JVM上直接读写设备文件
+ */
+public interface Transport {
+    /**
+     * @return 用于日志和线程名称,如ttyS1
+     */
+    String getName();
+
+    /**
+     * 开始读取,只调用一次;数据在读线程中按mode回调
+     */
+    void start(SerialPortParser.ReadMode mode, SerialPortParser.OnDataResultListener listener) throws IOException;
+
+    /**
+     * 写入完整的帧,同一时刻只有一个线程写入
+     */
+    OutputStream getOutputStream();
+
+    /**
+     * 停止读取并关闭串口,返回后不再回调;可重复调用
+     */
+    void close();
+}
@@ -0,0 +1,17 @@
+package com.reeman.serialport.transport;
+
+import com.reeman.serialport.controller.SerialRuntime;
+
+import java.io.IOException;
+
+/**
+ * 按串口地址打开串口,默认实现见{@link com.reeman.serialport.platform.Platform#transportFactory()}
+ */
+public interface TransportFactory {
+    /**
+     * @param runtime  读线程所属的运行环境
+     * @param port     串口地址,如/dev/ttyS1
+     * @param baudRate 波特率
+     */
+    Transport open(SerialRuntime runtime, String port, int baudRate) throws IOException;
+}
@@ -0,0 +1,246 @@
+package com.reeman.serialport.util;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 指令编码器,把指令文本直接编码成帧: AA 54 长度 数据位 校验
+ * <p>
+ * 关键字和参数直接写入复用的缓冲区,数字不经过字符串和装箱,编码一条指令不分配内存;
+ * 非线程安全,每个线程通过{@link #local()}使用自己的编码器
+ *
+ * <pre>
+ * CommandEncoder encoder = CommandEncoder.local()
+ *         .begin("move[").append(angle).append(',').append(speed).append(']')
+ *         .end();
+ * </pre>
+ */
+public final class CommandEncoder {
+    private static final int HEADER = 3;
+    /**
+     * 长度位只有一个字节,数据位最多255字节
+     */
+    public static final int MAX_DATA_LENGTH = 255;
+    /**
+     * 小数默认保留的最大位数,末尾的0会去掉
+     */
+    public static final int DEFAULT_FRACTION_DIGITS = 6;
+    private static final long[] POW10 = {
+            1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L
+    };
+    /**
+     * 按保留的小数位数,绝对值不小于该值的小数按{@link Double#toString(double)}输出;
+     * 最大1e12,小数位多时为Long.MAX_VALUE / 10^fractionDigits,放大后不会超出long的范围
+     */
+    private static final double[] MAX_FIXED = new double[POW10.length];
+
+    static {
+        for (int i = 0; i < POW10.length; i++) {
+            MAX_FIXED[i] = Math.min(1e12, (double) (Long.MAX_VALUE / POW10[i]));
+        }
+    }
+
+    private static final ThreadLocal<CommandEncoder> LOCAL = new ThreadLocal<CommandEncoder>() {
+        @Override
+        protected CommandEncoder initialValue() {
+            return new CommandEncoder();
+        }
+    };
+
+    private byte[] buffer = new byte[HEADER + MAX_DATA_LENGTH + 1];
+    private int position;
+    private int length;
+    private final byte[] digits = new byte[20];
+
+    /**
+     * @return 当前线程的编码器
+     */
+    public static CommandEncoder local() {
+        return LOCAL.get();
+    }
+
+    /**
+     * 开始编码新的指令
+     */
+    public CommandEncoder begin() {
+        buffer[0] = (byte) 0xAA;
+        buffer[1] = 0x54;
+        position = HEADER;
+        length = 0;
+        return this;
+    }
+
+    /**
+     * 开始编码新的指令并写入关键字,如"move["
+     */
+    public CommandEncoder begin(String keyword) {
+        return begin().append(keyword);
+    }
+
+    public CommandEncoder append(char c) {
+        if (c < 0x80) {
+            put((byte) c);
+        } else if (c < 0x800) {
+            put((byte) (0xC0 | (c >> 6)));
+            put((byte) (0x80 | (c & 0x3F)));
+        } else {
+            put((byte) (0xE0 | (c >> 12)));
+            put((byte) (0x80 | ((c >> 6) & 0x3F)));
+            put((byte) (0x80 | (c & 0x3F)));
+        }
+        return this;
+    }
+
+    /**
+     * 按UTF-8写入
+     */
+    public CommandEncoder append(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                put((byte) (0xF0 | (codePoint >> 18)));
+                put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                put((byte) (0x80 | (codePoint & 0x3F)));
+            } else {
+                append(c);
+            }
+        }
+        return this;
+    }
+
+    public CommandEncoder append(int value) {
+        return append((long) value);
+    }
+
+    public CommandEncoder append(long value) {
+        if (value < 0) {
+            put((byte) '-');
+            if (value == Long.MIN_VALUE) {
+                return append("9223372036854775808");
+            }
+            value = -value;
+        }
+        int count = 0;
+        do {
+            digits[count++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        while (count > 0) {
+            put(digits[--count]);
+        }
+        return this;
+    }
+
+    /**
+     * 最多保留{@link #DEFAULT_FRACTION_DIGITS}位小数
+     */
+    public CommandEncoder append(double value) {
+        return append(value, DEFAULT_FRACTION_DIGITS);
+    }
+
+    /**
+     * 四舍五入到fractionDigits位小数,去掉末尾的0,至少保留1位小数,如1.0、0.5、-0.006
+     *
+     * @param fractionDigits 0~9
+     */
+    public CommandEncoder append(double value, int fractionDigits) {
+        checkFractionDigits(fractionDigits);
+        if (Double.isNaN(value) || Double.isInfinite(value) || Math.abs(value) >= MAX_FIXED[fractionDigits]) {
+            return append(Double.toString(value));
+        }
+        long scale = POW10[fractionDigits];
+        long scaled = Math.round(Math.abs(value) * scale);
+        if (value < 0 && scaled != 0) put((byte) '-');
+        append(scaled / scale);
+        put((byte) '.');
+        long fraction = scaled % scale;
+        if (fraction == 0) {
+            put((byte) '0');
+            return this;
+        }
+        int count = fractionDigits;
+        while (fraction % 10 == 0) {
+            fraction /= 10;
+            count--;
+        }
+        for (int i = count - 1; i >= 0; i--) {
+            digits[i] = (byte) ('0' + fraction % 10);
+            fraction /= 10;
+        }
+        for (int i = 0; i < count; i++) {
+            put(digits[i]);
+        }
+        return this;
+    }
+
+    /**
+     * 写入长度和校验位,完成编码
+     *
+     * @throws IllegalArgumentException 数据位超过{@link #MAX_DATA_LENGTH}字节,长度位无法表示
+     */
+    public CommandEncoder end() {
+        int dataLength = position - HEADER;
+        if (dataLength > MAX_DATA_LENGTH) {
+            throw new IllegalArgumentException("指令长度" + dataLength + "超过" + MAX_DATA_LENGTH + ": " + this);
+        }
+        byte xor = (byte) dataLength;
+        for (int i = HEADER; i < position; i++) {
+            xor ^= buffer[i];
+        }
+        buffer[2] = (byte) dataLength;
+        put(xor);
+        length = position;
+        return this;
+    }
+
+    /**
+     * @return 编码后的帧,有效长度为{@link #length()},下次编码时被覆盖
+     */
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    /**
+     * @return 帧长度,{@link #end()}之前为0
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @return 帧的副本
+     */
+    public byte[] toByteArray() {
+        byte[] frame = new byte[length];
+        System.arraycopy(buffer, 0, frame, 0, length);
+        return frame;
+    }
+
+    /**
+     * @return 数据位文本,用于日志
+     */
+    @Override
+    public String toString() {
+        int end = length == 0 ? position : length - 1;
+        return end <= HEADER ? "" : new String(buffer, HEADER, end - HEADER, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @throws IllegalArgumentException 不在0~9之间
+     */
+    public static void checkFractionDigits(int fractionDigits) {
+        if (fractionDigits < 0 || fractionDigits >= POW10.length) {
+            throw new IllegalArgumentException("fractionDigits: " + fractionDigits);
+        }
+    }
+
+    private void put(byte b) {
+        if (position == buffer.length) {
+            byte[] grown = new byte[buffer.length * 2];
+            System.arraycopy(buffer, 0, grown, 0, position);
+            buffer = grown;
+        }
+        buffer[position++] = b;
+    }
+}
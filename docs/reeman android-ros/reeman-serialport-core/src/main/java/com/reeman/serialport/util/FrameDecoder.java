@@ -0,0 +1,211 @@
+package com.reeman.serialport.util;
+
+/**
+ * ROS串口帧解码器
+ * <p>
+ * 帧格式: 帧头(AA 54/AA 56) | 长度(L) | 数据(D) | 校验(S), S为L和D的异或
+ * <p>
+ * 直接在原始字节上运行状态机,收到的字节先写入环形缓冲区,从当前候选帧头开始保留;
+ * 接收候选帧期间记录其中出现的第一个帧头,校验失败时直接跳到该帧头重新解析,没有帧头的字节只会被扫描一次,
+ * 每个字节最多被其之前{@link #MAX_FRAME_LENGTH}字节内的候选帧重复解析,单字节的处理量有上限;
+ * 未接收完的帧始终保留在缓冲区中,不会因为前面的垃圾数据被丢弃;
+ * 非线程安全,只能在串口读线程中调用{@link #feed(byte[], int, int)}
+ */
+public class FrameDecoder {
+
+    public static final byte HEAD = (byte) 0xAA;
+    public static final byte TYPE_DATA = 0x54;
+    public static final byte TYPE_ACK = 0x56;
+
+    /**
+     * 最大帧长度: 帧头2 + 长度1 + 数据255 + 校验1
+     */
+    public static final int MAX_FRAME_LENGTH = 259;
+
+    private static final int STATE_HEAD = 0;
+    private static final int STATE_TYPE = 1;
+    private static final int STATE_LENGTH = 2;
+    private static final int STATE_DATA = 3;
+    private static final int STATE_CHECKSUM = 4;
+
+    private static final int CAPACITY = 512;
+    private static final int MASK = CAPACITY - 1;
+
+    private final byte[] ring = new byte[CAPACITY];
+    private final byte[] data = new byte[255];
+    private final OnFrameListener listener;
+
+    /**
+     * 当前候选帧的起始位置,该位置之前的字节已被消费
+     */
+    private int start;
+    /**
+     * 下一个待处理字节的位置
+     */
+    private int position;
+    /**
+     * 下一个写入位置
+     */
+    private int tail;
+    /**
+     * 当前候选帧内第一个帧头的位置,-1表示没有
+     */
+    private int nextHead = -1;
+
+    private int state = STATE_HEAD;
+    private byte type;
+    private byte previous;
+    private int length;
+    private int count;
+    private int xor;
+
+    private volatile long frames;
+    private volatile long checksumErrors;
+    private volatile long discardedBytes;
+
+    public FrameDecoder(OnFrameListener listener) {
+        this.listener = listener;
+    }
+
+    public void feed(byte[] bytes, int offset, int len) {
+        for (int i = offset; i < offset + len; i++) {
+            ring[tail++ & MASK] = bytes[i];
+            while (position != tail) {
+                step(ring[position & MASK]);
+            }
+        }
+    }
+
+    public void reset() {
+        discardedBytes += tail - start;
+        start = position = tail = 0;
+        nextHead = -1;
+        state = STATE_HEAD;
+    }
+
+    /**
+     * @return 成功解析的帧数
+     */
+    public long getFrames() {
+        return frames;
+    }
+
+    /**
+     * @return 校验失败次数
+     */
+    public long getChecksumErrors() {
+        return checksumErrors;
+    }
+
+    /**
+     * @return 被丢弃的字节数
+     */
+    public long getDiscardedBytes() {
+        return discardedBytes;
+    }
+
+    /**
+     * @return 缓冲区中尚未组成完整帧的字节数
+     */
+    public int getPendingBytes() {
+        return tail - start;
+    }
+
+    private void step(byte b) {
+        switch (state) {
+            case STATE_HEAD:
+                if (b == HEAD) {
+                    state = STATE_TYPE;
+                } else {
+                    discardTo(position + 1);
+                }
+                break;
+            case STATE_TYPE:
+                if (b == TYPE_DATA || b == TYPE_ACK) {
+                    type = b;
+                    state = STATE_LENGTH;
+                } else if (b == HEAD) {
+                    discardTo(position);
+                } else {
+                    discardTo(position + 1);
+                    state = STATE_HEAD;
+                }
+                break;
+            case STATE_LENGTH:
+                length = b & 0xFF;
+                xor = length;
+                count = 0;
+                nextHead = -1;
+                state = length == 0 ? STATE_CHECKSUM : STATE_DATA;
+                break;
+            case STATE_DATA:
+                markHead(b);
+                data[count++] = b;
+                xor ^= b & 0xFF;
+                if (count == length) state = STATE_CHECKSUM;
+                break;
+            case STATE_CHECKSUM:
+                if ((b & 0xFF) == xor) {
+                    state = STATE_HEAD;
+                    start = position + 1;
+                    frames++;
+                    listener.onFrame(type, data, 0, length);
+                } else {
+                    checksumErrors++;
+                    listener.onChecksumError(type, data, 0, length);
+                    resync(b);
+                    return;
+                }
+                break;
+        }
+        previous = b;
+        position++;
+    }
+
+    /**
+     * 记录候选帧内的第一个帧头,帧头的首字节可能是长度位
+     */
+    private void markHead(byte b) {
+        if (nextHead == -1 && previous == HEAD && (b == TYPE_DATA || b == TYPE_ACK)) {
+            nextHead = position - 1;
+        }
+    }
+
+    private void resync(byte checksum) {
+        markHead(checksum);
+        if (nextHead != -1) {
+            //跳到候选帧内的第一个帧头重新解析
+            discardTo(nextHead);
+            position = nextHead;
+            state = STATE_HEAD;
+        } else if (checksum == HEAD) {
+            //校验位可能是下一帧的帧头
+            discardTo(position);
+            previous = checksum;
+            position++;
+            state = STATE_TYPE;
+        } else {
+            discardTo(position + 1);
+            previous = checksum;
+            position++;
+            state = STATE_HEAD;
+        }
+    }
+
+    private void discardTo(int newStart) {
+        discardedBytes += newStart - start;
+        start = newStart;
+    }
+
+    public interface OnFrameListener {
+        /**
+         * @param type   {@link #TYPE_DATA}或{@link #TYPE_ACK}
+         * @param data   数据位,仅在回调期间有效
+         * @param offset 起始位置
+         * @param len    长度
+         */
+        void onFrame(byte type, byte[] data, int offset, int len);
+
+        void onChecksumError(byte type, byte[] data, int offset, int len);
+    }
+}
@@ -60,19 +60,29 @@ public class Parser {
         return s;
     }
 
-    public static byte[] string2BH(String res) {
-        byte[] bytes = res.getBytes();
-        byte[] byte1 = new byte[4 + bytes.length];
-        byte1[byte1.length - 1] = (byte) bytes.length;
-
-        for (int i = 0; i < bytes.length; ++i) {
-            byte1[byte1.length - 1] ^= bytes[i];
-            byte1[i + 3] = bytes[i];
+    /**
+     * 将数据位转换为字符串,与{@link #hexStringToString(String)}一致,0x00替换为空格
+     */
+    public static String bytesToString(byte[] data, int offset, int len) {
+        for (int i = offset; i < offset + len; i++) {
+            if (data[i] == 0) {
+                byte[] copy = Arrays.copyOfRange(data, offset, offset + len);
+                for (int j = i - offset; j < len; j++) {
+                    if (copy[j] == 0) copy[j] = 32;
+                }
+                return new String(copy, StandardCharsets.UTF_8);
+            }
         }
-        byte1[0] = -86;
-        byte1[1] = 84;
-        byte1[2] = (byte) bytes.length;
-        return byte1;
+        return new String(data, offset, len, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 把指令编码成帧,按UTF-8编码,只分配返回的数组
+     *
+     * @see CommandEncoder
+     */
+    public static byte[] string2BH(String res) {
+        return CommandEncoder.local().begin(res).end().toByteArray();
     }
 
     public static String hexString2BH(String res) {
@@ -0,0 +1,169 @@
+package com.reeman.serialport.capture;
+
+import com.reeman.serialport.controller.SerialRuntime;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CaptureJournalTest {
+    private static final int SEGMENT_SIZE = 64 * 1024;
+
+    private final SerialRuntime runtime = new SerialRuntime.Builder().build();
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("capture").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        runtime.shutdown();
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void roundTripAcrossSegments() throws Exception {
+        CaptureJournal journal = newJournal(16);
+        Random random = new Random(1);
+        ByteArrayOutputStream inbound = new ByteArrayOutputStream();
+        ByteArrayOutputStream outbound = new ByteArrayOutputStream();
+        for (int i = 0; i < 2000; i++) {
+            byte[] data = new byte[1 + random.nextInt(200)];
+            random.nextBytes(data);
+            int direction = i % 3 == 0 ? CaptureJournal.OUTBOUND : CaptureJournal.INBOUND;
+            journal.append(direction, data, 0, data.length);
+            (direction == CaptureJournal.INBOUND ? inbound : outbound).write(data);
+        }
+        journal.close();
+        assertTrue(CaptureJournal.list(dir, "ros").length > 3);
+
+        ByteArrayOutputStream readInbound = new ByteArrayOutputStream();
+        ByteArrayOutputStream readOutbound = new ByteArrayOutputStream();
+        long previous = Long.MIN_VALUE;
+        try (CaptureReader reader = CaptureReader.open(dir, "ros")) {
+            while (reader.next()) {
+                assertTrue(reader.getTimestamp() >= previous);
+                previous = reader.getTimestamp();
+                (reader.getDirection() == CaptureJournal.INBOUND ? readInbound : readOutbound)
+                        .write(reader.getData(), 0, reader.getLength());
+            }
+        }
+        assertArrayEquals(inbound.toByteArray(), readInbound.toByteArray());
+        assertArrayEquals(outbound.toByteArray(), readOutbound.toByteArray());
+    }
+
+    @Test
+    public void recordSplitAcrossSegments() throws Exception {
+        CaptureJournal journal = newJournal(16);
+        byte[] head = new byte[SEGMENT_SIZE / 2];
+        byte[] large = new byte[SEGMENT_SIZE + SEGMENT_SIZE / 2];
+        new Random(2).nextBytes(large);
+        journal.append(CaptureJournal.INBOUND, head, 0, head.length);
+        journal.append(CaptureJournal.OUTBOUND, large, 0, large.length);
+        journal.close();
+        waitFor(() -> CaptureJournal.list(dir, "ros").length == 3);
+
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        int parts = 0;
+        long timestamp = 0;
+        try (CaptureReader reader = CaptureReader.open(dir, "ros")) {
+            assertTrue(reader.next());
+            assertEquals(head.length, reader.getLength());
+            while (reader.next()) {
+                assertEquals(CaptureJournal.OUTBOUND, reader.getDirection());
+                if (parts++ > 0) assertEquals(timestamp, reader.getTimestamp());
+                timestamp = reader.getTimestamp();
+                read.write(reader.getData(), 0, reader.getLength());
+            }
+        }
+        assertEquals(3, parts);
+        assertArrayEquals(large, read.toByteArray());
+        assertEquals(1 + parts, journal.getRecords());
+    }
+
+    @Test
+    public void nextSegmentIsPreparedInBackground() throws Exception {
+        CaptureJournal journal = newJournal(16);
+        waitFor(() -> CaptureJournal.list(dir, "ros").length == 2);
+
+        //提前创建的空段读作没有记录
+        try (CaptureReader reader = CaptureReader.open(dir, "ros")) {
+            assertFalse(reader.next());
+        }
+        journal.close();
+        assertEquals(1, CaptureJournal.list(dir, "ros").length);
+    }
+
+    @Test
+    public void oldestSegmentsAreDeleted() throws Exception {
+        CaptureJournal journal = newJournal(2);
+        byte[] data = new byte[1000];
+        for (int i = 0; i < 5 * SEGMENT_SIZE / data.length; i++) {
+            data[0] = (byte) i;
+            journal.append(CaptureJournal.INBOUND, data, 0, data.length);
+        }
+        long records = journal.getRecords();
+        journal.close();
+        waitFor(() -> CaptureJournal.list(dir, "ros").length == 2);
+
+        int read = 0;
+        try (CaptureReader reader = CaptureReader.open(dir, "ros")) {
+            while (reader.next()) {
+                read++;
+            }
+        }
+        assertTrue(read > 0 && read < records);
+    }
+
+    @Test
+    public void continuesAfterExistingSegments() throws Exception {
+        CaptureJournal first = newJournal(16);
+        byte[] data = {1, 2, 3};
+        first.append(CaptureJournal.INBOUND, data, 0, data.length);
+        first.close();
+        CaptureJournal second = newJournal(16);
+        second.append(CaptureJournal.OUTBOUND, data, 0, data.length);
+        second.close();
+
+        try (CaptureReader reader = CaptureReader.open(dir, "ros")) {
+            assertTrue(reader.next());
+            assertEquals(CaptureJournal.INBOUND, reader.getDirection());
+            assertTrue(reader.next());
+            assertEquals(CaptureJournal.OUTBOUND, reader.getDirection());
+            assertFalse(reader.next());
+        }
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) throw new AssertionError("timeout");
+            Thread.sleep(10);
+        }
+    }
+
+    private CaptureJournal newJournal(int maxSegments) throws IOException {
+        return new CaptureJournal.Builder(dir).name("ros").segmentSize(SEGMENT_SIZE)
+                .maxSegments(maxSegments).runtime(runtime).build();
+    }
+}
@@ -0,0 +1,132 @@
+package com.reeman.serialport.controller;
+
+import com.reeman.serialport.transport.LoopbackTransport;
+import com.reeman.serialport.util.FrameDecoder;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CommandSchedulerTest {
+    private final SerialRuntime runtime = new SerialRuntime.Builder().build();
+    private final LoopbackTransport[] pair = LoopbackTransport.pair("test");
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+    private RosCallbackParser parser;
+
+    @After
+    public void tearDown() {
+        if (parser != null) parser.stopListen();
+        runtime.shutdown();
+    }
+
+    @Test
+    public void defaultPriorities() {
+        assertEquals(RosCallbackParser.PRIORITY_SAFETY, CommandScheduler.priorityOf("nav_cancel"));
+        assertEquals(RosCallbackParser.PRIORITY_SAFETY, CommandScheduler.priorityOf("move[0,0]"));
+        assertEquals(RosCallbackParser.PRIORITY_NAVIGATION, CommandScheduler.priorityOf("move[0.3,0]"));
+        assertEquals(RosCallbackParser.PRIORITY_NAVIGATION, CommandScheduler.priorityOf("nav_point[A]"));
+        assertEquals(RosCallbackParser.PRIORITY_TELEMETRY, CommandScheduler.priorityOf("get_max_vel"));
+        assertEquals(RosCallbackParser.PRIORITY_TELEMETRY, CommandScheduler.priorityOf("nav:get_pose"));
+        assertEquals(RosCallbackParser.PRIORITY_CONFIG, CommandScheduler.priorityOf("get_current_info[1]"));
+        assertEquals(RosCallbackParser.PRIORITY_CONFIG, CommandScheduler.priorityOf("max_vel[0.5]"));
+    }
+
+    @Test
+    public void coalescingKeys() {
+        assertEquals("move", CommandScheduler.keyOf("move[0.3,0]"));
+        assertEquals("move:stop", CommandScheduler.keyOf("move[0,0]"));
+        assertEquals("max_vel", CommandScheduler.keyOf("max_vel[0.5]"));
+        assertEquals("robot_cost:host1", CommandScheduler.keyOf("robot_cost[1,2,3,0.5,host1,1]"));
+        assertEquals("robot_cost", CommandScheduler.keyOf("robot_cost[1,2]"));
+        assertNull(CommandScheduler.keyOf("nav_point[A]"));
+    }
+
+    @Test
+    public void sendsByPriorityAndCoalescesPendingCommands() throws Exception {
+        parser = newParser();
+        parser.sendCommandToQueue("get_max_vel");
+        parser.sendCommandToQueue("max_vel[0.5]");
+        parser.sendCommandToQueue("move[0.3,0]");
+        parser.sendCommandToQueue("nav_point[A]");
+        parser.sendCommandToQueue("max_vel[0.8]");
+        parser.sendCommandToQueue("nav_cancel");
+        parser.startListen();
+
+        RosCallbackParserTest.waitFor(() -> sent.size() == 3);
+        assertEquals(Arrays.asList("nav_cancel", "max_vel[0.8]", "get_max_vel"), sent);
+        assertEquals(3, parser.getCoalescedCommandCount());
+    }
+
+    @Test
+    public void higherPriorityReplacementMovesCommand() throws Exception {
+        parser = newParser();
+        parser.sendCommandToQueue("get_max_vel");
+        parser.sendCommandToQueue("max_vel[0.5]", RosCallbackParser.PRIORITY_TELEMETRY);
+        parser.sendCommandToQueue("max_vel[0.8]", RosCallbackParser.PRIORITY_SAFETY);
+        parser.startListen();
+
+        RosCallbackParserTest.waitFor(() -> sent.size() == 2);
+        assertEquals(Arrays.asList("max_vel[0.8]", "get_max_vel"), sent);
+    }
+
+    @Test
+    public void stopIsNotReplacedByLaterMove() throws Exception {
+        parser = newParser();
+        parser.sendCommandToQueue("move[0.2,0]");
+        parser.sendCommandToQueue("move[0,0]");
+        parser.sendCommandToQueue("move[0.3,0]");
+        parser.startListen();
+
+        RosCallbackParserTest.waitFor(() -> sent.size() == 2);
+        assertEquals(Arrays.asList("move[0,0]", "move[0.3,0]"), sent);
+        assertEquals(1, parser.getCoalescedCommandCount());
+    }
+
+    @Test
+    public void lowerPriorityCommandDoesNotReplaceHigherPriority() throws Exception {
+        parser = newParser();
+        parser.sendCommandToQueue("max_vel[0.5]", RosCallbackParser.PRIORITY_SAFETY);
+        parser.sendCommandToQueue("max_vel[0.8]", RosCallbackParser.PRIORITY_TELEMETRY);
+        parser.sendCommandToQueue("max_vel[0.6]", RosCallbackParser.PRIORITY_TELEMETRY);
+        parser.startListen();
+
+        RosCallbackParserTest.waitFor(() -> sent.size() == 2);
+        assertEquals(Arrays.asList("max_vel[0.5]", "max_vel[0.6]"), sent);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownPriority() throws Exception {
+        parser = newParser();
+        parser.sendCommandToQueue("get_max_vel", RosCallbackParser.PRIORITY_TELEMETRY + 1);
+    }
+
+    /**
+     * 在ROS一端记录收到的指令,调用startListen前放入的指令在开始后按队列顺序发送
+     */
+    private RosCallbackParser newParser() throws Exception {
+        FrameDecoder decoder = new FrameDecoder(new FrameDecoder.OnFrameListener() {
+            @Override
+            public void onFrame(byte type, byte[] data, int offset, int len) {
+                sent.add(new String(data, offset, len, StandardCharsets.UTF_8));
+            }
+
+            @Override
+            public void onChecksumError(byte type, byte[] data, int offset, int len) {
+            }
+        });
+        pair[1].start(SerialPortParser.ReadMode.IMMEDIATE, (bytes, len) -> decoder.feed(bytes, 0, len));
+        return new RosCallbackParser.Builder()
+                .port("test")
+                .baudRate(115200)
+                .runtime(runtime)
+                .transport((owner, port, baudRate) -> pair[0])
+                .build();
+    }
+}
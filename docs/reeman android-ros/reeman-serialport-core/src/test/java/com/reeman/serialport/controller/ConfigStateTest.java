@@ -0,0 +1,87 @@
+package com.reeman.serialport.controller;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConfigStateTest {
+    private final ConfigState state = new ConfigState();
+
+    @Test
+    public void unknownValueIsAlwaysSent() {
+        assertFalse(state.isRedundant("max_vel[0.5]"));
+        assertFalse(state.isRedundant("switch_lidar[on]"));
+        assertEquals(0, state.getSuppressed());
+    }
+
+    @Test
+    public void replyConfirmsValue() {
+        reply("get_max_vel:0.5");
+
+        assertTrue(state.isRedundant("max_vel[0.5]"));
+        assertTrue(state.isRedundant("max_vel[0.5000001]"));
+        assertFalse(state.isRedundant("max_vel[0.6]"));
+        assertEquals(2, state.getSuppressed());
+    }
+
+    @Test
+    public void pendingValueWinsUntilTimeout() {
+        state.onSent("set_stop_time[5]");
+        assertTrue(state.isRedundant("set_stop_time[5]"));
+
+        //回复的可能是发送之前的值,等待中的值在PENDING_TIMEOUT内仍视为当前值
+        reply("get_stop_time:3");
+        assertTrue(state.isRedundant("set_stop_time[5]"));
+        assertFalse(state.isRedundant("set_stop_time[3]"));
+    }
+
+    @Test
+    public void replyClearsMatchingPendingValue() {
+        state.onSent("set_globalcost_p[0.8]");
+        reply("get_global_p:0.8");
+        state.onSent("set_globalcost_p[0.9]");
+        reply("get_global_p:0.8");
+
+        //0.9仍在等待回复
+        assertTrue(state.isRedundant("set_globalcost_p[0.9]"));
+    }
+
+    @Test
+    public void commandsWithoutReplyUseLastSentValue() {
+        state.onSent("switch_lidar[on]");
+        state.onSent("set_tolerance[0.2]");
+
+        assertTrue(state.isRedundant("switch_lidar[on]"));
+        assertFalse(state.isRedundant("switch_lidar[off]"));
+        assertTrue(state.isRedundant("set_tolerance[0.2]"));
+    }
+
+    @Test
+    public void rebootForgetsEverything() {
+        reply("get_max_vel:0.5");
+        state.onSent("switch_lidar[on]");
+        state.onSent("sys:reboot");
+
+        assertFalse(state.isRedundant("max_vel[0.5]"));
+        assertFalse(state.isRedundant("switch_lidar[on]"));
+    }
+
+    @Test
+    public void otherCommandsAndBadValuesAreNeverRedundant() {
+        reply("get_max_vel:abc");
+        state.onSent("max_vel[fast]");
+
+        assertFalse(state.isRedundant("max_vel[fast]"));
+        assertFalse(state.isRedundant("nav_cancel"));
+        assertFalse(state.isRedundant("max_vel[0.5]"));
+    }
+
+    private void reply(String message) {
+        byte[] data = message.getBytes(StandardCharsets.UTF_8);
+        state.onFrame(data, 0, data.length);
+    }
+}
@@ -0,0 +1,143 @@
+package com.reeman.serialport.controller;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FrameDispatcherTest {
+    private final List<Runnable> tasks = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> received = new CopyOnWriteArrayList<>();
+    private SerialRuntime runtime;
+
+    @After
+    public void tearDown() {
+        if (runtime != null) runtime.shutdown();
+    }
+
+    @Test
+    public void drainsAllPendingFramesInOneTaskInArrivalOrder() {
+        ReceiveBuffer buffer = new ReceiveBuffer(ReceiveBuffer.defaultFamilies(), ReceiveBuffer.defaultFallback());
+        FrameDispatcher dispatcher = newDispatcher(buffer, tasks::add);
+        dispatcher.start();
+        offer(dispatcher, "nav_result{1}", "hello", "pose[1]", "nav_result{2}", "world");
+
+        assertEquals(1, tasks.size());
+        runTasks();
+        assertEquals(Arrays.asList("nav_result{1}", "hello", "pose[1]", "nav_result{2}", "world"), received);
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    public void frameArrivingWhileReleasingIsNotStranded() throws Exception {
+        List<Thread> readers = new ArrayList<>();
+        FrameDispatcher[] dispatcher = new FrameDispatcher[1];
+        //分发任务取空数据之后、释放scheduled之前,读线程放入一帧,此时提交会被跳过
+        ReceiveBuffer buffer = new ReceiveBuffer(ReceiveBuffer.defaultFamilies(), ReceiveBuffer.defaultFallback()) {
+            private boolean raced;
+
+            @Override
+            synchronized int drainTo(Batch batch) {
+                int count = super.drainTo(batch);
+                if (count == 0 && !raced) {
+                    raced = true;
+                    Thread reader = new Thread(() -> FrameDispatcherTest.offer(dispatcher[0], "late"));
+                    readers.add(reader);
+                    reader.start();
+                    //等待读线程放入,wait释放锁
+                    long deadline = System.currentTimeMillis() + 5000;
+                    while (size() == 0 && System.currentTimeMillis() < deadline) {
+                        try {
+                            wait(1);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            break;
+                        }
+                    }
+                }
+                return count;
+            }
+        };
+        dispatcher[0] = newDispatcher(buffer, tasks::add);
+        dispatcher[0].start();
+        offer(dispatcher[0], "first");
+
+        runTasks();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        runTasks();
+
+        assertEquals(1, readers.size());
+        assertEquals(Arrays.asList("first", "late"), received);
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    public void everyFrameIsDeliveredUnderContention() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            ReceiveBuffer buffer = new ReceiveBuffer(ReceiveBuffer.defaultFamilies(), ReceiveBuffer.defaultFallback());
+            FrameDispatcher dispatcher = newDispatcher(buffer, executor);
+            dispatcher.start();
+            //每次放入一帧后等待其回调,分发任务频繁在取空和释放之间被新数据打断
+            for (int i = 0; i < 1000; i++) {
+                offer(dispatcher, "nav_result{" + i + "}");
+                int expected = i + 1;
+                RosCallbackParserTest.waitFor(() -> received.size() == expected);
+            }
+            assertEquals("nav_result{999}", received.get(received.size() - 1));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void stopDiscardsPendingFrames() {
+        ReceiveBuffer buffer = new ReceiveBuffer(ReceiveBuffer.defaultFamilies(), ReceiveBuffer.defaultFallback());
+        FrameDispatcher dispatcher = newDispatcher(buffer, tasks::add);
+        dispatcher.start();
+        offer(dispatcher, "hello");
+        dispatcher.stop();
+        offer(dispatcher, "world");
+        runTasks();
+
+        assertTrue(received.isEmpty());
+        assertEquals(0, buffer.size());
+    }
+
+    private FrameDispatcher newDispatcher(ReceiveBuffer buffer, Executor executor) {
+        runtime = new SerialRuntime.Builder().dispatchExecutor(executor).build();
+        ReportDispatcher reportDispatcher = new ReportDispatcher(null, null, null, null, null);
+        reportDispatcher.setListeners(new RosCallbackParser.RosCallback[]{received::add});
+        return new FrameDispatcher(runtime, buffer, reportDispatcher);
+    }
+
+    private void runTasks() {
+        while (true) {
+            Runnable task;
+            synchronized (tasks) {
+                if (tasks.isEmpty()) return;
+                task = tasks.remove(0);
+            }
+            task.run();
+        }
+    }
+
+    private static void offer(FrameDispatcher dispatcher, String... frames) {
+        for (String frame : frames) {
+            dispatcher.offer(frame.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
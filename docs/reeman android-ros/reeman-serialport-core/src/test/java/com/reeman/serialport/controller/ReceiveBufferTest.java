@@ -0,0 +1,104 @@
+package com.reeman.serialport.controller;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ReceiveBufferTest {
+
+    @Test
+    public void drainsInArrivalOrderAcrossLanes() {
+        ReceiveBuffer buffer = new ReceiveBuffer(ReceiveBuffer.defaultFamilies(), ReceiveBuffer.defaultFallback());
+        offer(buffer, "pose[1]", "nav_result{1}", "hello", "core_data{1}", "nav_result{2}");
+
+        assertEquals(Arrays.asList("pose[1]", "nav_result{1}", "hello", "core_data{1}", "nav_result{2}"), drain(buffer));
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    public void latestKeepsNewestAtItsArrivalPosition() {
+        ReceiveBuffer buffer = new ReceiveBuffer(ReceiveBuffer.defaultFamilies(), ReceiveBuffer.defaultFallback());
+        offer(buffer, "pose[1]", "nav_result{1}", "pose[2]", "pose[3]");
+
+        assertEquals(Arrays.asList("nav_result{1}", "pose[3]"), drain(buffer));
+        assertEquals(2, buffer.getCoalesced());
+        assertEquals(0, buffer.getDropped());
+    }
+
+    @Test
+    public void dropOldestKeepsCapacity() {
+        List<ReceiveBuffer.Family> families = new ArrayList<>();
+        families.add(new ReceiveBuffer.Family("laser[", RosCallbackParser.POLICY_DROP_OLDEST, 2));
+        ReceiveBuffer buffer = new ReceiveBuffer(families, ReceiveBuffer.defaultFallback());
+        offer(buffer, "laser[1]", "laser[2]", "laser[3]", "laser[4]");
+
+        assertEquals(Arrays.asList("laser[3]", "laser[4]"), drain(buffer));
+        assertEquals(2, buffer.getDropped());
+    }
+
+    @Test
+    public void defaultFallbackIsBounded() {
+        ReceiveBuffer buffer = new ReceiveBuffer(ReceiveBuffer.defaultFamilies(), ReceiveBuffer.defaultFallback());
+        int count = ReceiveBuffer.DEFAULT_CAPACITY * 3;
+        for (int i = 0; i < count; i++) {
+            offer(buffer, "unknown" + i);
+        }
+
+        List<String> drained = drain(buffer);
+        assertEquals(ReceiveBuffer.DEFAULT_CAPACITY, drained.size());
+        assertEquals("unknown" + (count - ReceiveBuffer.DEFAULT_CAPACITY), drained.get(0));
+        assertEquals("unknown" + (count - 1), drained.get(drained.size() - 1));
+        assertEquals(count - ReceiveBuffer.DEFAULT_CAPACITY, buffer.getDropped());
+    }
+
+    @Test
+    public void reliableGrowsUpToLimit() {
+        ReceiveBuffer buffer = new ReceiveBuffer(ReceiveBuffer.defaultFamilies(), ReceiveBuffer.defaultFallback());
+        for (int i = 0; i < ReceiveBuffer.RELIABLE_LIMIT; i++) {
+            offer(buffer, "nav_result{" + i + "}");
+        }
+        assertEquals(ReceiveBuffer.RELIABLE_LIMIT, buffer.size());
+        assertEquals(0, buffer.getDropped());
+
+        offer(buffer, "nav_result{last}");
+
+        List<String> drained = drain(buffer);
+        assertEquals(ReceiveBuffer.RELIABLE_LIMIT, drained.size());
+        assertEquals("nav_result{1}", drained.get(0));
+        assertEquals("nav_result{last}", drained.get(drained.size() - 1));
+        assertEquals(1, buffer.getDropped());
+    }
+
+    @Test
+    public void clearDropsEverything() {
+        ReceiveBuffer buffer = new ReceiveBuffer(ReceiveBuffer.defaultFamilies(), ReceiveBuffer.defaultFallback());
+        offer(buffer, "pose[1]", "nav_result{1}", "hello");
+        buffer.clear();
+
+        assertEquals(0, buffer.size());
+        offer(buffer, "hello");
+        assertEquals(Arrays.asList("hello"), drain(buffer));
+    }
+
+    private static void offer(ReceiveBuffer buffer, String... messages) {
+        for (String message : messages) {
+            buffer.offer(message.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static List<String> drain(ReceiveBuffer buffer) {
+        ReceiveBuffer.Batch batch = new ReceiveBuffer.Batch();
+        buffer.drainTo(batch);
+        List<String> messages = new ArrayList<>();
+        for (int i = 0; i < batch.size; i++) {
+            messages.add(new String(batch.frames[i], StandardCharsets.UTF_8));
+        }
+        batch.clear();
+        return messages;
+    }
+}
@@ -0,0 +1,102 @@
+package com.reeman.serialport.controller;
+
+import com.reeman.serialport.report.Topic;
+import com.reeman.serialport.transport.LoopbackTransport;
+import com.reeman.serialport.util.FrameDecoder;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+
+public class ReportDemandTest {
+    private final SerialRuntime runtime = new SerialRuntime.Builder().build();
+    private final List<String> commands = new CopyOnWriteArrayList<>();
+    private RosCallbackParser parser;
+
+    @Before
+    public void setUp() throws Exception {
+        parser = new RosCallbackParser.Builder()
+                .port("test")
+                .runtime(runtime)
+                .transport((owner, port, baudRate) -> {
+                    LoopbackTransport[] pair = LoopbackTransport.pair(port);
+                    FrameDecoder decoder = new FrameDecoder(new FrameDecoder.OnFrameListener() {
+                        @Override
+                        public void onFrame(byte type, byte[] data, int offset, int len) {
+                            commands.add(new String(data, offset, len, StandardCharsets.UTF_8));
+                        }
+
+                        @Override
+                        public void onChecksumError(byte type, byte[] data, int offset, int len) {
+                        }
+                    });
+                    pair[1].start(SerialPortParser.ReadMode.IMMEDIATE, (bytes, len) -> decoder.feed(bytes, 0, len));
+                    return pair[0];
+                })
+                .build();
+        parser.startListen();
+    }
+
+    @After
+    public void tearDown() {
+        parser.stopListen();
+        runtime.shutdown();
+    }
+
+    @Test
+    public void firstSubscriptionTurnsReportOnAndLastTurnsItOff() throws Exception {
+        RosCallbackParser.MessageHandler<Object> first = message -> {
+        };
+        RosCallbackParser.MessageHandler<String> second = message -> {
+        };
+        parser.subscribe(Topic.POSE, first);
+        parser.subscribe("pose:", second);
+        parser.unsubscribe(first);
+        parser.unsubscribe(second);
+
+        expect("nav:get_pose[on]", "nav:get_pose[off]");
+    }
+
+    @Test
+    public void specificPrefixesTurnTheirReportOn() throws Exception {
+        parser.subscribe("laser[", message -> {
+        });
+        parser.subscribe(Topic.CURRENT_INFO, message -> {
+        });
+        parser.subscribe("nav:pose[", message -> {
+        });
+
+        expect("switch_lidar[on]", "get_current_info[1]", "nav:get_pose[on]");
+    }
+
+    @Test
+    public void widerPrefixesDoNotTurnReportsOn() throws Exception {
+        parser.subscribe("p", message -> {
+        });
+        parser.subscribe("nav:", message -> {
+        });
+        parser.subscribe("", message -> {
+        });
+        parser.subscribe(Topic.CORE_DATA, message -> {
+        });
+        parser.sendCommand("marker");
+
+        expect("marker");
+    }
+
+    /**
+     * 等到指令写出后再等一会,确认没有多发
+     */
+    private void expect(String... expected) throws Exception {
+        RosCallbackParserTest.waitFor(() -> commands.size() >= expected.length);
+        Thread.sleep(20);
+        assertEquals(Arrays.asList(expected), commands);
+    }
+}
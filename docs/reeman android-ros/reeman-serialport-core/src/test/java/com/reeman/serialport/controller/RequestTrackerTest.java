@@ -0,0 +1,157 @@
+package com.reeman.serialport.controller;
+
+import com.reeman.serialport.report.ReportParser;
+import com.reeman.serialport.util.Parser;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RequestTrackerTest {
+    private static final RequestTracker.Reply<String> TEXT = (data, offset, len, parser) -> Parser.bytesToString(data, offset, len);
+
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+    private final AtomicInteger sent = new AtomicInteger();
+    private final Runnable send = sent::incrementAndGet;
+
+    @After
+    public void tearDown() {
+        timer.shutdownNow();
+    }
+
+    @Test
+    public void sameQueryIsSentOnceAndSharesReply() throws Exception {
+        RequestTracker tracker = new RequestTracker(timer, 0);
+        RosFuture<String> first = tracker.register("get_max_vel", "get_max_vel:", TEXT, 1000, send);
+        RosFuture<String> second = tracker.register("get_max_vel", "get_max_vel:", TEXT, 1000, send);
+
+        reply(tracker, "get_max_vel:0.5");
+
+        assertEquals(1, sent.get());
+        assertEquals("get_max_vel:0.5", first.get(0, TimeUnit.MILLISECONDS));
+        assertEquals("get_max_vel:0.5", second.get(0, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void replyCompletesOnlyTheQueryItMatches() throws Exception {
+        RequestTracker tracker = new RequestTracker(timer, 0);
+        RosFuture<String> a = tracker.register("nav:get_flag_point[A]", "get_flag_point", point("A"), 1000, send);
+        RosFuture<String> b = tracker.register("nav:get_flag_point[B]", "get_flag_point", point("B"), 1000, send);
+
+        reply(tracker, "get_flag_point[B,1,2,3]");
+        assertTrue(b.isDone());
+        assertFalse(a.isDone());
+
+        reply(tracker, "get_flag_point[A,4,5,6]");
+        assertEquals("get_flag_point[A,4,5,6]", a.get(0, TimeUnit.MILLISECONDS));
+        assertEquals(2, sent.get());
+    }
+
+    @Test
+    public void unrelatedFramesAreIgnored() {
+        RequestTracker tracker = new RequestTracker(timer, 0);
+        RosFuture<String> future = tracker.register("hostname:get", "sys:boot:", TEXT, 1000, send);
+
+        reply(tracker, "pose[1,2,3]");
+        reply(tracker, "sys:");
+
+        assertFalse(future.isDone());
+    }
+
+    @Test
+    public void timesOutAndStopsWaiting() throws Exception {
+        RequestTracker tracker = new RequestTracker(timer, 0);
+        RosFuture<String> future = tracker.register("hostname:get", "sys:boot:", TEXT, 20, send);
+        try {
+            future.get(2, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+
+        //没有调用方时重新查询会再次发送
+        tracker.register("hostname:get", "sys:boot:", TEXT, 1000, send);
+        assertEquals(2, sent.get());
+    }
+
+    @Test
+    public void cancelOnlyAffectsOneCaller() throws Exception {
+        RequestTracker tracker = new RequestTracker(timer, 0);
+        RosFuture<String> cancelled = tracker.register("hostname:get", "sys:boot:", TEXT, 1000, send);
+        RosFuture<String> waiting = tracker.register("hostname:get", "sys:boot:", TEXT, 1000, send);
+        cancelled.cancel(false);
+
+        reply(tracker, "sys:boot:ros");
+
+        assertTrue(cancelled.isCancelled());
+        assertEquals("sys:boot:ros", waiting.get(0, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void recentReplyAnswersWithoutSending() throws Exception {
+        RequestTracker tracker = new RequestTracker(timer, 10_000);
+        tracker.register("get_max_vel", "get_max_vel:", TEXT, 1000, send);
+        reply(tracker, "get_max_vel:0.5");
+
+        RosFuture<String> cached = tracker.register("get_max_vel", "get_max_vel:", TEXT, 1000, send);
+
+        assertEquals("get_max_vel:0.5", cached.get(0, TimeUnit.MILLISECONDS));
+        assertEquals(1, sent.get());
+    }
+
+    @Test
+    public void stopFailsPendingAndStartAcceptsAgain() throws Exception {
+        RequestTracker tracker = new RequestTracker(timer, 0);
+        RosFuture<String> pending = tracker.register("hostname:get", "sys:boot:", TEXT, 1000, send);
+        tracker.stop();
+        assertFailed(pending);
+        assertFailed(tracker.register("hostname:get", "sys:boot:", TEXT, 1000, send));
+
+        tracker.start();
+        RosFuture<String> future = tracker.register("hostname:get", "sys:boot:", TEXT, 1000, send);
+        reply(tracker, "sys:boot:ros");
+
+        assertEquals("sys:boot:ros", future.get(0, TimeUnit.MILLISECONDS));
+        assertEquals(2, sent.get());
+    }
+
+    private static RequestTracker.Reply<String> point(String name) {
+        return new RequestTracker.Reply<String>() {
+            @Override
+            public boolean matches(byte[] data, int offset, int len, ReportParser parser) {
+                return Parser.bytesToString(data, offset, len).startsWith("get_flag_point[" + name + ",");
+            }
+
+            @Override
+            public String parse(byte[] data, int offset, int len, ReportParser parser) {
+                return Parser.bytesToString(data, offset, len);
+            }
+        };
+    }
+
+    private static void reply(RequestTracker tracker, String message) {
+        byte[] data = message.getBytes(StandardCharsets.UTF_8);
+        tracker.onFrame(data, 0, data.length);
+    }
+
+    private static void assertFailed(RosFuture<?> future) throws Exception {
+        try {
+            future.get(0, TimeUnit.MILLISECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.reeman.serialport.controller;
+
+import com.reeman.serialport.report.CoreData;
+import com.reeman.serialport.report.RobotState;
+import com.reeman.serialport.report.Topic;
+import com.reeman.serialport.transport.LoopbackTransport;
+import com.reeman.serialport.transport.Transport;
+import com.reeman.serialport.util.FrameDecoder;
+import com.reeman.serialport.util.Parser;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RosCallbackParserTest {
+    private static final long TIMEOUT = TimeUnit.SECONDS.toMillis(5);
+
+    private final SerialRuntime runtime = new SerialRuntime.Builder().build();
+    private final List<String> results = new CopyOnWriteArrayList<>();
+    private final List<String> commands = new CopyOnWriteArrayList<>();
+    /**
+     * 每次打开串口时创建的ROS一端
+     */
+    private volatile LoopbackTransport ros;
+    private final List<Integer> batteries = new CopyOnWriteArrayList<>();
+    private RosCallbackParser parser;
+
+    @After
+    public void tearDown() {
+        if (parser != null) parser.stopListen();
+        runtime.shutdown();
+    }
+
+    @Test
+    public void duplicatesStillUpdateStateButSkipCallbacks() throws Exception {
+        parser = builder().skipDuplicates("core_data{").build();
+        parser.subscribe(Topic.CORE_DATA, (CoreData coreData) -> batteries.add(coreData.getBattery()));
+        parser.startListen();
+
+        receiveAndWaitForState("core_data{0 0 0 80 0}", 1);
+        receiveAndWaitForState("core_data{0 0 0 80 0}", 2);
+        receiveAndWaitForState("core_data{0 0 0 81 0}", 3);
+        waitFor(() -> results.size() == 2);
+
+        assertEquals(Arrays.asList("core_data{0 0 0 80 0}", "core_data{0 0 0 81 0}"), results);
+        assertEquals(Arrays.asList(80, 81), batteries);
+        assertEquals(1, parser.getSkippedCount());
+        assertTrue(parser.getLastSeen("core_data{") > 0);
+    }
+
+    @Test
+    public void requestResolvesFromReplyIdenticalToPreviousReport() throws Exception {
+        parser = builder().skipDuplicates("get_max_vel").build();
+        parser.startListen();
+        receive("get_max_vel:0.5");
+        waitFor(() -> results.size() == 1);
+
+        RosFuture<String> reply = parser.request("get_max_vel", "get_max_vel:", 2000);
+        waitFor(() -> commands.contains("get_max_vel"));
+        receive("get_max_vel:0.5");
+
+        assertEquals("get_max_vel:0.5", reply.get(2, TimeUnit.SECONDS));
+        //查询在监听器之前完成,等分发线程处理完这一帧
+        waitFor(() -> parser.getSkippedCount() == 1);
+        assertEquals(1, results.size());
+    }
+
+    @Test
+    public void requestsAndCommandsWorkAfterRestart() throws Exception {
+        parser = builder().build();
+        parser.startListen();
+        RosFuture<String> pending = parser.request("hostname:get", "sys:boot:", 2000);
+        parser.stopListen();
+        assertTrue(pending.isDone());
+
+        parser.startListen();
+        parser.sendCommandToQueue("nav_cancel");
+        waitFor(() -> commands.contains("nav_cancel"));
+        RosFuture<String> reply = parser.request("hostname:get", "sys:boot:", 2000);
+        waitFor(() -> commands.lastIndexOf("hostname:get") > commands.indexOf("nav_cancel"));
+        receive("sys:boot:ros-host");
+
+        assertEquals("sys:boot:ros-host", reply.get(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void executorListenerReceivesAfterRestart() throws Exception {
+        List<String> received = new CopyOnWriteArrayList<>();
+        parser = builder().addListener(received::add, Runnable::run).build();
+        parser.startListen();
+        receive("sys:boot:first");
+        waitFor(() -> received.size() == 1);
+        parser.stopListen();
+
+        parser.startListen();
+        receive("sys:boot:second");
+
+        waitFor(() -> received.size() == 2);
+        assertEquals(Arrays.asList("sys:boot:first", "sys:boot:second"), received);
+    }
+
+    @Test
+    public void failedStartClosesTransportAndCanRetry() throws Exception {
+        AtomicInteger opened = new AtomicInteger();
+        AtomicBoolean closed = new AtomicBoolean();
+        parser = builder().transport((owner, port, baudRate) -> {
+            Transport transport = open(port);
+            if (opened.incrementAndGet() > 1) return transport;
+            //第一次打开后开始读取失败
+            return new Transport() {
+                @Override
+                public String getName() {
+                    return transport.getName();
+                }
+
+                @Override
+                public void start(SerialPortParser.ReadMode mode, SerialPortParser.OnDataResultListener listener) throws IOException {
+                    throw new IOException("start failed");
+                }
+
+                @Override
+                public OutputStream getOutputStream() {
+                    return transport.getOutputStream();
+                }
+
+                @Override
+                public void close() {
+                    closed.set(true);
+                    transport.close();
+                }
+            };
+        }).build();
+
+        try {
+            parser.startListen();
+            fail();
+        } catch (IOException e) {
+            assertEquals("start failed", e.getMessage());
+        }
+        assertTrue(closed.get());
+
+        parser.startListen();
+        receive("core_data{0 0 0 80 0}");
+        waitFor(() -> results.size() == 1);
+        RosFuture<String> reply = parser.request("get_max_vel", "get_max_vel:", 2000);
+        waitFor(() -> commands.contains("get_max_vel"));
+        receive("get_max_vel:0.5");
+        assertEquals("get_max_vel:0.5", reply.get(2, TimeUnit.SECONDS));
+    }
+
+    private RosCallbackParser.Builder builder() {
+        return new RosCallbackParser.Builder()
+                .port("test")
+                .runtime(runtime)
+                .transport((owner, port, baudRate) -> open(port))
+                .callback(results::add);
+    }
+
+    private Transport open(String port) throws IOException {
+        LoopbackTransport[] pair = LoopbackTransport.pair(port);
+        FrameDecoder decoder = new FrameDecoder(new FrameDecoder.OnFrameListener() {
+            @Override
+            public void onFrame(byte type, byte[] data, int offset, int len) {
+                commands.add(new String(data, offset, len, StandardCharsets.UTF_8));
+            }
+
+            @Override
+            public void onChecksumError(byte type, byte[] data, int offset, int len) {
+            }
+        });
+        pair[1].start(SerialPortParser.ReadMode.IMMEDIATE, (bytes, len) -> decoder.feed(bytes, 0, len));
+        ros = pair[1];
+        return pair[0];
+    }
+
+    private void receive(String message) throws IOException {
+        OutputStream out = ros.getOutputStream();
+        out.write(Parser.string2BH(message));
+        out.flush();
+    }
+
+    /**
+     * 逐条等待状态更新,避免分发线程合并未回调的上报
+     */
+    private void receiveAndWaitForState(String message, long version) throws Exception {
+        receive(message);
+        waitFor(() -> parser.getState(new RobotState()).getVersion() >= version);
+    }
+
+    static void waitFor(Condition condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (!condition.met()) {
+            if (System.currentTimeMillis() > deadline) throw new AssertionError("timeout");
+            Thread.sleep(1);
+        }
+    }
+
+    interface Condition {
+        boolean met();
+    }
+}
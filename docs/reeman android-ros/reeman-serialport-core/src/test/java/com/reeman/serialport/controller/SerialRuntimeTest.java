@@ -0,0 +1,75 @@
+package com.reeman.serialport.controller;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SerialRuntimeTest {
+
+    @Test
+    public void usesAndKeepsAppExecutors() throws Exception {
+        ExecutorService io = Executors.newSingleThreadExecutor();
+        ExecutorService dispatch = Executors.newSingleThreadExecutor();
+        ScheduledExecutorService timers = Executors.newSingleThreadScheduledExecutor();
+        ScheduledExecutorService background = Executors.newSingleThreadScheduledExecutor();
+        SerialRuntime runtime = new SerialRuntime.Builder()
+                .ioExecutor(io)
+                .dispatchExecutor(dispatch)
+                .timerExecutor(timers)
+                .backgroundExecutor(background)
+                .build();
+
+        assertSame(io, runtime.io());
+        assertSame(dispatch, runtime.dispatch());
+        assertSame(timers, runtime.timers());
+        assertSame(background, runtime.background());
+
+        runtime.shutdown();
+        assertFalse(io.isShutdown());
+        assertFalse(dispatch.isShutdown());
+        assertFalse(timers.isShutdown());
+        assertFalse(background.isShutdown());
+        for (ExecutorService executor : new ExecutorService[]{io, dispatch, timers, background}) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void ownExecutorsUseNamedDaemonThreads() throws Exception {
+        SerialRuntime runtime = new SerialRuntime.Builder().build();
+        CountDownLatch done = new CountDownLatch(2);
+        String[] names = new String[2];
+        boolean[] daemon = new boolean[2];
+        runtime.io().execute(() -> {
+            names[0] = Thread.currentThread().getName();
+            daemon[0] = Thread.currentThread().isDaemon();
+            done.countDown();
+        });
+        runtime.dispatch().execute(() -> {
+            names[1] = Thread.currentThread().getName();
+            daemon[1] = Thread.currentThread().isDaemon();
+            done.countDown();
+        });
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        runtime.shutdown();
+
+        assertTrue(names[0].startsWith("serial-io-"));
+        assertTrue(names[1].startsWith("serial-dispatch-"));
+        assertTrue(daemon[0] && daemon[1]);
+        assertTrue(((ExecutorService) runtime.io()).isShutdown());
+        assertTrue(runtime.timers().isShutdown());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsZeroThreads() {
+        new SerialRuntime.Builder().ioThreads(0);
+    }
+}
@@ -0,0 +1,252 @@
+package com.reeman.serialport.controller;
+
+import com.reeman.serialport.util.FrameDecoder;
+import com.reeman.serialport.util.Parser;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SerialWriterTest {
+    private final SerialRuntime runtime = new SerialRuntime.Builder().build();
+    private final RecordingStream stream = new RecordingStream();
+
+    @After
+    public void tearDown() {
+        runtime.shutdown();
+    }
+
+    @Test
+    public void framesFromManyThreadsArriveWhole() throws Exception {
+        SerialWriter writer = new SerialWriter(runtime, stream, "test");
+        int threads = 4;
+        int perThread = 500;
+        CountDownLatch ready = new CountDownLatch(1);
+        List<Thread> senders = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int sender = t;
+            Thread thread = new Thread(() -> {
+                try {
+                    ready.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    byte[] frame = Parser.string2BH("move[" + sender + "," + i + "]");
+                    writer.offer(frame, 0, frame.length);
+                }
+            });
+            thread.start();
+            senders.add(thread);
+        }
+        ready.countDown();
+        for (Thread thread : senders) {
+            thread.join();
+        }
+        RosCallbackParserTest.waitFor(() -> stream.size() == expectedBytes(threads, perThread));
+
+        List<String> frames = decode(stream.toByteArray());
+        assertEquals(threads * perThread, frames.size());
+        //每个发送线程的帧保持顺序
+        int[] next = new int[threads];
+        for (String frame : frames) {
+            String[] fields = frame.substring("move[".length(), frame.length() - 1).split(",");
+            int sender = Integer.parseInt(fields[0]);
+            assertEquals(next[sender]++, Integer.parseInt(fields[1]));
+        }
+    }
+
+    @Test
+    public void pendingFramesAreCombinedIntoOneWrite() throws Exception {
+        stream.block();
+        SerialWriter writer = new SerialWriter(runtime, stream, "test");
+        byte[] first = Parser.string2BH("nav_cancel");
+        writer.offer(first, 0, first.length);
+        RosCallbackParserTest.waitFor(() -> stream.blocked);
+        for (int i = 0; i < 10; i++) {
+            byte[] frame = Parser.string2BH("get_max_vel");
+            writer.offer(frame, 0, frame.length);
+        }
+        stream.release();
+        RosCallbackParserTest.waitFor(() -> decode(stream.toByteArray()).size() == 11);
+
+        assertEquals(2, stream.writes());
+    }
+
+    @Test
+    public void senderWaitsWhileQueueIsFull() throws Exception {
+        stream.block();
+        SerialWriter writer = new SerialWriter(runtime, stream, "test");
+        byte[] frame = Parser.string2BH("get_max_vel");
+        Thread sender = new Thread(() -> {
+            for (int i = 0; i < 200; i++) {
+                writer.offer(frame, 0, frame.length);
+            }
+        });
+        sender.start();
+        sender.join(200);
+        assertTrue(sender.isAlive());
+
+        stream.release();
+        sender.join(5000);
+        RosCallbackParserTest.waitFor(() -> decode(stream.toByteArray()).size() == 200);
+    }
+
+    @Test
+    public void stopReleasesWaitingSender() throws Exception {
+        stream.block();
+        SerialWriter writer = new SerialWriter(runtime, stream, "test");
+        byte[] frame = Parser.string2BH("get_max_vel");
+        Thread sender = new Thread(() -> {
+            for (int i = 0; i < 200; i++) {
+                writer.offer(frame, 0, frame.length);
+            }
+        });
+        sender.start();
+        sender.join(100);
+        writer.stop();
+        sender.join(5000);
+        stream.release();
+
+        assertFalse(sender.isAlive());
+    }
+
+    @Test
+    public void stopSendsPendingFrames() throws Exception {
+        stream.block();
+        SerialWriter writer = new SerialWriter(runtime, stream, "test");
+        byte[] first = Parser.string2BH("get_max_vel");
+        writer.offer(first, 0, first.length);
+        RosCallbackParserTest.waitFor(() -> stream.blocked);
+        byte[] cancel = Parser.string2BH("nav_cancel");
+        writer.offer(cancel, 0, cancel.length);
+        byte[] stop = Parser.string2BH("move[0,0]");
+        writer.offer(stop, 0, stop.length);
+
+        Thread stopper = new Thread(writer::stop);
+        stopper.start();
+        stopper.join(100);
+        assertTrue(stopper.isAlive());
+        stream.release();
+        stopper.join(5000);
+        assertFalse(stopper.isAlive());
+
+        assertEquals(Arrays.asList("get_max_vel", "nav_cancel", "move[0,0]"), decode(stream.toByteArray()));
+        //停止后放入的帧不发送
+        writer.offer(first, 0, first.length);
+        Thread.sleep(50);
+        assertEquals(3, decode(stream.toByteArray()).size());
+    }
+
+    @Test
+    public void blockedLinkDoesNotDelayOtherLinks() throws Exception {
+        stream.block();
+        SerialWriter slow = new SerialWriter(runtime, stream, "slow");
+        byte[] first = Parser.string2BH("nav_cancel");
+        slow.offer(first, 0, first.length);
+        RosCallbackParserTest.waitFor(() -> stream.blocked);
+
+        RecordingStream other = new RecordingStream();
+        SerialWriter fast = new SerialWriter(runtime, other, "fast");
+        byte[] frame = Parser.string2BH("get_max_vel");
+        fast.offer(frame, 0, frame.length);
+        RosCallbackParserTest.waitFor(() -> other.size() == frame.length);
+
+        stream.release();
+        slow.stop();
+        fast.stop();
+    }
+
+    private static long expectedBytes(int threads, int perThread) {
+        long bytes = 0;
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < perThread; i++) {
+                bytes += Parser.string2BH("move[" + t + "," + i + "]").length;
+            }
+        }
+        return bytes;
+    }
+
+    private static List<String> decode(byte[] bytes) {
+        List<String> frames = new ArrayList<>();
+        FrameDecoder decoder = new FrameDecoder(new FrameDecoder.OnFrameListener() {
+            @Override
+            public void onFrame(byte type, byte[] data, int offset, int len) {
+                frames.add(new String(data, offset, len, StandardCharsets.UTF_8));
+            }
+
+            @Override
+            public void onChecksumError(byte type, byte[] data, int offset, int len) {
+                throw new AssertionError("checksum error");
+            }
+        });
+        decoder.feed(bytes, 0, bytes.length);
+        assertEquals(0, decoder.getPendingBytes());
+        return Collections.unmodifiableList(frames);
+    }
+
+    /**
+     * 记录写入的数据和write调用次数,block后写入阻塞到release
+     */
+    private static class RecordingStream extends OutputStream {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private int writes;
+        private boolean blocking;
+        volatile boolean blocked;
+
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            synchronized (this) {
+                while (blocking) {
+                    blocked = true;
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                out.write(b, off, len);
+                writes++;
+            }
+        }
+
+        synchronized void block() {
+            blocking = true;
+        }
+
+        synchronized void release() {
+            blocking = false;
+            notifyAll();
+        }
+
+        synchronized int writes() {
+            return writes;
+        }
+
+        synchronized long size() {
+            return out.size();
+        }
+
+        synchronized byte[] toByteArray() {
+            return out.toByteArray();
+        }
+    }
+}
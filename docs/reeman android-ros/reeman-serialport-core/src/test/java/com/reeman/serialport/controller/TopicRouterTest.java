@@ -0,0 +1,97 @@
+package com.reeman.serialport.controller;
+
+import com.reeman.serialport.report.Topic;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class TopicRouterTest {
+    private final TopicRouter router = new TopicRouter();
+    private final RosCallbackParser.MessageHandler<Object> first = message -> {
+    };
+    private final RosCallbackParser.MessageHandler<Object> second = message -> {
+    };
+    private final RosCallbackParser.MessageHandler<String> fallback = message -> {
+    };
+
+    @Test
+    public void matchesEveryPrefixAlongThePath() {
+        router.add(Topic.of("nav"), first);
+        router.add(Topic.of("nav_result{"), second);
+
+        TopicRouter.Matches matches = match("nav_result{1 0 A 3.5 12}");
+
+        assertEquals(2, matches.size);
+        assertSame(first, matches.items[0].handler);
+        assertSame(second, matches.items[1].handler);
+        assertEquals(1, match("nav:pose[1,2,3]").size);
+    }
+
+    @Test
+    public void deliversHandlerOnceForSeveralPrefixes() {
+        router.add(Topic.POSE, first);
+        router.add(Topic.of("pose"), first);
+
+        TopicRouter.Matches matches = match("pose[1.0,2.0,0.5]");
+
+        assertEquals(1, matches.size);
+        assertEquals("pose", matches.items[0].topic.getPrefixes()[0]);
+        assertEquals(1, match("nav:pose:1.0,2.0").size);
+    }
+
+    @Test
+    public void shortMessageDoesNotMatchLongerPrefix() {
+        router.add(Topic.CORE_DATA, first);
+
+        assertEquals(0, match("core").size);
+        assertEquals(0, match("").size);
+    }
+
+    @Test
+    public void unmatchedOnlyWhenNothingElseMatches() {
+        router.add(Topic.CORE_DATA, first);
+        router.addUnmatched(fallback);
+
+        assertSame(first, match("core_data{0 0 0 80 0}").items[0].handler);
+        TopicRouter.Matches matches = match("hello");
+        assertEquals(1, matches.size);
+        assertSame(fallback, matches.items[0].handler);
+    }
+
+    @Test
+    public void removeReturnsTopicOncePerSubscription() {
+        router.add(Topic.POSE, first);
+        router.add(Topic.POSE, first);
+        router.add(Topic.CORE_DATA, second);
+
+        assertEquals(Arrays.<Topic<?>>asList(Topic.POSE, Topic.POSE), router.remove(first));
+        assertEquals(0, match("pose[1.0,2.0,0.5]").size);
+        assertEquals(1, match("core_data{0 0 0 80 0}").size);
+        assertEquals(Collections.<Topic<?>>emptyList(), router.remove(first));
+    }
+
+    @Test
+    public void matchesGrowBeyondInitialCapacity() {
+        for (int i = 0; i < 10; i++) {
+            //每次创建新的实例,不能用不捕获变量的lambda
+            router.add(Topic.of("laser["), new RosCallbackParser.MessageHandler<Object>() {
+                @Override
+                public void onMessage(Object message) {
+                }
+            });
+        }
+
+        assertEquals(10, match("laser[1.23]").size);
+    }
+
+    private TopicRouter.Matches match(String message) {
+        byte[] data = message.getBytes(StandardCharsets.UTF_8);
+        return router.match(data, 0, data.length, new TopicRouter.Matches());
+    }
+}
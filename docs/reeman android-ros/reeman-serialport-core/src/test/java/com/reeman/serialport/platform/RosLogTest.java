@@ -0,0 +1,54 @@
+package com.reeman.serialport.platform;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RosLogTest {
+    private final Logger logger = Logger.getLogger(RosLog.TAG);
+    private final Level original = logger.getLevel();
+
+    @After
+    public void tearDown() {
+        logger.setLevel(original);
+    }
+
+    @Test
+    public void disabledLevelDoesNotFormat() {
+        logger.setLevel(Level.INFO);
+        CountingArg arg = new CountingArg();
+        RosLog.v("send %s", arg);
+        RosLog.d("send %s", arg);
+
+        assertFalse(RosLog.isLoggable(Platform.VERBOSE));
+        assertEquals(0, arg.calls);
+    }
+
+    @Test
+    public void enabledLevelFormats() {
+        logger.setLevel(Level.OFF);
+        assertFalse(RosLog.isLoggable(Platform.ERROR));
+        logger.setLevel(Level.ALL);
+        CountingArg arg = new CountingArg();
+        RosLog.v("send %s", arg);
+
+        assertTrue(RosLog.isLoggable(Platform.VERBOSE));
+        assertEquals(1, arg.calls);
+    }
+
+    private static class CountingArg {
+        int calls;
+
+        @Override
+        public String toString() {
+            calls++;
+            return "arg";
+        }
+    }
+}
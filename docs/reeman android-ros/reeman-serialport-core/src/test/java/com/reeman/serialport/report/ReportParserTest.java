@@ -0,0 +1,243 @@
+package com.reeman.serialport.report;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ReportParserTest {
+    private static final double DELTA = 1e-9;
+
+    private final ReportParser parser = new ReportParser();
+
+    @Test
+    public void typeOf() {
+        assertEquals(ReportParser.NAV_RESULT, type("nav_result{3 0 A 0 1}"));
+        assertEquals(ReportParser.CORE_DATA, type("core_data{0 0 0 80 0}"));
+        assertEquals(ReportParser.POSE, type("pose[1,2,3]"));
+        assertEquals(ReportParser.POSE, type("pose:notfound"));
+        assertEquals(ReportParser.POSE, type("nav:pose[1,2,3]"));
+        assertEquals(ReportParser.BATTERY_INFO, type("battery_info{a 1 2 3 4 5 6}"));
+        assertEquals(ReportParser.CURRENT_INFO, type("current_info{1 2 3 0 0}"));
+        assertEquals(ReportParser.UNKNOWN, type("poses[1,2,3]"));
+        assertEquals(ReportParser.UNKNOWN, type("pose"));
+        assertEquals(ReportParser.UNKNOWN, type("nav:get_pose"));
+        assertEquals(ReportParser.UNKNOWN, type(""));
+    }
+
+    @Test
+    public void navResult() {
+        NavResult out = new NavResult();
+        assertTrue(parse("nav_result{3 -1 reception 1.25 1024.5}", out));
+        assertEquals(3, out.getState());
+        assertEquals(-1, out.getCode());
+        assertEquals("reception", out.getName());
+        assertEquals(1.25, out.getDistToGoal(), DELTA);
+        assertEquals(1024.5, out.getMileage(), DELTA);
+    }
+
+    @Test
+    public void navResultReusesUnchangedName() {
+        NavResult out = new NavResult();
+        assertTrue(parse("nav_result{1 0 A1 3 10}", out));
+        String name = out.getName();
+        assertTrue(parse("nav_result{3 0 A1 0 12}", out));
+        assertSame(name, out.getName());
+        assertTrue(parse("nav_result{1 0 A2 3 12}", out));
+        assertEquals("A2", out.getName());
+    }
+
+    @Test
+    public void coreData() {
+        CoreData out = new CoreData();
+        assertTrue(parse("core_data{1 0 2 87 8}", out));
+        assertEquals(1, out.getBumper());
+        assertEquals(0, out.getCliff());
+        assertEquals(2, out.getButton());
+        assertEquals(87, out.getBattery());
+        assertEquals(8, out.getCharger());
+    }
+
+    @Test
+    public void pose() {
+        Pose out = new Pose();
+        assertTrue(parse("pose[1.5,-2.25,3.14159]", out));
+        assertTrue(out.isFound());
+        assertEquals(1.5, out.getX(), DELTA);
+        assertEquals(-2.25, out.getY(), DELTA);
+        assertEquals(3.14159, out.getRadian(), DELTA);
+
+        assertTrue(parse("nav:pose[-0.5,0.75,-1.2]", out));
+        assertTrue(out.isFound());
+        assertEquals(-0.5, out.getX(), DELTA);
+        assertEquals(0.75, out.getY(), DELTA);
+        assertEquals(-1.2, out.getRadian(), DELTA);
+    }
+
+    @Test
+    public void poseNotFound() {
+        Pose out = new Pose();
+        assertTrue(parse("pose[1,2,3]", out));
+        assertTrue(parse("pose:notfound", out));
+        assertFalse(out.isFound());
+        assertFalse(parse("pose:lost", out));
+        assertFalse(parse("pose:", out));
+    }
+
+    @Test
+    public void batteryInfoWithHealth() {
+        BatteryInfo out = new BatteryInfo();
+        assertTrue(parse("battery_info{ATL 25.2 31.5 120 30000 29000 15000 98}", out));
+        assertEquals("ATL", out.getManufacturer());
+        assertEquals(25.2, out.getNominalVoltage(), DELTA);
+        assertEquals(31.5, out.getTemperature(), DELTA);
+        assertEquals(120, out.getCycleTimes());
+        assertEquals(30000, out.getRatedCapacity(), DELTA);
+        assertEquals(29000, out.getFullCapacity(), DELTA);
+        assertEquals(15000, out.getCapacity(), DELTA);
+        assertEquals(98, out.getHealth());
+    }
+
+    @Test
+    public void batteryInfoWithoutHealth() {
+        BatteryInfo out = new BatteryInfo();
+        assertTrue(parse("battery_info{ATL 25.2 31.5 120 30000 29000 15000}", out));
+        assertEquals(15000, out.getCapacity(), DELTA);
+        assertEquals(-1, out.getHealth());
+    }
+
+    @Test
+    public void currentInfo() {
+        CurrentInfo out = new CurrentInfo();
+        assertTrue(parse("current_info{25.6 -1.5 0.25 4 1}", out));
+        assertEquals(25.6, out.getVoltage(), DELTA);
+        assertEquals(-1.5, out.getCurrent(), DELTA);
+        assertEquals(0.25, out.getAdapterCurrent(), DELTA);
+        assertEquals(4, out.getWarning());
+        assertEquals(1, out.getOffline());
+    }
+
+    @Test
+    public void negativeAndExponentNumbers() {
+        Pose out = new Pose();
+        assertTrue(parse("pose[-0.001,+2,1.5e-3]", out));
+        assertEquals(-0.001, out.getX(), DELTA);
+        assertEquals(2, out.getY(), DELTA);
+        assertEquals(1.5e-3, out.getRadian(), DELTA);
+
+        assertTrue(parse("pose[-2E2,1e+3,-7.25e-1]", out));
+        assertEquals(-200, out.getX(), DELTA);
+        assertEquals(1000, out.getY(), DELTA);
+        assertEquals(-0.725, out.getRadian(), DELTA);
+
+        //超过15位有效数字或小数位时也交给Double.parseDouble
+        assertTrue(parse("pose[1234567890.1234567,0.0000000000000001,-0]", out));
+        assertEquals(1234567890.1234567, out.getX(), 1e-6);
+        assertEquals(1e-16, out.getY(), 1e-20);
+        assertEquals(0, out.getRadian(), DELTA);
+    }
+
+    @Test
+    public void malformedPayloadsReturnFalse() {
+        assertFalse(parse("pose[1,2,abc]", new Pose()));
+        assertFalse(parse("pose[1,2,1e]", new Pose()));
+        assertFalse(parse("pose[1,,]", new Pose()));
+        assertFalse(parse("pose[1,2,3}", new Pose()));
+        assertFalse(parse("pose[.,2,3]", new Pose()));
+        assertFalse(parse("pose[-,2,3]", new Pose()));
+        assertFalse(parse("core_data{1 0 x 87 8}", new CoreData()));
+        assertFalse(parse("current_info{1 2 3 4}", new CurrentInfo()));
+        assertFalse(parse("nav_result{3 0}", new NavResult()));
+        assertFalse(parse("battery_info{}", new BatteryInfo()));
+        //类型不符
+        assertFalse(parse("core_data{1 0 2 87 8}", new Pose()));
+        assertFalse(parse("pose[1,2,3]", new NavResult()));
+    }
+
+    @Test
+    public void truncatedPayloadsReturnFalse() {
+        String[] reports = {
+                "nav_result{3 -1 reception 1.25 1024.5}",
+                "core_data{1 0 2 87 8}",
+                "pose[1.5,-2.25,3.14159]",
+                "nav:pose[-0.5,0.75,-1.2]",
+                "pose:notfound",
+                "battery_info{ATL 25.2 31.5 120 30000 29000 15000 98}",
+                "current_info{25.6 -1.5 0.25 4 1}",
+        };
+        for (String report : reports) {
+            byte[] bytes = report.getBytes(StandardCharsets.UTF_8);
+            assertTrue(report, parseAny(bytes, bytes.length));
+            for (int len = 0; len < bytes.length; len++) {
+                assertFalse(report.substring(0, len), parseAny(bytes, len));
+            }
+        }
+    }
+
+    @Test
+    public void failedParseKeepsParserUsable() {
+        NavResult out = new NavResult();
+        assertFalse(parse("nav_result{1 0", out));
+        assertTrue(parse("nav_result{2 0 B 0 0}", out));
+        assertEquals("B", out.getName());
+        assertFalse(parse("nav_result{1 0  ", out));
+    }
+
+    /**
+     * 按类型解析,数据位放在数组中间,检查偏移量的处理
+     */
+    private boolean parseAny(byte[] report, int len) {
+        byte[] data = new byte[len + 8];
+        data[0] = 'x';
+        System.arraycopy(report, 0, data, 4, len);
+        data[len + 4] = '}';
+        switch (ReportParser.typeOf(data, 4, len)) {
+            case ReportParser.NAV_RESULT:
+                return parser.parseNavResult(data, 4, len, new NavResult());
+            case ReportParser.CORE_DATA:
+                return parser.parseCoreData(data, 4, len, new CoreData());
+            case ReportParser.POSE:
+                return parser.parsePose(data, 4, len, new Pose());
+            case ReportParser.BATTERY_INFO:
+                return parser.parseBatteryInfo(data, 4, len, new BatteryInfo());
+            case ReportParser.CURRENT_INFO:
+                return parser.parseCurrentInfo(data, 4, len, new CurrentInfo());
+            default:
+                return false;
+        }
+    }
+
+    private static int type(String report) {
+        byte[] bytes = report.getBytes(StandardCharsets.UTF_8);
+        return ReportParser.typeOf(bytes, 0, bytes.length);
+    }
+
+    private boolean parse(String report, NavResult out) {
+        byte[] bytes = report.getBytes(StandardCharsets.UTF_8);
+        return parser.parseNavResult(bytes, 0, bytes.length, out);
+    }
+
+    private boolean parse(String report, CoreData out) {
+        byte[] bytes = report.getBytes(StandardCharsets.UTF_8);
+        return parser.parseCoreData(bytes, 0, bytes.length, out);
+    }
+
+    private boolean parse(String report, Pose out) {
+        byte[] bytes = report.getBytes(StandardCharsets.UTF_8);
+        return parser.parsePose(bytes, 0, bytes.length, out);
+    }
+
+    private boolean parse(String report, BatteryInfo out) {
+        byte[] bytes = report.getBytes(StandardCharsets.UTF_8);
+        return parser.parseBatteryInfo(bytes, 0, bytes.length, out);
+    }
+
+    private boolean parse(String report, CurrentInfo out) {
+        byte[] bytes = report.getBytes(StandardCharsets.UTF_8);
+        return parser.parseCurrentInfo(bytes, 0, bytes.length, out);
+    }
+}
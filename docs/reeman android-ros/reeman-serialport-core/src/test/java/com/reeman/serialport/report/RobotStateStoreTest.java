@@ -0,0 +1,152 @@
+package com.reeman.serialport.report;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RobotStateStoreTest {
+    private static final double DELTA = 1e-9;
+
+    private final RobotStateStore store = new RobotStateStore();
+
+    @Test
+    public void emptyBeforeAnyUpdate() {
+        RobotState state = store.read(new RobotState());
+        assertFalse(state.hasPose());
+        assertFalse(state.hasCoreData());
+        assertFalse(state.hasCurrentInfo());
+        assertFalse(state.hasNavResult());
+        assertFalse(state.hasMaxVel());
+        assertEquals(0, state.getVersion());
+        assertEquals(0, store.getVersion());
+    }
+
+    @Test
+    public void eachUpdateSetsItsPartAndAdvancesVersionOnce() {
+        store.update(pose(1, 2, 3));
+        assertEquals(1, store.getVersion());
+        RobotState state = store.read(new RobotState());
+        assertTrue(state.hasPose());
+        assertFalse(state.hasCoreData());
+        assertEquals(1, state.getVersion());
+
+        CoreData coreData = new CoreData();
+        coreData.battery = 87;
+        store.update(coreData);
+        CurrentInfo currentInfo = new CurrentInfo();
+        currentInfo.voltage = 25.6;
+        store.update(currentInfo);
+        NavResult navResult = new NavResult();
+        navResult.state = 3;
+        navResult.name = "A";
+        store.update(navResult);
+        store.updateMaxVel(0.8);
+        assertEquals(5, store.getVersion());
+
+        store.read(state);
+        assertTrue(state.hasPose() && state.hasCoreData() && state.hasCurrentInfo() && state.hasNavResult() && state.hasMaxVel());
+        assertEquals(5, state.getVersion());
+        assertEquals(2, state.getPose().getY(), DELTA);
+        assertEquals(87, state.getCoreData().getBattery());
+        assertEquals(25.6, state.getCurrentInfo().getVoltage(), DELTA);
+        assertEquals(3, state.getNavResult().getState());
+        assertEquals("A", state.getNavResult().getName());
+        assertEquals(0.8, state.getMaxVel(), DELTA);
+    }
+
+    @Test
+    public void notFoundKeepsPreviousCoordinates() {
+        store.update(pose(1.5, -2.5, 0.5));
+        Pose notFound = new Pose();
+        notFound.found = false;
+        store.update(notFound);
+
+        RobotState state = store.read(new RobotState());
+        assertTrue(state.hasPose());
+        assertFalse(state.getPose().isFound());
+        assertEquals(1.5, state.getPose().getX(), DELTA);
+        assertEquals(-2.5, state.getPose().getY(), DELTA);
+        assertEquals(0.5, state.getPose().getRadian(), DELTA);
+        assertEquals(2, state.getVersion());
+
+        store.update(pose(3, 4, 1));
+        store.read(state);
+        assertTrue(state.getPose().isFound());
+        assertEquals(3, state.getPose().getX(), DELTA);
+    }
+
+    @Test
+    public void navResultWithoutNameKeepsNull() {
+        store.update(new NavResult());
+        assertNull(store.read(new RobotState()).getNavResult().getName());
+    }
+
+    @Test
+    public void snapshotNeverMixesTwoWrites() throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> failure = new AtomicReference<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 3; r++) {
+            Thread reader = new Thread(() -> {
+                RobotState state = new RobotState();
+                long lastVersion = 0;
+                while (running.get() && failure.get() == null) {
+                    store.read(state);
+                    Pose pose = state.getPose();
+                    CoreData coreData = state.getCoreData();
+                    if (pose.getX() != pose.getY() || pose.getX() != pose.getRadian()) {
+                        failure.set("pose混合了两次写入: " + pose);
+                    } else if (coreData.getBumper() != coreData.getCliff() || coreData.getBumper() != coreData.getCharger()) {
+                        failure.set("core_data混合了两次写入: " + coreData);
+                    } else if (state.getVersion() < lastVersion) {
+                        failure.set("版本回退: " + lastVersion + " -> " + state.getVersion());
+                    }
+                    lastVersion = state.getVersion();
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+
+        Pose pose = new Pose();
+        CoreData coreData = new CoreData();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300);
+        int writes = 0;
+        while (System.nanoTime() < deadline && failure.get() == null) {
+            int i = ++writes;
+            if (i % 2 == 0) {
+                pose.found = true;
+                pose.x = pose.y = pose.radian = i;
+                store.update(pose);
+            } else {
+                coreData.bumper = coreData.cliff = coreData.charger = i;
+                store.update(coreData);
+            }
+        }
+        running.set(false);
+        for (Thread reader : readers) {
+            reader.join(5000);
+        }
+
+        assertNull(failure.get());
+        assertEquals(writes, store.getVersion());
+    }
+
+    private static Pose pose(double x, double y, double radian) {
+        Pose pose = new Pose();
+        pose.found = true;
+        pose.x = x;
+        pose.y = y;
+        pose.radian = radian;
+        return pose;
+    }
+}
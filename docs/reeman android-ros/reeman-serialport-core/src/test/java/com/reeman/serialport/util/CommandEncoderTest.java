@@ -0,0 +1,99 @@
+package com.reeman.serialport.util;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class CommandEncoderTest {
+
+    @Test
+    public void encodesSameFrameAsString2BH() {
+        for (String command : new String[]{"nav_cancel", "move[0.3,0]", "get_max_vel", "", "nav_point[前台]"}) {
+            assertArrayEquals(command, Parser.string2BH(command), new CommandEncoder().begin(command).end().toByteArray());
+        }
+    }
+
+    @Test
+    public void appendsNumbersWithoutFormatting() {
+        assertEquals("move[-30,0.25]", text(new CommandEncoder().begin("move[").append(-30).append(',').append(0.25).append(']')));
+        assertEquals("0", text(new CommandEncoder().begin().append(0)));
+        assertEquals("-9223372036854775808", text(new CommandEncoder().begin().append(Long.MIN_VALUE)));
+        assertEquals("9223372036854775807", text(new CommandEncoder().begin().append(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void roundsAndTrimsFractions() {
+        assertEquals("1.0", text(new CommandEncoder().begin().append(1.0)));
+        assertEquals("1.235", text(new CommandEncoder().begin().append(1.23456, 3)));
+        assertEquals("-0.006", text(new CommandEncoder().begin().append(-0.0055, 3)));
+        assertEquals("0.0", text(new CommandEncoder().begin().append(-0.0004, 3)));
+        assertEquals("2.0", text(new CommandEncoder().begin().append(1.6, 0)));
+        assertEquals("0.000001", text(new CommandEncoder().begin().append(0.000001)));
+        assertEquals("1.0E12", text(new CommandEncoder().begin().append(1e12)));
+        assertEquals("NaN", text(new CommandEncoder().begin().append(Double.NaN)));
+    }
+
+    @Test
+    public void largeValuesWithManyFractionDigitsDoNotOverflow() {
+        assertEquals("1.0E10", text(new CommandEncoder().begin().append(1e10, 9)));
+        assertEquals("-1.0E10", text(new CommandEncoder().begin().append(-1e10, 9)));
+        assertEquals("9000000000.0", text(new CommandEncoder().begin().append(9e9, 9)));
+        assertEquals("1.0E11", text(new CommandEncoder().begin().append(1e11, 8)));
+        assertEquals("500000000000.0", text(new CommandEncoder().begin().append(5e11, 7)));
+        assertEquals("1.0E12", text(new CommandEncoder().begin().append(1e12, 7)));
+        assertEquals("999999999999.5", text(new CommandEncoder().begin().append(999999999999.5, 1)));
+    }
+
+    @Test
+    public void encodesUtf8IncludingSurrogatePairs() {
+        String text = "é前😀";
+        CommandEncoder encoder = new CommandEncoder().begin(text).end();
+        assertArrayEquals(Parser.string2BH(text), encoder.toByteArray());
+        assertEquals(text, encoder.toString());
+    }
+
+    @Test
+    public void reusesBufferForNextCommand() {
+        CommandEncoder encoder = new CommandEncoder();
+        byte[] buffer = encoder.begin("robot_cost[1.0,2.0,3.0,0.5,host1,1]").end().buffer();
+        encoder.begin("nav_cancel").end();
+
+        assertSame(buffer, encoder.buffer());
+        assertEquals("nav_cancel", encoder.toString());
+        assertArrayEquals(Parser.string2BH("nav_cancel"), encoder.toByteArray());
+    }
+
+    @Test
+    public void acceptsMaximumDataLength() {
+        StringBuilder command = new StringBuilder();
+        for (int i = 0; i < CommandEncoder.MAX_DATA_LENGTH; i++) {
+            command.append('a');
+        }
+        CommandEncoder encoder = new CommandEncoder().begin(command.toString()).end();
+        assertEquals(CommandEncoder.MAX_DATA_LENGTH + 4, encoder.length());
+        assertEquals((byte) 0xFF, encoder.buffer()[2]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsDataLongerThanLengthByte() {
+        StringBuilder command = new StringBuilder();
+        for (int i = 0; i <= CommandEncoder.MAX_DATA_LENGTH; i++) {
+            command.append('a');
+        }
+        new CommandEncoder().begin(command.toString()).end();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsFractionDigitsOutOfRange() {
+        new CommandEncoder().begin().append(1.5, 10);
+    }
+
+    private static String text(CommandEncoder encoder) {
+        encoder.end();
+        return new String(encoder.buffer(), 3, encoder.length() - 4, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,190 @@
+package com.reeman.serialport.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class FrameDecoderTest {
+    private static final int FLUSH_FRAMES = 30;
+
+    private final List<String> frames = new ArrayList<>();
+    private int checksumErrors;
+    private FrameDecoder decoder;
+
+    @Before
+    public void setUp() {
+        decoder = new FrameDecoder(new FrameDecoder.OnFrameListener() {
+            @Override
+            public void onFrame(byte type, byte[] data, int offset, int len) {
+                String text = new String(data, offset, len, StandardCharsets.ISO_8859_1);
+                frames.add(type == FrameDecoder.TYPE_ACK ? "ack:" + text : text);
+            }
+
+            @Override
+            public void onChecksumError(byte type, byte[] data, int offset, int len) {
+                checksumErrors++;
+            }
+        });
+    }
+
+    @Test
+    public void decodesConsecutiveFrames() {
+        feed(concat(frame("pose[1.0,2.0,0.5]"), frame("core_data{0 0 0 80 0}"), ack("ok")));
+
+        assertFrames("pose[1.0,2.0,0.5]", "core_data{0 0 0 80 0}", "ack:ok");
+        assertEquals(0, checksumErrors);
+        assertEquals(0, decoder.getDiscardedBytes());
+        assertEquals(0, decoder.getPendingBytes());
+    }
+
+    @Test
+    public void decodesFrameSplitAtEveryPosition() {
+        byte[] stream = concat(frame("nav_result{3 0 A 0.000000 12}"), frame("pose[1.0,2.0,0.5]"));
+        for (int split = 1; split < stream.length; split++) {
+            frames.clear();
+            decoder.feed(stream, 0, split);
+            decoder.feed(stream, split, stream.length - split);
+            assertFrames("nav_result{3 0 A 0.000000 12}", "pose[1.0,2.0,0.5]");
+        }
+    }
+
+    @Test
+    public void decodesFrameFedByteByByte() {
+        byte[] stream = frame("battery_info{reeman 25.2 31 120 20000 19000 17000 98}");
+        for (int i = 0; i < stream.length; i++) {
+            decoder.feed(stream, i, 1);
+        }
+        assertFrames("battery_info{reeman 25.2 31 120 20000 19000 17000 98}");
+    }
+
+    @Test
+    public void skipsFrameWithFlippedBit() {
+        byte[] corrupted = frame("core_data{0 0 0 80 0}");
+        corrupted[8] ^= 0x04;
+
+        feed(concat(frame("pose[1.0,2.0,0.5]"), corrupted, frame("nav_result{1 0 A 3.5 12}")));
+
+        assertFrames("pose[1.0,2.0,0.5]", "nav_result{1 0 A 3.5 12}");
+        assertEquals(1, checksumErrors);
+        assertEquals(corrupted.length, decoder.getDiscardedBytes());
+    }
+
+    @Test
+    public void recoversFrameAfterTruncatedFrame() {
+        byte[] truncated = Arrays.copyOf(frame("battery_info{reeman 25.2 31 120 20000 19000 17000 98}"), 6);
+
+        feed(concat(frame("pose[1.0,2.0,0.5]"), truncated, frame("core_data{0 0 0 80 0}"), frame("laser[1.23]")));
+        //截断的帧按长度位等待后续数据,之后的帧在候选帧校验失败后才能解析
+        assertFrames("pose[1.0,2.0,0.5]");
+
+        feed(flush());
+
+        assertFrames(withFlush("pose[1.0,2.0,0.5]", "core_data{0 0 0 80 0}", "laser[1.23]"));
+        assertEquals(1, checksumErrors);
+        assertEquals(truncated.length, decoder.getDiscardedBytes());
+        assertEquals(0, decoder.getPendingBytes());
+    }
+
+    @Test
+    public void keepsHeadBytesInsideData() {
+        byte[] payload = {'x', (byte) 0xAA, 0x54, 0x02, 'y', (byte) 0xAA, 0x56};
+        feed(concat(frame(FrameDecoder.TYPE_DATA, payload), frame("laser[1.23]")));
+
+        assertFrames(new String(payload, StandardCharsets.ISO_8859_1), "laser[1.23]");
+        assertEquals(0, checksumErrors);
+    }
+
+    @Test
+    public void recoversFromFalseHeadInGarbage() {
+        byte[] garbage = {0x11, (byte) 0xAA, 0x54, 0x40, 0x22};
+
+        feed(concat(garbage, frame("pose[1.0,2.0,0.5]"), frame("core_data{0 0 0 80 0}"), flush()));
+
+        assertFrames(withFlush("pose[1.0,2.0,0.5]", "core_data{0 0 0 80 0}"));
+        assertEquals(garbage.length, decoder.getDiscardedBytes());
+    }
+
+    @Test
+    public void decodesEmptyFrame() {
+        feed(concat(frame(FrameDecoder.TYPE_DATA, new byte[0]), frame("laser[1.23]")));
+
+        assertFrames("", "laser[1.23]");
+    }
+
+    @Test
+    public void resetDropsPendingBytes() {
+        byte[] first = frame("pose[1.0,2.0,0.5]");
+        decoder.feed(first, 0, 10);
+        assertEquals(10, decoder.getPendingBytes());
+
+        decoder.reset();
+        feed(frame("laser[1.23]"));
+
+        assertFrames("laser[1.23]");
+        assertEquals(10, decoder.getDiscardedBytes());
+    }
+
+    private void feed(byte[] stream) {
+        decoder.feed(stream, 0, stream.length);
+    }
+
+    private void assertFrames(String... expected) {
+        assertEquals(Arrays.asList(expected), frames);
+    }
+
+    /**
+     * 超过最大帧长度的完整帧,保证之前的候选帧都已接收完
+     */
+    private static byte[] flush() {
+        byte[][] frames = new byte[FLUSH_FRAMES][];
+        for (int i = 0; i < FLUSH_FRAMES; i++) {
+            frames[i] = frame("laser[" + i + "]");
+        }
+        return concat(frames);
+    }
+
+    private static String[] withFlush(String... expected) {
+        String[] frames = Arrays.copyOf(expected, expected.length + FLUSH_FRAMES);
+        for (int i = 0; i < FLUSH_FRAMES; i++) {
+            frames[expected.length + i] = "laser[" + i + "]";
+        }
+        return frames;
+    }
+
+    static byte[] frame(String data) {
+        return frame(FrameDecoder.TYPE_DATA, data.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    static byte[] ack(String data) {
+        return frame(FrameDecoder.TYPE_ACK, data.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    static byte[] frame(byte type, byte[] data) {
+        byte[] frame = new byte[data.length + 4];
+        frame[0] = FrameDecoder.HEAD;
+        frame[1] = type;
+        frame[2] = (byte) data.length;
+        byte xor = (byte) data.length;
+        for (int i = 0; i < data.length; i++) {
+            frame[3 + i] = data[i];
+            xor ^= data[i];
+        }
+        frame[frame.length - 1] = xor;
+        return frame;
+    }
+
+    static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.write(part, 0, part.length);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,2 @@
+# Platform通过反射加载
+-keep class com.reeman.serialport.android.AndroidPlatform { <init>(); }
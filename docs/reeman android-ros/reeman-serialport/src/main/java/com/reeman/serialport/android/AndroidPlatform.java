@@ -0,0 +1,95 @@
+package com.reeman.serialport.android;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.text.TextUtils;
+
+import com.reeman.serialport.controller.PowerBoardReceiver;
+import com.reeman.serialport.controller.RobotActionController;
+import com.reeman.serialport.controller.SerialRuntime;
+import com.reeman.serialport.platform.Platform;
+import com.reeman.serialport.platform.RosLog;
+import com.reeman.serialport.transport.TransportFactory;
+import com.reeman.serialport.util.LogUtils;
+import com.reeman.serialport.util.NetworkUtil;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import timber.log.Timber;
+
+/**
+ * Android平台,由{@link Platform#get()}通过反射加载
+ * <p>
+ * 日志输出到Timber,串口通过JNI打开并在poll线程中读取;
+ * 控制器开始监听后每60秒上传一次日志,rk312x上同时记录电源板日志
+ */
+public class AndroidPlatform extends Platform {
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    @Override
+    public void log(int priority, String message, Throwable t) {
+        Timber.tag(RosLog.TAG).log(priority, t, message);
+    }
+
+    /**
+     * Timber不区分级别,没有种树时不输出
+     */
+    @Override
+    public boolean isLoggable(int priority) {
+        return Timber.treeCount() > 0;
+    }
+
+    @Override
+    public void setThreadPriority(int priority) {
+        Process.setThreadPriority(priority);
+    }
+
+    @Override
+    public long elapsedRealtime() {
+        return SystemClock.elapsedRealtime();
+    }
+
+    @Override
+    public Executor mainThreadExecutor() {
+        return mainHandler::post;
+    }
+
+    @Override
+    public TransportFactory transportFactory() {
+        return SerialPortTransport.FACTORY;
+    }
+
+    @Override
+    public Closeable onStartListen(RobotActionController controller, SerialRuntime runtime, List<String> logPaths) {
+        ScheduledFuture<?> uploadTask = runtime.background().scheduleWithFixedDelay(() -> {
+            try {
+                String ipAddress = controller.getIpAddress();
+                if (TextUtils.isEmpty(ipAddress) || "127.0.0.1".equals(ipAddress) || !NetworkUtil.isHostReachable(ipAddress, 1000))
+                    return;
+                LogUtils.uploadLogs(ipAddress, logPaths);
+            } catch (Exception e) {
+
+            }
+        }, 10, 60, TimeUnit.SECONDS);
+        boolean powerBoard = false;
+        if (Build.PRODUCT.startsWith("rk312x")) {
+            try {
+                powerBoard = PowerBoardReceiver.getInstance().start(runtime);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        boolean ownsPowerBoard = powerBoard;
+        return () -> {
+            uploadTask.cancel(true);
+            if (ownsPowerBoard) PowerBoardReceiver.getInstance().stop();
+        };
+    }
+}
@@ -0,0 +1,82 @@
+package com.reeman.serialport.android;
+
+import com.aill.androidserialport.SerialPort;
+import com.reeman.serialport.controller.SerialPortParser;
+import com.reeman.serialport.controller.SerialRuntime;
+import com.reeman.serialport.transport.Transport;
+import com.reeman.serialport.transport.TransportFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * JNI打开的串口,同一个{@link SerialRuntime}的所有串口在同一个读线程中读取,见{@link SerialReactor}
+ */
+class SerialPortTransport implements Transport {
+    static final TransportFactory FACTORY = (runtime, port, baudRate) -> new SerialPortTransport(runtime, new File(port), baudRate);
+
+    /**
+     * 停止时等待读线程不再使用串口的最长时间
+     */
+    private static final long STOP_TIMEOUT = 500;
+    private static final Map<SerialRuntime, SerialReactor> REACTORS = new WeakHashMap<>();
+
+    private final SerialRuntime runtime;
+    private final SerialReactor reactor;
+    private final SerialPort serialPort;
+    private final FileInputStream inputStream;
+    private final String name;
+    private SerialReactor.Port port;
+    private boolean closed;
+
+    SerialPortTransport(SerialRuntime runtime, File file, int baudRate) throws IOException {
+        this.runtime = runtime;
+        this.reactor = reactorOf(runtime);
+        this.serialPort = new SerialPort(file, baudRate, 0);
+        this.inputStream = (FileInputStream) serialPort.getInputStream();
+        this.name = file.getName();
+    }
+
+    private static SerialReactor reactorOf(SerialRuntime runtime) {
+        synchronized (REACTORS) {
+            SerialReactor reactor = REACTORS.get(runtime);
+            if (reactor == null) {
+                reactor = new SerialReactor();
+                REACTORS.put(runtime, reactor);
+            }
+            return reactor;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public synchronized void start(SerialPortParser.ReadMode mode, SerialPortParser.OnDataResultListener listener) throws IOException {
+        if (closed) throw new IOException(name + " 已关闭");
+        if (port != null) throw new IllegalStateException(name + " 已开始读取");
+        port = reactor.register(runtime, inputStream.getFD(), inputStream, mode, listener, name);
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return serialPort.getOutputStream();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        if (port != null) {
+            reactor.unregister(port, STOP_TIMEOUT);
+            port = null;
+        }
+        serialPort.tryClose();
+    }
+}
@@ -0,0 +1,287 @@
+package com.reeman.serialport.android;
+
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+import android.system.StructPollfd;
+
+import com.reeman.serialport.BuildConfig;
+import com.reeman.serialport.controller.SerialPortParser;
+import com.reeman.serialport.controller.SerialRuntime;
+
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import timber.log.Timber;
+
+/**
+ * 同一个运行环境的所有串口共用的读线程
+ * <p>
+ * 一次poll同时等待所有已打开串口和唤醒管道,哪个串口有数据就读取哪个,并在该线程中回调其监听器;
+ * 增加串口不增加线程,没有数据时不唤醒。每个串口按自己的{@link SerialPortParser.ReadMode}回调,
+ * 未读够的数据在超时后回调;某个串口出错时只有该串口按10ms~1s逐次加倍暂停读取,不影响其他串口。
+ * 第一个串口注册时启动线程,最后一个串口注销后线程结束;每个{@link SerialRuntime}一个
+ */
+class SerialReactor implements Runnable {
+    private static final int BUFFER_SIZE = 1024;
+    private static final long MIN_BACKOFF = 10;
+    private static final long MAX_BACKOFF = 1000;
+    private static final Port[] EMPTY = new Port[0];
+
+    private final Object lock = new Object();
+    private final AtomicBoolean wakePending = new AtomicBoolean();
+    private final byte[] wakeByte = new byte[1];
+    private final byte[] drain = new byte[64];
+    private final StructPollfd wake = new StructPollfd();
+    private FileDescriptor wakeWrite;
+    /**
+     * 以下字段受lock保护
+     */
+    private Port[] ports = EMPTY;
+    private Thread thread;
+    private long iteration;
+
+    /**
+     * 只在读线程中使用
+     */
+    private Port[] polled;
+    private StructPollfd[] pollfds;
+
+    /**
+     * 开始读取串口,可在任意线程调用
+     *
+     * @param runtime 没有读线程时在其中创建
+     * @param name    用于日志
+     */
+    Port register(SerialRuntime runtime, FileDescriptor fd, InputStream inputStream, SerialPortParser.ReadMode mode,
+                  SerialPortParser.OnDataResultListener listener, String name) throws IOException {
+        Port port = new Port(fd, inputStream, mode, listener, name);
+        synchronized (lock) {
+            if (wakeWrite == null) {
+                try {
+                    FileDescriptor[] pipe = Os.pipe();
+                    wake.fd = pipe[0];
+                    wake.events = (short) OsConstants.POLLIN;
+                    wakeWrite = pipe[1];
+                } catch (ErrnoException e) {
+                    throw new IOException(e);
+                }
+            }
+            Port[] grown = new Port[ports.length + 1];
+            System.arraycopy(ports, 0, grown, 0, ports.length);
+            grown[ports.length] = port;
+            ports = grown;
+            if (thread == null) {
+                thread = runtime.newThread(SerialRuntime.ROLE_IO, this, "read");
+                thread.start();
+            } else {
+                wakeup();
+            }
+        }
+        return port;
+    }
+
+    /**
+     * 停止读取串口,等待读线程不再使用该串口后返回,最多等待timeoutMillis,之后可以关闭串口
+     */
+    void unregister(Port port, long timeoutMillis) {
+        port.listener = null;
+        synchronized (lock) {
+            List<Port> remaining = new ArrayList<>(ports.length);
+            for (Port p : ports) {
+                if (p != port) remaining.add(p);
+            }
+            if (remaining.size() == ports.length) return;
+            ports = remaining.toArray(EMPTY);
+            if (thread == null || Thread.currentThread() == thread) return;
+            wakeup();
+            long target = iteration + 1;
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            try {
+                while (thread != null && iteration < target) {
+                    long wait = deadline - System.nanoTime();
+                    if (wait <= 0) break;
+                    TimeUnit.NANOSECONDS.timedWait(lock, wait);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void wakeup() {
+        if (!wakePending.compareAndSet(false, true)) return;
+        try {
+            Os.write(wakeWrite, wakeByte, 0, 1);
+        } catch (ErrnoException | InterruptedIOException e) {
+            Timber.tag(BuildConfig.LOG_ROS).w(e, "唤醒读线程失败");
+        }
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            Port[] current;
+            synchronized (lock) {
+                iteration++;
+                lock.notifyAll();
+                if (ports.length == 0) {
+                    thread = null;
+                    polled = null;
+                    pollfds = null;
+                    Timber.tag(BuildConfig.LOG_ROS).w("read thread finish");
+                    return;
+                }
+                current = ports;
+            }
+            long now = System.nanoTime();
+            StructPollfd[] fds = pollfds(current, now);
+            int timeout = timeout(current, now);
+            try {
+                wake.revents = 0;
+                for (Port port : current) {
+                    port.pollfd.revents = 0;
+                }
+                Os.poll(fds, timeout);
+            } catch (ErrnoException e) {
+                if (e.errno != OsConstants.EINTR) {
+                    Timber.tag(BuildConfig.LOG_ROS).w(e, "poll失败");
+                    sleep(MIN_BACKOFF);
+                }
+                continue;
+            }
+            if ((wake.revents & OsConstants.POLLIN) != 0) drainWakeup();
+            now = System.nanoTime();
+            for (Port port : current) {
+                short revents = port.pollfd.revents;
+                if ((revents & OsConstants.POLLIN) != 0) {
+                    port.read(now);
+                } else if ((revents & (OsConstants.POLLERR | OsConstants.POLLHUP | OsConstants.POLLNVAL)) != 0) {
+                    port.fail(new IOException("poll revents " + revents), now);
+                } else if (port.length > 0 && now - port.deadline >= 0) {
+                    port.deliver();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return 唤醒管道和不在出错等待中的串口,没有变化时复用上次的数组
+     */
+    private StructPollfd[] pollfds(Port[] current, long now) {
+        int count = 0;
+        for (Port port : current) {
+            if (port.backoff == 0 || now - port.backoffUntil >= 0) count++;
+        }
+        if (current == polled && pollfds.length == count + 1) return pollfds;
+        StructPollfd[] fds = new StructPollfd[count + 1];
+        fds[0] = wake;
+        int i = 1;
+        for (Port port : current) {
+            if (port.backoff == 0 || now - port.backoffUntil >= 0) fds[i++] = port.pollfd;
+        }
+        polled = count == current.length ? current : null;
+        pollfds = fds;
+        return fds;
+    }
+
+    /**
+     * @return 最近一个未读够的串口的超时或出错等待的结束时间,毫秒;-1表示一直等待
+     */
+    private static int timeout(Port[] current, long now) {
+        long min = Long.MAX_VALUE;
+        for (Port port : current) {
+            if (port.length > 0) min = Math.min(min, port.deadline - now);
+            if (port.backoff != 0 && port.backoffUntil - now > 0) min = Math.min(min, port.backoffUntil - now);
+        }
+        if (min == Long.MAX_VALUE) return -1;
+        if (min <= 0) return 0;
+        return (int) Math.min(TimeUnit.NANOSECONDS.toMillis(min + TimeUnit.MILLISECONDS.toNanos(1) - 1), Integer.MAX_VALUE);
+    }
+
+    private void drainWakeup() {
+        wakePending.set(false);
+        try {
+            Os.read(wake.fd, drain, 0, drain.length);
+        } catch (ErrnoException | InterruptedIOException e) {
+            Timber.tag(BuildConfig.LOG_ROS).w(e, "读取唤醒管道失败");
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 一个已注册的串口,除listener外只在读线程中访问
+     */
+    static class Port {
+        final InputStream inputStream;
+        final SerialPortParser.ReadMode mode;
+        final String name;
+        final StructPollfd pollfd = new StructPollfd();
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        volatile SerialPortParser.OnDataResultListener listener;
+        int length;
+        long deadline;
+        long backoff;
+        long backoffUntil;
+
+        Port(FileDescriptor fd, InputStream inputStream, SerialPortParser.ReadMode mode,
+             SerialPortParser.OnDataResultListener listener, String name) {
+            this.inputStream = inputStream;
+            this.mode = mode;
+            this.listener = listener;
+            this.name = name;
+            pollfd.fd = fd;
+            pollfd.events = (short) OsConstants.POLLIN;
+        }
+
+        void read(long now) {
+            int len;
+            try {
+                len = inputStream.read(buffer, length, buffer.length - length);
+                if (len < 0) throw new IOException("串口已关闭");
+            } catch (IOException e) {
+                fail(e, now);
+                return;
+            }
+            backoff = 0;
+            length += len;
+            if (length >= mode.getMinBytes() || length == buffer.length) {
+                deliver();
+            } else {
+                deadline = now + TimeUnit.MILLISECONDS.toNanos(mode.getInterByteTimeout());
+            }
+        }
+
+        void deliver() {
+            SerialPortParser.OnDataResultListener current = listener;
+            int len = length;
+            length = 0;
+            if (current == null) return;
+            try {
+                current.onDataResult(buffer, len);
+            } catch (Exception e) {
+                Timber.tag(BuildConfig.LOG_ROS).w(e, "%s 数据处理失败", name);
+            }
+        }
+
+        void fail(Exception e, long now) {
+            if (listener == null) return;
+            backoff = backoff == 0 ? MIN_BACKOFF : Math.min(backoff * 2, MAX_BACKOFF);
+            backoffUntil = now + TimeUnit.MILLISECONDS.toNanos(backoff);
+            Timber.tag(BuildConfig.LOG_ROS).w(e, "%s 读取失败,%sms后重试", name, backoff);
+        }
+    }
+}
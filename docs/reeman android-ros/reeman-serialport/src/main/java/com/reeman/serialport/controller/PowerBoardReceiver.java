@@ -5,23 +5,69 @@ import android.os.Environment;
 import com.reeman.serialport.BuildConfig;
 import com.reeman.serialport.util.TimeUtil;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import timber.log.Timber;
+
+/**
+ * 电源板串口日志,保存到{@link BuildConfig#LOG_POWER_BOARD}目录
+ * <p>
+ * 读线程只复制数据,由{@link SerialRuntime#background()}按顺序写入;当天的日志文件保持打开,换日或{@link #stop()}时关闭
+ */
 public class PowerBoardReceiver {
-    private static PowerBoardReceiver INSTANCE;
+    private static final String DEFAULT_PORT = "/dev/ttyS0";
+    private static volatile PowerBoardReceiver INSTANCE;
+    /**
+     * 攒够一批或空闲后再交给后台线程写入
+     */
+    private static final SerialPortParser.ReadMode READ_MODE = SerialPortParser.ReadMode.batch(512, 50);
+    private final String port;
+    private final String suffix;
     private SerialPortParser parser;
+    private final Queue<byte[]> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile Executor writer;
+    /**
+     * 写入任务和关闭时持有
+     */
+    private final Object fileLock = new Object();
+    private OutputStream file;
+    private String fileDay;
 
+    /**
+     * @return 读取/dev/ttyS0的默认实例,{@link #stop()}后重新创建
+     */
     public static PowerBoardReceiver getInstance() {
         if (INSTANCE == null) {
-            INSTANCE = new PowerBoardReceiver();
+            synchronized (PowerBoardReceiver.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new PowerBoardReceiver();
+                }
+            }
         }
         return INSTANCE;
     }
 
     public PowerBoardReceiver() {
+        this(DEFAULT_PORT);
+    }
+
+    /**
+     * @param port 串口地址,不是/dev/ttyS0时日志文件名带串口名称,如2024-01-01-ttyS3.log
+     */
+    public PowerBoardReceiver(String port) {
+        this.port = port;
+        this.suffix = DEFAULT_PORT.equals(port) ? "" : "-" + new File(port).getName();
         File file = new File(Environment.getExternalStorageDirectory() + File.separator+BuildConfig.LOG_POWER_BOARD);
         if (!file.exists() || !file.isDirectory()) {
             file.mkdir();
@@ -37,40 +83,95 @@ public class PowerBoardReceiver {
         }
     }
 
-    public void start() throws Exception {
-        parser = new SerialPortParser(new File("/dev/ttyS0"), 115200, this::writeToLocal);
+    public boolean start() throws Exception {
+        return start(SerialRuntime.getDefault());
+    }
+
+    /**
+     * @param runtime 与导航串口共用读线程
+     * @return false: 已经打开
+     */
+    public synchronized boolean start(SerialRuntime runtime) throws Exception {
+        if (parser != null) return false;
+        writer = runtime.background();
+        parser = new SerialPortParser(runtime, new File(port), 115200, READ_MODE, this::writeToLocal);
         parser.start();
+        return true;
     }
 
-    public void stop() {
+    public synchronized void stop() {
         if (parser != null) {
             parser.stop();
             parser = null;
         }
-        INSTANCE = null;
+        synchronized (fileLock) {
+            drain();
+            closeFile();
+        }
+        synchronized (PowerBoardReceiver.class) {
+            if (INSTANCE == this) INSTANCE = null;
+        }
     }
 
+    /**
+     * 在读线程中调用,data在回调后会被复用
+     */
     private void writeToLocal(byte[] data, int len) {
-        FileOutputStream downloadFile = null;
-        try {
-            downloadFile = new FileOutputStream(new File(Environment.getExternalStorageDirectory() + File.separator+BuildConfig.LOG_POWER_BOARD+File.separator + TimeUtil.formatDay(new Date()) + ".log"), true);
-            downloadFile.write(data, 0, len);
-            downloadFile.flush();
-        } catch (IOException e) {
-            e.printStackTrace();
-        } finally {
+        pending.offer(Arrays.copyOf(data, len));
+        if (scheduled.compareAndSet(false, true)) {
             try {
-                if (downloadFile != null)
-                    downloadFile.close();
-            } catch (IOException e) {
-                e.printStackTrace();
+                writer.execute(this::writePending);
+            } catch (Exception e) {
+                scheduled.set(false);
+                Timber.tag(BuildConfig.LOG_ROS).w(e, "电源板日志线程池拒绝执行");
+            }
+        }
+    }
+
+    private void writePending() {
+        do {
+            synchronized (fileLock) {
+                drain();
             }
-//            String strRead = new String(data, StandardCharsets.UTF_8);
-//            strRead = String.copyValueOf(strRead.toCharArray(), 0, len);
-//            Timber.tag(BuildConfig.LOG_ROS).e("power board : %s", strRead);
+            scheduled.set(false);
+            //释放后放入的数据由本任务继续写入,或已由读线程重新提交
+        } while (!pending.isEmpty() && scheduled.compareAndSet(false, true));
+    }
 
+    /**
+     * 写入所有待写的数据后flush,持有fileLock时调用
+     */
+    private void drain() {
+        if (pending.isEmpty()) return;
+        String day = TimeUtil.formatDay(new Date());
+        try {
+            if (file == null || !day.equals(fileDay)) {
+                closeFile();
+                file = new BufferedOutputStream(new FileOutputStream(new File(Environment.getExternalStorageDirectory() + File.separator
+                        + BuildConfig.LOG_POWER_BOARD + File.separator + day + suffix + ".log"), true));
+                fileDay = day;
+            }
+            byte[] data;
+            while ((data = pending.poll()) != null) {
+                file.write(data);
+            }
+            file.flush();
+        } catch (IOException e) {
+            pending.clear();
+            closeFile();
+            Timber.tag(BuildConfig.LOG_ROS).w(e, "电源板日志写入失败");
         }
+    }
 
+    private void closeFile() {
+        if (file == null) return;
+        try {
+            file.close();
+        } catch (IOException e) {
+            Timber.tag(BuildConfig.LOG_ROS).w(e, "电源板日志关闭失败");
+        }
+        file = null;
+        fileDay = null;
     }
 
     private boolean shouldClean(File file) {